@@ -1,12 +1,15 @@
 package application;
 
+import object.ItemUsageIndex;
 import object.Library;
+import object.RetentionPolicy;
 import object.Schedule;
 import object.User;
 
 public class AppContext {
     private static final Library library = new Library();
     private static final User user = new User("abu",20,40,150,new Schedule());
+    private static RetentionPolicy retentionPolicy;
         
     //prevent init
     private AppContext() {}
@@ -22,5 +25,27 @@ public class AppContext {
     public static User getUser() {
     	return user;
     }
+    
+    public static ItemUsageIndex getUsageIndex() {
+    	return user.getSchedule().getUsageIndex();
+    }
+    
+    public static RetentionPolicy getRetentionPolicy() {
+    	return retentionPolicy;
+    }
+    
+    /**
+     * Sets the policy under which old months are downsampled, and starts the
+     * {@link RetentionJob} if it is not running yet. Retention is off until a policy is set,
+     * which {@link Main} does for the {@code --keep-months} option.
+     *
+     * @param policy the retention policy, or {@code null} to stop downsampling
+     */
+    public static void setRetentionPolicy(RetentionPolicy policy) {
+    	retentionPolicy = policy;
+    	if (policy != null) {
+    		RetentionJob.start();
+    	}
+    }
 
 }
\ No newline at end of file
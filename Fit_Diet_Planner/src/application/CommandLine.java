@@ -0,0 +1,206 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+import object.AdherenceSimulator;
+import object.CatalogImporter.ImportResult;
+import object.Entry;
+import object.FileFormat;
+import object.HistoryImporter;
+import object.NoteIndex;
+import object.Schedule;
+import object.ScheduleExporter;
+import object.User;
+
+/**
+ * Headless command-line mode.
+ * <p>
+ * Runs data tasks against the {@link AppContext} without starting the JavaFX interface.
+ * This is a separate entry point from {@link Main}, because the Java launcher starts the
+ * JavaFX toolkit before {@code main} runs for classes extending {@code Application}.
+ * Supported commands:
+ * </p>
+ * <pre>
+ * --export &lt;file&gt; [--format csv|jsonl] [--from yyyy-mm-dd] [--to yyyy-mm-dd]
+ * --simulate [--days n] [--trials n] [--seed n]
+ * --search-notes &lt;query&gt; [--offset n] [--limit n]
+ * </pre>
+ * <p>
+ * The schedule starts out empty, so a command is normally preceded by one or more
+ * {@code --history <file>} options, which load CSV or JSON Lines files through
+ * {@link HistoryImporter} before the command runs.
+ * </p>
+ */
+public class CommandLine {
+	
+    //prevent init
+	private CommandLine() {}
+	
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.err.println("Usage: [--history <file>]... --export <file> [--format csv|jsonl] [--from yyyy-mm-dd] [--to yyyy-mm-dd]");
+			System.err.println("       [--history <file>]... --simulate [--days n] [--trials n] [--seed n]");
+			System.err.println("       [--history <file>]... --search-notes <query> [--offset n] [--limit n]");
+			System.exit(2);
+		}
+		System.exit(run(args));
+	}
+	
+    /**
+     * Runs the command given by the arguments.
+     *
+     * @param args the program arguments
+     * @return the process exit code, 0 on success
+     */
+	public static int run(String[] args) {
+		try {
+			int command = 0;
+			while (command < args.length && args[command].equals("--history")) {
+				if (command + 1 >= args.length) throw new IllegalArgumentException("Missing value for --history");
+				loadHistory(Path.of(args[command + 1]));
+				command += 2;
+			}
+			if (command >= args.length) throw new IllegalArgumentException("Missing command");
+			args = Arrays.copyOfRange(args, command, args.length);
+			
+			if (args[0].equals("--export")) {
+				return export(args);
+			}
+			if (args[0].equals("--simulate")) {
+				return simulate(args);
+			}
+			if (args[0].equals("--search-notes")) {
+				return searchNotes(args);
+			}
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			System.err.println(e.getMessage());
+			return 2;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return 1;
+		}
+		System.err.println("Unknown command: " + args[0]);
+		return 2;
+	}
+	
+	private static void loadHistory(Path file) throws IOException {
+		HistoryImporter importer = new HistoryImporter(AppContext.getSchedule(), AppContext.getLibrary());
+		User user = AppContext.getUser();
+		ImportResult result = importer.importHistory(file, FileFormat.fromFileName(file.toString()), user::getWeightOn, null);
+		System.err.println("Loaded " + file + ": " + result);
+		for (String error : result.getErrors()) {
+			System.err.println("  " + error);
+		}
+	}
+	
+	private static int export(String[] args) throws Exception {
+		if (args.length < 2) throw new IllegalArgumentException("Usage: --export <file> [--format csv|jsonl] [--from yyyy-mm-dd] [--to yyyy-mm-dd]");
+		Path file = Path.of(args[1]);
+		FileFormat format = FileFormat.fromFileName(file.toString());
+		LocalDate from = null;
+		LocalDate to = null;
+		
+		for (int i = 2; i < args.length; i += 2) {
+			if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + args[i]);
+			String value = args[i + 1];
+			switch (args[i]) {
+				case "--format":
+					format = parseFormat(value);
+					break;
+				case "--from":
+					from = LocalDate.parse(value);
+					break;
+				case "--to":
+					to = LocalDate.parse(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		
+		long count = new ScheduleExporter(AppContext.getSchedule()).export(file, format, from, to);
+		System.out.println("Exported " + count + " rows to " + file);
+		return 0;
+	}
+	
+	private static int simulate(String[] args) {
+		int days = 30;
+		int trials = AdherenceSimulator.DEFAULT_TRIALS;
+		long seed = System.nanoTime();
+		
+		for (int i = 1; i < args.length; i += 2) {
+			if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + args[i]);
+			String value = args[i + 1];
+			switch (args[i]) {
+				case "--days":
+					days = Integer.parseInt(value);
+					break;
+				case "--trials":
+					trials = Integer.parseInt(value);
+					break;
+				case "--seed":
+					seed = Long.parseLong(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		
+		AdherenceSimulator.Result result = new AdherenceSimulator(AppContext.getUser()).simulate(LocalDate.now(), days, trials, seed);
+		System.out.printf("Simulated %d trials of %d days in %d ms (%.0f%% of planned entries completed)%n",
+				result.getTrials(), result.getDays(), result.getElapsedNanos() / 1_000_000, result.getCompletionShare() * 100);
+		System.out.printf("%-10s %12s %10s%n", "Percentile", "Net kcal", "Weight kg");
+		for (int percentile : new int[] {5, 25, 50, 75, 95}) {
+			System.out.printf("%-10s %12.0f %10.1f%n", percentile + "%", result.getNetPercentile(percentile), result.getWeightPercentile(percentile));
+		}
+		System.out.printf("%-10s %12.0f %10.1f%n", "Mean", result.getMeanNet(), result.getMeanWeight());
+		return 0;
+	}
+	
+	private static int searchNotes(String[] args) {
+		if (args.length < 2) throw new IllegalArgumentException("Usage: --search-notes <query> [--offset n] [--limit n]");
+		String query = args[1];
+		int offset = 0;
+		int limit = 20;
+		
+		for (int i = 2; i < args.length; i += 2) {
+			if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + args[i]);
+			String value = args[i + 1];
+			switch (args[i]) {
+				case "--offset":
+					offset = Integer.parseInt(value);
+					break;
+				case "--limit":
+					limit = Integer.parseInt(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		
+		Schedule schedule = AppContext.getSchedule();
+		NoteIndex.Page page = schedule.searchNotes(query, offset, limit);
+		for (NoteIndex.Match match : page.getMatches()) {
+			for (Entry entry : schedule.getDailyPlan(match.getDate()).getEntries()) {
+				if (entry.getId().equals(match.getEntryId())) {
+					System.out.println(match.getDate() + "  " + entry.getNote());
+				}
+			}
+		}
+		System.out.println("Showing " + page.getMatches().size() + " of " + page.getTotal() + " matches");
+		return 0;
+	}
+	
+	private static FileFormat parseFormat(String value) {
+		switch (value.toLowerCase()) {
+			case "csv": return FileFormat.CSV;
+			case "jsonl": 
+			case "json": return FileFormat.JSON_LINES;
+			default: throw new IllegalArgumentException("Unknown format: " + value);
+		}
+	}
+}
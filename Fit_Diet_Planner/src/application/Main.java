@@ -16,6 +16,7 @@ import object.Entry;
 import object.FoodEntry;
 import object.LibraryItem.LibraryType;
 import object.RepBasedExerciseEntry;
+import object.RetentionPolicy;
 
 import java.time.LocalDate;
 import javafx.scene.control.Alert;
@@ -29,6 +30,10 @@ import java.util.Optional;
  * Manages all loaded pages and their controllers to minimize repetitive UI reloads.
  * Also initializes required data from the database at startup.
  * Provides static methods for scene switching and retrieving the corresponding controllers.
+ * <p>
+ * Retention is enabled with {@code --keep-months <n>}: the entries of months that ended more than
+ * {@code n} months ago are downsampled by the {@link RetentionJob}.
+ * </p>
  */
 public class Main extends Application {
 	
@@ -51,6 +56,11 @@ public class Main extends Application {
      * </p>
      */
     private static Map<String, Object> controllers = new HashMap<>(); 
+    
+    /**
+     * Number of most used items kept for each downsampled month.
+     */
+    private static final int RETENTION_TOP_ITEMS = 10;
 	
 	@Override 
 	public void start(Stage primaryStage) { 
@@ -69,9 +79,36 @@ public class Main extends Application {
 	}
 		
 	public static void main(String[] args) {
+		try {
+			applyOptions(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: [--keep-months n]");
+			System.exit(2);
+		}
 		launch(args);		
 	}
 	
+    /**
+     * Applies the program options.
+     *
+     * @param args the program arguments
+     * @throws IllegalArgumentException if an option is unknown or has an invalid value
+     */
+	private static void applyOptions(String[] args) {
+		for (int i = 0; i < args.length; i += 2) {
+			if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + args[i]);
+			String value = args[i + 1];
+			switch (args[i]) {
+				case "--keep-months":
+					AppContext.setRetentionPolicy(new RetentionPolicy(Integer.parseInt(value), RETENTION_TOP_ITEMS));
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+	}
+	
 	public static Stage getStage() {
 		return stage;
 	}
@@ -0,0 +1,62 @@
+package application;
+
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javafx.application.Platform;
+import object.RetentionPolicy;
+import object.Schedule;
+
+/**
+ * Background job that downsamples expired months of the user's schedule.
+ * Retention is opt-in: the job is started by {@link AppContext#setRetentionPolicy(RetentionPolicy)}
+ * and does nothing while no policy is set.
+ * <p>
+ * The schedule is owned by the FX thread, so the job only wakes up on a daemon thread and hands
+ * the work to the FX thread a few months at a time. A large backlog, such as after importing
+ * years of history, is worked off in short steps that leave the interface responsive.
+ * </p>
+ */
+public class RetentionJob {
+
+	/**
+	 * Number of months downsampled per step on the FX thread.
+	 */
+	private static final int MONTHS_PER_STEP = 3;
+
+	/**
+	 * Hours between two runs of the job.
+	 */
+	private static final int INTERVAL_HOURS = 6;
+
+	private static ScheduledExecutorService executor;
+
+    //prevent init
+	private RetentionJob() {}
+
+    /**
+     * Starts running the job periodically, beginning shortly after startup.
+     * Does nothing if the job is already running.
+     */
+	public static synchronized void start() {
+		if (executor != null)
+			return;
+		executor = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "retention");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(() -> Platform.runLater(RetentionJob::step), 1, INTERVAL_HOURS * 60L, TimeUnit.MINUTES);
+	}
+
+	private static void step() {
+		Schedule schedule = AppContext.getSchedule();
+		RetentionPolicy policy = AppContext.getRetentionPolicy();
+		if (policy == null)
+			return;
+		if (schedule.applyRetention(policy, LocalDate.now(), MONTHS_PER_STEP) == MONTHS_PER_STEP)
+			executor.execute(() -> Platform.runLater(RetentionJob::step));
+	}
+}
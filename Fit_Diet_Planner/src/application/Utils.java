@@ -1,7 +1,12 @@
 package application;
 
+import java.time.LocalDate;
+
 import javafx.scene.control.TextField;
 import javafx.scene.control.TextFormatter;
+import object.EnergyBudget;
+import object.GoalTracker;
+import object.WeightForecaster;
 
 public class Utils {
     public static String capitalizeSafe(String str) {
@@ -22,6 +27,33 @@ public class Utils {
         }
     }
     
+    public static String formatGoalProgress(GoalTracker tracker, LocalDate today) {
+    	StringBuilder text = new StringBuilder(String.format("Streak: %d days (best %d)",
+    			tracker.getCurrentStreak(today), tracker.getLongestStreak()));
+    	for (int days : GoalTracker.WINDOWS) {
+    		text.append(String.format("   %dd: %.0f%%", days, tracker.getAttainment(days, today) * 100));
+    	}
+    	return text.toString();
+    }
+    
+    public static String formatForecast(WeightForecaster forecaster, LocalDate today) {
+    	if (!forecaster.isReady())
+    		return "Record your weight on two days with logged entries to see a forecast";
+    	StringBuilder text = new StringBuilder();
+    	for (int days : WeightForecaster.HORIZONS) {
+    		double weight = forecaster.project(today, days);
+    		if (Double.isNaN(weight))
+    			return "Plan some days to see a forecast";
+    		text.append(String.format("%s%dd: %.1f kg", text.length() == 0 ? "" : "   ", days, weight));
+    	}
+    	return text.toString();
+    }
+    
+    public static String formatRemaining(EnergyBudget.Day day) {
+    	double remaining = day.getRemaining();
+    	return remaining >= 0 ? String.format("Left: %.0f kcal", remaining) : String.format("Over: %.0f kcal", -remaining);
+    }
+    
     public static String getIcon(double calories) {
      	if(calories > 0)
     		return "🔺";
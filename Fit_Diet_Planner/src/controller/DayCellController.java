@@ -10,7 +10,8 @@ import javafx.fxml.FXML;
 import javafx.scene.control.Label;
 import javafx.scene.layout.Pane;
 import javafx.scene.shape.Rectangle;
-import object.DailyPlan;
+import object.GoalTracker;
+import object.Schedule;
 import object.Entry.EntryType;
 
 public class DayCellController {
@@ -23,6 +24,9 @@ public class DayCellController {
     @FXML
     private Label planNetCalLabel;
 
+    @FXML
+    private Label budgetLabel;
+
     @FXML
     private Rectangle progressBarFg;
 
@@ -48,17 +52,18 @@ public class DayCellController {
         if (date != null) {
             dayNumberLabel.setText(String.valueOf(date.getDayOfMonth()));
             dayCell.setStyle("-fx-border-color: lightgrey; -fx-border-width: 1;");    
-            DailyPlan plan = AppContext.getSchedule().getDailyPlan(date);
+            Schedule schedule = AppContext.getSchedule();
             
-            double plannedCalories = plan.getNetCalories(EntryType.PLANNED);
-            double actualCalories = plan.getNetCalories(EntryType.RECORDED);
+            double plannedCalories = schedule.getNetCalories(date, EntryType.PLANNED);
+            double actualCalories = schedule.getNetCalories(date, EntryType.RECORDED);
             
 
                 
             planNetCalLabel.setText(String.format("Plan: %.0f kcal %s", plannedCalories,Utils.getIcon(plannedCalories)));
             actualNetCalLabel.setText(String.format("%.0f kcal %s", actualCalories,Utils.getIcon(actualCalories)));
+            budgetLabel.setText(Utils.formatRemaining(AppContext.getUser().getEnergyBudget().getDay(date)));
 
-            if((plannedCalories<0 && actualCalories <= plannedCalories)||(plannedCalories>0 && actualCalories >= plannedCalories)) {
+            if(GoalTracker.isGoalMet(plannedCalories, actualCalories)) {
             	actualNetCalLabel.setStyle("-fx-text-fill: green; -fx-font-weight: bold;");
             } else if(plannedCalories == 0){
                 actualNetCalLabel.setStyle("-fx-text-fill: black; -fx-font-weight: bold;");
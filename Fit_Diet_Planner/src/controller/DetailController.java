@@ -10,6 +10,7 @@ import javafx.scene.Scene;
 
 import application.AppContext;
 import application.Main;
+import application.Utils;
 import controller.LibraryController.FilterType;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -18,6 +19,7 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.layout.VBox;
 import object.DailyPlan;
+import object.EnergyBudget;
 import object.Entry;
 import object.Entry.EntryType;
 import object.Food;
@@ -71,6 +73,12 @@ public class DetailController {
 	@FXML
 	private Label actualNetLabel;
 	
+	@FXML
+	private Label budgetLabel;
+	
+	@FXML
+	private Label remainingLabel;
+	
 	@FXML
 	private VBox plannedFoodBox;
 
@@ -165,7 +173,13 @@ public class DetailController {
 		
 	}
 	
-	private void addEntryCell(Entry entry) throws IOException {
+	private void addEntryCells(List<Entry> entries, VBox box) throws IOException {
+		for(Entry entry : entries) {
+			box.getChildren().add(createEntryCell(entry));
+		}
+	}
+	
+	private Parent createEntryCell(Entry entry) throws IOException {
 		FXMLLoader loader = Main.createLoader("/EntryCell");
 		Parent pane = loader.load(); 
 		EntryCellController controller = loader.getController();
@@ -190,19 +204,7 @@ public class DetailController {
 			}
 		});
 		
-		if(entry.getType() == EntryType.PLANNED || entry.getType() == EntryType.PLANNED_COMPLETE ) {
-			if(entry instanceof FoodEntry) {
-				plannedFoodBox.getChildren().add(pane);			
-			}else {
-				plannedExeBox.getChildren().add(pane);				
-			}
-		} else if (entry.getType() == EntryType.RECORDED) {
-			if(entry instanceof FoodEntry) {
-				actualFoodBox.getChildren().add(pane);			
-			}else {
-				actualExeBox.getChildren().add(pane);			
-			}			
-		}
+		return pane;
 	}
 	
 	public void addNewEntry(EntryType entryType, FilterType itemType) throws IOException {
@@ -220,6 +222,10 @@ public class DetailController {
 	}
 	
 	public void updateUI() throws IOException {
+		//resolve again in case the month was compressed while another page was open
+		plan = AppContext.getSchedule().getDailyPlan(selectedDate);
+		foodEntryPopUpController.setPlan(plan);
+		sportEntryPopUpController.setPlan(plan);
 		clearEntries();
 		dateLabel.setText(selectedDate.toString());
 		plannedIntakeLabel.setText(String.format("%.0f kcal", plan.getIntakeCalories(EntryType.PLANNED)));
@@ -231,10 +237,16 @@ public class DetailController {
 		plannedNetLabel.setText(String.format("%.0f kcal", plan.getNetCalories(EntryType.PLANNED)));
 		actualNetLabel.setText(String.format("%.0f kcal", plan.getNetCalories(EntryType.RECORDED)));
 		
-		List<Entry> entries = plan.getEntries();
-		for(Entry entry:entries) {
-			addEntryCell(entry);
-		}	
+		EnergyBudget.Day budget = AppContext.getUser().getEnergyBudget().getDay(selectedDate);
+		budgetLabel.setText(String.format("%.0f kcal", budget.getBudget()));
+		remainingLabel.setText(Utils.formatRemaining(budget));
+		
+		addEntryCells(plan.getFoodEntries(EntryType.PLANNED), plannedFoodBox);
+		addEntryCells(plan.getFoodEntries(EntryType.PLANNED_COMPLETE), plannedFoodBox);
+		addEntryCells(plan.getExerciseEntries(EntryType.PLANNED), plannedExeBox);
+		addEntryCells(plan.getExerciseEntries(EntryType.PLANNED_COMPLETE), plannedExeBox);
+		addEntryCells(plan.getFoodEntries(EntryType.RECORDED), actualFoodBox);
+		addEntryCells(plan.getExerciseEntries(EntryType.RECORDED), actualExeBox);
 	}
 	
 	public void openEntryPopUp(Food food) throws IOException {
@@ -271,9 +283,6 @@ public class DetailController {
 	
 	public void setDate(LocalDate date) throws IOException {
 		this.selectedDate = date;
-		plan = AppContext.getSchedule().getDailyPlan(selectedDate);
-		foodEntryPopUpController.setPlan(plan);
-		sportEntryPopUpController.setPlan(plan);
 		updateUI();
 	}
 
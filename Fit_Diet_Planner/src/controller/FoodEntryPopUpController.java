@@ -126,7 +126,7 @@ public class FoodEntryPopUpController {
     @FXML
     private void updateEntry() {
         try {
-        	entry.updateFrom(tempEntry);
+        	plan.updateEntry(entry, tempEntry);
             closePopUp();
         } catch (Exception  e) {
             Main.errorMessage("Invalid Entry", "Cannot Update", e.getMessage());
@@ -1,6 +1,7 @@
 package controller;
 
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.layout.TilePane;
@@ -11,27 +12,38 @@ import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.DatePicker;
+import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
+import javafx.stage.FileChooser;
 import application.*;
 
 
-import java.util.List;
 
 
+import java.io.File;
 import java.io.IOException;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
 
 
+import object.CatalogImporter;
+import object.FileFormat;
+import object.ItemUsageIndex;
+import object.CatalogImporter.ImportResult;
 import object.Food;
 import object.Food.FoodCategory;
-import object.LibraryItem.LibraryType;
 import object.LibraryItem;
 import object.Sport;
 
 
 public class LibraryController {
 	
+	/**
+	 * Number of items added to the page each time more results are shown.
+	 */
+	private static final int PAGE_SIZE = 30;
+	
 	@FXML 
 	private NavBarController navBarController;
 	
@@ -44,6 +56,8 @@ public class LibraryController {
 	
 	private FilterType currentFilter;
 	
+	private int visibleCount = PAGE_SIZE;
+	
 	public enum FilterType{
 		FOOD,
 		SPORT
@@ -64,6 +78,15 @@ public class LibraryController {
 	@FXML
 	private TextField searchField;
 	
+	@FXML
+	private Button importBtn;
+	
+	@FXML
+	private Label importStatusLabel;
+	
+	@FXML
+	private Button showMoreBtn;
+	
 	@FXML
 	private ChoiceBox<String> foodCategoryBox;
 	
@@ -86,6 +109,11 @@ public class LibraryController {
 		setCurrentFilter(FilterType.FOOD);
 	    datePicker.setValue(LocalDate.now());
 	    
+	    //build the typo-tolerant name index before the first misspelled search
+	    Thread indexer = new Thread(AppContext.getLibrary()::prepareFuzzySearch, "fuzzy-index");
+	    indexer.setDaemon(true);
+	    indexer.start();
+	    
 		FXMLLoader foodPopUpLoader = Main.createLoader("/NewItemPopUp");
 		newItemPopUp = new Scene(foodPopUpLoader.load());
 		newItemPopUpController = foodPopUpLoader.getController();	
@@ -150,6 +178,60 @@ public class LibraryController {
 		updateUI();	
 	}
 	
+	@FXML
+	private void importCatalog() {
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle(currentFilter == FilterType.FOOD ? "Import Food Catalog" : "Import Sport Catalog");
+		chooser.getExtensionFilters().addAll(
+				new FileChooser.ExtensionFilter("CSV / JSON Lines", "*.csv", "*.jsonl", "*.ndjson"),
+				new FileChooser.ExtensionFilter("All Files", "*.*"));
+		File file = chooser.showOpenDialog(Main.getStage());
+		if(file == null)
+			return;
+		
+		FilterType importType = currentFilter;
+		FileFormat format;
+		try {
+			format = FileFormat.fromFileName(file.getName());
+		} catch (IllegalArgumentException e) {
+			Main.errorMessage("Import Failed", "Cannot import catalog", e.getMessage());
+			return;
+		}
+		importBtn.setDisable(true);
+		importStatusLabel.setText("Importing " + file.getName() + "...");
+		
+		//parse on a background thread so the page stays responsive
+		Thread worker = new Thread(() -> {
+			CatalogImporter importer = new CatalogImporter(AppContext.getLibrary());
+			try {
+				ImportResult result = importType == FilterType.FOOD
+						? importer.importFoods(file.toPath(), format, this::showImportProgress)
+						: importer.importSports(file.toPath(), format, this::showImportProgress);
+				Platform.runLater(() -> finishImport("Imported " + result, null));
+			} catch (IOException e) {
+				Platform.runLater(() -> finishImport("Import failed", e.getMessage()));
+			}
+		}, "catalog-import");
+		worker.setDaemon(true);
+		worker.start();
+	}
+	
+	private void showImportProgress(ImportResult progress) {
+		Platform.runLater(() -> importStatusLabel.setText("Importing: " + progress));
+	}
+	
+	private void finishImport(String status, String error) {
+		importBtn.setDisable(false);
+		importStatusLabel.setText(status);
+		if(error != null)
+			Main.errorMessage("Import Failed", "Cannot import catalog", error);
+		try {
+			updateUI();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
 	public void setDatePicker(LocalDate date) {
 		datePicker.setValue(date);
 	}
@@ -169,6 +251,7 @@ public class LibraryController {
 	}
 	
 	public void updateUI() throws IOException {
+	    visibleCount = PAGE_SIZE;
 	    foodFilterBtn.setStyle("");
 	    sportFilterBtn.setStyle("");
 
@@ -185,49 +268,47 @@ public class LibraryController {
 	    updateLibraryItem();	
 	}
 	
+	@FXML
+	private void showMore() throws IOException {
+		visibleCount += PAGE_SIZE;
+		updateLibraryItem();
+	}
+	
+	/**
+	 * Shows the best ranked items for the current filter, most used recently first.
+	 * One extra result is requested to know whether a further page exists.
+	 * If nothing contains the search text, the closest names are shown instead.
+	 */
 	public void updateLibraryItem() throws IOException {
 		libraryPane.getChildren().clear();
+		String searchText = searchField.getText();
+		ItemUsageIndex usageIndex = AppContext.getUsageIndex();
+		List<? extends LibraryItem> items;
 		if(currentFilter == FilterType.FOOD) {
-			List<Food> foodList = new ArrayList<>(AppContext.getLibrary().getFoodList().values());
-			for(Food food: foodList){	
-				if(food.getLibraryType()==LibraryType.ARCHIVED)
-					continue;
-				
-				String searchText = searchField.getText().toLowerCase();
-				String selectedCategory = foodCategoryBox.getValue();
-				boolean matchesSearch = searchText.isEmpty() 
-					    || (food.getName() != null && food.getName().toLowerCase().contains(searchText));
-			    boolean matchesCategory = selectedCategory.equals("All") || 
-                        food.getCategory().toString().equals(selectedCategory);
-
-				if(!matchesSearch||!matchesCategory)
-					continue;
-				
-				generateItemBlock(food);						
-			}		 
+			FoodCategory category = null;
+			for (FoodCategory c : FoodCategory.values()) {
+				if(c.toString().equals(foodCategoryBox.getValue()))
+					category = c;
+			}
+			items = AppContext.getLibrary().searchFoods(searchText, category, usageIndex::getUsageScore, visibleCount + 1);
+			if(items.isEmpty() && !searchText.isBlank())
+				items = AppContext.getLibrary().fuzzySearchFoods(searchText, category, visibleCount);
 		}
 		else{
-			List<Sport> sportList = new ArrayList<>(AppContext.getLibrary().getSportList().values());
-			for(Sport sport: sportList){	
-				if(sport.getLibraryType()==LibraryType.ARCHIVED)
-					continue;
-				
-				String searchText = searchField.getText().toLowerCase();
-				String selectedCategory = sportCategoryBox.getValue();
-				boolean matchesSearch = searchText.isEmpty() 
-					    || (sport.getName() != null && sport.getName().toLowerCase().contains(searchText));
-				boolean matchesCategory = selectedCategory.equals("All") ||
-				        (selectedCategory.equals("Rep-Based") && sport.isRepBased()) ||
-				        (selectedCategory.equals("Time-Based") && !sport.isRepBased());
-				
-				if(!matchesSearch||!matchesCategory)
-					continue;
-				
-				generateItemBlock(sport);
-					
-			}
-							
+			String selectedCategory = sportCategoryBox.getValue();
+			Boolean repBased = selectedCategory.equals("Rep-Based") ? Boolean.TRUE
+					: selectedCategory.equals("Time-Based") ? Boolean.FALSE : null;
+			items = AppContext.getLibrary().searchSports(searchText, repBased, usageIndex::getUsageScore, visibleCount + 1);
+			if(items.isEmpty() && !searchText.isBlank())
+				items = AppContext.getLibrary().fuzzySearchSports(searchText, repBased, visibleCount);
+		}
+		
+		boolean hasMore = items.size() > visibleCount;
+		for(LibraryItem item : hasMore ? items.subList(0, visibleCount) : items){	
+			generateItemBlock(item);
 		}
+		showMoreBtn.setVisible(hasMore);
+		showMoreBtn.setManaged(hasMore);
 	}
 	
 	public void generateItemBlock(LibraryItem item) throws IOException {
@@ -253,11 +334,13 @@ public class LibraryController {
 		});	
 		
 		controller.setOnRemove(()->{
+			if(!confirmArchive(item))
+				return;
 			item.archieve();
 
 			
 			try {
-				updateUI();
+				updateLibraryItem();
 			} catch (IOException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
@@ -265,4 +348,16 @@ public class LibraryController {
 		});	
 		libraryPane.getChildren().add(pane);	
 	}
+	
+	private boolean confirmArchive(LibraryItem item) {
+		ItemUsageIndex usageIndex = AppContext.getUsageIndex();
+		NavigableSet<LocalDate> days = usageIndex.getDays(item);
+		if(days.isEmpty())
+			return true;
+		
+		String content = String.format("%s is used by %d entries on %d days (%s to %s).%n"
+				+ "Existing entries keep working, but the item will no longer be listed.",
+				Utils.capitalizeSafe(item.getName()), usageIndex.getUseCount(item), days.size(), days.first(), days.last());
+		return Main.confirmationAction("Archive Item", "Archive an item that is in use?", content);
+	}
 }
@@ -21,8 +21,8 @@ public class NavBarController {
 	
     @FXML
     private void goDetails() throws IOException {
-    	Main.setPage("/DetailPage");
-     
+    	DetailController controller = (DetailController)Main.setPage("/DetailPage");
+    	controller.updateUI();
     }
 
     @FXML
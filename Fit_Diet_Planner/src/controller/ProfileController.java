@@ -1,5 +1,7 @@
 package controller;
 
+import java.time.LocalDate;
+
 import application.AppContext;
 import application.Main;
 import application.Utils;
@@ -32,6 +34,12 @@ public class ProfileController {
 
 	@FXML
 	private Label bmiScoreLabel;
+	
+	@FXML
+	private Label goalProgressLabel;
+	
+	@FXML
+	private Label forecastLabel;
 
 	@FXML
 	private StackPane buttonStack;
@@ -70,6 +78,9 @@ public class ProfileController {
 		Utils.setDoubleField(calcWeightInput);
 		Utils.setDoubleField(calcHeightInput);
 		user = AppContext.getUser();
+		//the forecaster listens first, so it is up to date when the label is refreshed
+		user.getForecaster();
+		user.getSchedule().addListener(dates -> updateForecast());
 		updateUI();
 		
 	}
@@ -138,6 +149,8 @@ public class ProfileController {
 		}catch (Exception  e) {
 			bmiScoreLabel.setText("N/A");
         }
+		goalProgressLabel.setText(Utils.formatGoalProgress(user.getSchedule().getGoalTracker(), LocalDate.now()));
+		updateForecast();
 				
 		nameInput.setEditable(isEditing);
 		ageInput.setEditable(isEditing);
@@ -147,6 +160,10 @@ public class ProfileController {
 		updatePane.setVisible(isEditing);
 	}
 	
+	private void updateForecast() {
+		forecastLabel.setText(Utils.formatForecast(user.getForecaster(), LocalDate.now()));
+	}
+	
 	
 	
 	
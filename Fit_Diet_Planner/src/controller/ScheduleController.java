@@ -1,17 +1,21 @@
 package controller;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.HPos;
 import javafx.geometry.Pos;
 import javafx.geometry.VPos;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.layout.GridPane;
 import javafx.scene.Parent;
 
+import java.io.File;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.YearMonth;
+import java.util.List;
 
 import application.AppContext;
 import application.Main;
@@ -19,8 +23,14 @@ import application.Utils;
 import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.RowConstraints;
 import javafx.scene.paint.Color;
+import javafx.stage.FileChooser;
 import object.Entry.EntryType;
+import object.FileFormat;
+import object.HistoryImporter;
+import object.HistoryImporter.ParsedHistory;
 import object.Schedule;
+import object.ScheduleExporter;
+import object.User;
 
 public class ScheduleController {
 	
@@ -56,6 +66,15 @@ public class ScheduleController {
 	@FXML
 	private Label actualNetLabel;
 	
+	@FXML
+	private Label historyStatusLabel;
+	
+	@FXML
+	private Label goalStreakLabel;
+	
+	@FXML
+	private Button importHistoryBtn;
+	
 	private YearMonth currentMonth = null; 
 
 	@FXML
@@ -190,9 +209,10 @@ public class ScheduleController {
     }
     
     public void updateUI() {
+        Schedule schedule = AppContext.getSchedule();
+        schedule.compressIdleMonths(currentMonth);
     	updateYearMonthLabel();	
     	updateCalendar();
-        Schedule schedule = AppContext.getSchedule();
 
         plannedIntakeLabel.setText(String.format("%.0f kcal", 
             schedule.getAverageIntake(currentMonth, EntryType.PLANNED)));
@@ -210,10 +230,79 @@ public class ScheduleController {
         plannedNetLabel.setText(String.format("%.0f kcal %s",planAvgNet,Utils.getIcon(planAvgNet))); 
             
         actualNetLabel.setText(String.format("%.0f kcal %s",actualAvgNet,Utils.getIcon(actualAvgNet))); 
+        
+        goalStreakLabel.setText(Utils.formatGoalProgress(schedule.getGoalTracker(), LocalDate.now()));
             
     
     }
     
+    @FXML
+    private void exportHistory() {
+    	FileChooser chooser = new FileChooser();
+    	chooser.setTitle("Export Schedule History");
+    	chooser.setInitialFileName("schedule_history.csv");
+    	chooser.getExtensionFilters().addAll(
+    			new FileChooser.ExtensionFilter("CSV", "*.csv"),
+    			new FileChooser.ExtensionFilter("JSON Lines", "*.jsonl"));
+    	File file = chooser.showSaveDialog(Main.getStage());
+    	if(file == null)
+    		return;
+    	
+    	try {
+    		new ScheduleExporter(AppContext.getSchedule()).export(file.toPath(), FileFormat.fromFileName(file.getName()), null, null);
+    	} catch (IOException | IllegalArgumentException e) {
+    		Main.errorMessage("Export Failed", "Cannot export schedule history", e.getMessage());
+    	}
+    }
+    
+    @FXML
+    private void importHistory() {
+    	FileChooser chooser = new FileChooser();
+    	chooser.setTitle("Import Schedule History");
+    	chooser.getExtensionFilters().addAll(
+    			new FileChooser.ExtensionFilter("CSV or JSON Lines", "*.csv", "*.jsonl", "*.ndjson"));
+    	File file = chooser.showOpenDialog(Main.getStage());
+    	if(file == null)
+    		return;
+    	
+    	FileFormat format;
+    	try {
+    		format = FileFormat.fromFileName(file.getName());
+    	} catch (IllegalArgumentException e) {
+    		Main.errorMessage("Import Failed", "Cannot import schedule history", e.getMessage());
+    		return;
+    	}
+    	
+    	HistoryImporter importer = new HistoryImporter(AppContext.getSchedule(), AppContext.getLibrary());
+    	User user = AppContext.getUser();
+    	importHistoryBtn.setDisable(true);
+    	historyStatusLabel.setText("Importing " + file.getName() + "...");
+    	
+    	//parse in the background, insert on the FX thread which owns the schedule
+    	Thread worker = new Thread(() -> {
+    		try {
+    			ParsedHistory parsed = importer.parse(file.toPath(), format, user::getWeightOn,
+    					progress -> Platform.runLater(() -> historyStatusLabel.setText("Importing: " + progress)));
+    			Platform.runLater(() -> {
+    				importer.insert(parsed);
+    				finishImport("Imported " + parsed.getResult(), parsed.getResult().getErrors());
+    			});
+    		} catch (IOException e) {
+    			Platform.runLater(() -> finishImport("Import failed", List.of(e.getMessage())));
+    		}
+    	}, "history-import");
+    	worker.setDaemon(true);
+    	worker.start();
+    }
+    
+    private void finishImport(String status, List<String> errors) {
+    	importHistoryBtn.setDisable(false);
+    	historyStatusLabel.setText(status);
+    	if(!errors.isEmpty())
+    		Main.errorMessage("Import Problems", "Some rows could not be imported", String.join("\n", errors));
+    	updateUI();
+    }
+    
     public void home() throws IOException {
     	Main.setPage("/Main");
     }
@@ -181,7 +181,7 @@ public class SportEntryPopUpController {
     @FXML
     private void updateEntry() {
         try {
-        	entry.updateFrom(tempEntry);
+        	plan.updateEntry(entry, tempEntry);
             closePopUp();
         } catch (Exception  e) {
             Main.errorMessage("Invalid Entry", "Cannot Update", e.getMessage());
@@ -270,10 +270,11 @@ public class SportEntryPopUpController {
     
 	public void setEntry(Sport sport, EntryType prevSelectedType) {
 		ExerciseEntry newEntry;
+		double weight = AppContext.getUser().getWeightOn(plan.getDate());
 		if(sport.isRepBased()) {
-			newEntry = new RepBasedExerciseEntry(prevSelectedType,"" ,sport,AppContext.getUser().getWeight(),1,1,sport.getSecondsPerRep());						
+			newEntry = new RepBasedExerciseEntry(prevSelectedType,"" ,sport,weight,1,1,sport.getSecondsPerRep());						
 		}else {
-			newEntry = new TimeBasedExerciseEntry(prevSelectedType,"",sport,AppContext.getUser().getWeight(),5);		
+			newEntry = new TimeBasedExerciseEntry(prevSelectedType,"",sport,weight,5);		
 		}
     	   	
         this.tempEntry = newEntry;
@@ -0,0 +1,99 @@
+package object;
+
+/**
+ * How closely the recorded entries of a day or period followed its plan.
+ * <p>
+ * Planned entries count whether or not they were completed. Completed entries are linked
+ * to the entries recorded from them (see {@link Entry#getSourceEntryId()}), so the deviation
+ * of completed entries compares the recorded versions, possibly edited afterwards, with the
+ * planned ones, while entries recorded without a plan are counted as unplanned.
+ * All calories are net calories (intake - burn).
+ * </p>
+ */
+public class Adherence {
+	private final int planned;
+	private final int completed;
+	private final int unplanned;
+	private final double plannedCalories;
+	private final double actualCalories;
+	private final double completedPlannedCalories;
+	private final double completedActualCalories;
+
+    /**
+     * Creates an adherence summary.
+     *
+     * @param planned                  the number of planned entries, completed or not
+     * @param completed                the number of completed planned entries
+     * @param unplanned                the number of recorded entries without a source entry
+     * @param plannedCalories          the net calories of all planned entries
+     * @param actualCalories           the net calories of all recorded entries
+     * @param completedPlannedCalories the net calories of the completed planned entries
+     * @param completedActualCalories  the net calories of the entries recorded from them
+     */
+	Adherence(int planned, int completed, int unplanned, double plannedCalories, double actualCalories,
+			double completedPlannedCalories, double completedActualCalories) {
+		this.planned = planned;
+		this.completed = completed;
+		this.unplanned = unplanned;
+		this.plannedCalories = plannedCalories;
+		this.actualCalories = actualCalories;
+		this.completedPlannedCalories = completedPlannedCalories;
+		this.completedActualCalories = completedActualCalories;
+	}
+
+	public int getPlannedCount() {
+		return planned;
+	}
+
+	public int getCompletedCount() {
+		return completed;
+	}
+
+    /**
+     * Returns the number of planned entries that were not completed.
+     *
+     * @return the number of skipped entries
+     */
+	public int getSkippedCount() {
+		return planned - completed;
+	}
+
+	public int getUnplannedCount() {
+		return unplanned;
+	}
+
+    /**
+     * Returns the share of planned entries that were completed.
+     *
+     * @return a ratio between 0 and 1, or 0 if nothing was planned
+     */
+	public double getCompletionRatio() {
+		return planned == 0 ? 0 : (double) completed / planned;
+	}
+
+	public double getPlannedCalories() {
+		return plannedCalories;
+	}
+
+	public double getActualCalories() {
+		return actualCalories;
+	}
+
+    /**
+     * Returns how far the recorded net calories are from the planned ones.
+     *
+     * @return actual minus planned net calories
+     */
+	public double getCalorieDeviation() {
+		return actualCalories - plannedCalories;
+	}
+
+    /**
+     * Returns how far the entries recorded from completed plans are from the plans themselves.
+     *
+     * @return recorded minus planned net calories of the completed entries
+     */
+	public double getCompletionDeviation() {
+		return completedActualCalories - completedPlannedCalories;
+	}
+}
@@ -0,0 +1,322 @@
+package object;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import object.Entry.EntryType;
+
+/**
+ * Simulates how the coming days of a {@link User}'s plan are likely to turn out, given how they
+ * followed their plans before.
+ * <p>
+ * The behaviour of the last {@value #HISTORY_DAYS} days is summarized first: the share of planned
+ * entries that were completed, the ratio between the calories of every entry recorded from a plan
+ * and the planned entry (see {@link Entry#getSourceEntryId()}), and the net calories of unplanned
+ * entries on each logged day, kept apart for days with and without a plan. Every trial then
+ * replays the plan of the coming days: each planned entry is completed with the historical share
+ * and scaled by a ratio drawn from the history, and each day adds the unplanned calories of a
+ * random historical day of the same kind. The projected weight follows the
+ * {@link WeightForecaster} if it has data, or else the {@link EnergyBudget} at
+ * {@value WeightForecaster#KCAL_PER_KG} kcal per kg.
+ * </p>
+ * <p>
+ * The history and the plan are read once into primitive arrays on the calling thread, which must
+ * own the schedule. The trials then run on the common fork-join pool, each task with its own
+ * generator split from the seed, so a seed always gives the same result.
+ * </p>
+ */
+public class AdherenceSimulator {
+
+	/**
+	 * Number of past days the behaviour is learnt from.
+	 */
+	public static final int HISTORY_DAYS = 90;
+
+	/**
+	 * Number of trials used when none is given.
+	 */
+	public static final int DEFAULT_TRIALS = 20000;
+
+	private static final int TRIALS_PER_TASK = 1024;
+
+	private final User user;
+
+	/**
+	 * The projected net calories and weights of all trials.
+	 */
+	public static class Result {
+		private final int days;
+		private final double completionShare;
+		private final double[] net;
+		private final double[] weight;
+		private final long elapsedNanos;
+
+		private Result(int days, double completionShare, double[] net, double[] weight, long elapsedNanos) {
+			this.days = days;
+			this.completionShare = completionShare;
+			this.net = net;
+			this.weight = weight;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		public int getDays() {
+			return days;
+		}
+
+		public int getTrials() {
+			return net.length;
+		}
+
+		/**
+		 * Returns the share of planned entries completed in the history, as used by the trials.
+		 *
+		 * @return a ratio between 0 and 1
+		 */
+		public double getCompletionShare() {
+			return completionShare;
+		}
+
+		/**
+		 * Returns the total net calories of the simulated days below which the given share of trials fall.
+		 *
+		 * @param percentile the percentile, from 0 to 100
+		 * @return the net calories at the percentile, by nearest rank
+		 * @throws IllegalArgumentException if the percentile is outside 0 to 100
+		 */
+		public double getNetPercentile(double percentile) {
+			return percentile(net, percentile);
+		}
+
+		/**
+		 * Returns the weight at the end of the simulated days below which the given share of trials fall.
+		 *
+		 * @param percentile the percentile, from 0 to 100
+		 * @return the weight in kg at the percentile, by nearest rank
+		 * @throws IllegalArgumentException if the percentile is outside 0 to 100
+		 */
+		public double getWeightPercentile(double percentile) {
+			return percentile(weight, percentile);
+		}
+
+		public double getMeanNet() {
+			return mean(net);
+		}
+
+		public double getMeanWeight() {
+			return mean(weight);
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		private static double percentile(double[] sorted, double percentile) {
+			if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("Percentile must be between 0 and 100");
+			int rank = (int) Math.max(1, Math.ceil(percentile / 100 * sorted.length));
+			return sorted[rank - 1];
+		}
+
+		private static double mean(double[] values) {
+			double sum = 0;
+			for (double value : values)
+				sum += value;
+			return sum / values.length;
+		}
+	}
+
+	//everything a trial reads, as primitive arrays shared by all tasks
+	private static class Model {
+		private double completionShare;
+		private double[] ratios;
+		private double[] unplannedOnPlanDays;
+		private double[] unplannedOnFreeDays;
+		private int[] dayStart;
+		private double[] plannedCalories;
+		private double weightAtStart;
+		private double baseChange;
+		private double kgPerKcal;
+
+		private double run(SplittableRandom random) {
+			double total = 0;
+			for (int day = 0; day < dayStart.length - 1; day++) {
+				int first = dayStart[day];
+				int last = dayStart[day + 1];
+				for (int i = first; i < last; i++) {
+					if (random.nextDouble() < completionShare)
+						total += plannedCalories[i] * ratios[random.nextInt(ratios.length)];
+				}
+				double[] unplanned = first < last ? unplannedOnPlanDays : unplannedOnFreeDays;
+				total += unplanned[random.nextInt(unplanned.length)];
+			}
+			return total;
+		}
+	}
+
+	private static class Trials extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Model model;
+		private final SplittableRandom random;
+		private final int from;
+		private final int to;
+		private final double[] net;
+		private final double[] weight;
+
+		private Trials(Model model, SplittableRandom random, int from, int to, double[] net, double[] weight) {
+			this.model = model;
+			this.random = random;
+			this.from = from;
+			this.to = to;
+			this.net = net;
+			this.weight = weight;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= TRIALS_PER_TASK) {
+				for (int i = from; i < to; i++) {
+					net[i] = model.run(random);
+					weight[i] = model.weightAtStart + model.baseChange + model.kgPerKcal * net[i];
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			SplittableRandom left = random.split();
+			invokeAll(new Trials(model, left, from, mid, net, weight), new Trials(model, random, mid, to, net, weight));
+		}
+	}
+
+	/**
+	 * Creates a simulator for the plans and history of a user.
+	 *
+	 * @param user the user to simulate
+	 */
+	public AdherenceSimulator(User user) {
+		this.user = user;
+	}
+
+	/**
+	 * Runs the given number of trials of the days after today.
+	 *
+	 * @param today  the last day of the history, the trials start the day after
+	 * @param days   the number of days to simulate
+	 * @param trials the number of trials
+	 * @param seed   the seed of the random generators
+	 * @return the distribution of the trials
+	 * @throws IllegalArgumentException if days or trials are not positive
+	 */
+	public Result simulate(LocalDate today, int days, int trials, long seed) {
+		if (days <= 0) throw new IllegalArgumentException("Days must be at least one");
+		if (trials <= 0) throw new IllegalArgumentException("Trials must be at least one");
+		long start = System.nanoTime();
+		Model model = buildModel(today, days);
+		double[] net = new double[trials];
+		double[] weight = new double[trials];
+		ForkJoinPool.commonPool().invoke(new Trials(model, new SplittableRandom(seed), 0, trials, net, weight));
+		Arrays.parallelSort(net);
+		Arrays.parallelSort(weight);
+		return new Result(days, model.completionShare, net, weight, System.nanoTime() - start);
+	}
+
+	private Model buildModel(LocalDate today, int days) {
+		Schedule schedule = user.getSchedule();
+		Model model = new Model();
+
+		int planned = 0;
+		int completed = 0;
+		List<Double> ratios = new ArrayList<>();
+		List<Double> onPlanDays = new ArrayList<>();
+		List<Double> onFreeDays = new ArrayList<>();
+		for (DailyPlan plan : getPlans(schedule, today.minusDays(HISTORY_DAYS), today.minusDays(1)).values()) {
+			Map<String, Entry> completedEntries = new HashMap<>();
+			boolean hasPlan = false;
+			for (Entry entry : plan.getEntries()) {
+				if (entry.getType() != EntryType.RECORDED) {
+					hasPlan = true;
+					planned++;
+				}
+				if (entry.getType() == EntryType.PLANNED_COMPLETE) {
+					completed++;
+					completedEntries.put(entry.getId(), entry);
+				}
+			}
+			double unplanned = 0;
+			for (Entry entry : plan.getEntries()) {
+				if (entry.getType() != EntryType.RECORDED)
+					continue;
+				Entry source = entry.getSourceEntryId() == null ? null : completedEntries.get(entry.getSourceEntryId());
+				if (source == null)
+					unplanned += entry.calculateCalories();
+				else if (source.calculateCalories() != 0)
+					ratios.add(entry.calculateCalories() / source.calculateCalories());
+			}
+			(hasPlan ? onPlanDays : onFreeDays).add(unplanned);
+		}
+		model.completionShare = planned == 0 ? 1 : (double) completed / planned;
+		model.ratios = ratios.isEmpty() ? new double[] {1} : toArray(ratios);
+		model.unplannedOnPlanDays = toArray(onPlanDays.isEmpty() ? onFreeDays : onPlanDays);
+		model.unplannedOnFreeDays = toArray(onFreeDays.isEmpty() ? onPlanDays : onFreeDays);
+		if (model.unplannedOnPlanDays.length == 0) {
+			model.unplannedOnPlanDays = new double[] {0};
+			model.unplannedOnFreeDays = new double[] {0};
+		}
+
+		Map<LocalDate, DailyPlan> future = getPlans(schedule, today.plusDays(1), today.plusDays(days));
+		List<Double> calories = new ArrayList<>();
+		model.dayStart = new int[days + 1];
+		for (int day = 0; day < days; day++) {
+			model.dayStart[day] = calories.size();
+			DailyPlan plan = future.get(today.plusDays(day + 1));
+			if (plan == null)
+				continue;
+			for (Entry entry : plan.getEntries()) {
+				if (entry.getType() == EntryType.PLANNED)
+					calories.add(entry.calculateCalories());
+			}
+		}
+		model.dayStart[days] = calories.size();
+		model.plannedCalories = toArray(calories);
+
+		model.weightAtStart = user.getWeightOn(today);
+		WeightForecaster forecaster = user.getForecaster();
+		if (forecaster.isReady()) {
+			model.baseChange = forecaster.getDailyChange() * days;
+			model.kgPerKcal = forecaster.getKgPerKcal();
+		} else {
+			EnergyBudget budget = user.getEnergyBudget();
+			double expenditure = 0;
+			for (int day = 1; day <= days; day++)
+				expenditure += budget.getDay(today.plusDays(day)).getTdee();
+			model.baseChange = -expenditure / WeightForecaster.KCAL_PER_KG;
+			model.kgPerKcal = 1 / WeightForecaster.KCAL_PER_KG;
+		}
+		return model;
+	}
+
+	//the plans with entries between two dates, read without changing how months are stored
+	private static Map<LocalDate, DailyPlan> getPlans(Schedule schedule, LocalDate from, LocalDate to) {
+		Map<LocalDate, DailyPlan> plans = new HashMap<>();
+		for (YearMonth month = YearMonth.from(from); !month.isAfter(YearMonth.from(to)); month = month.plusMonths(1)) {
+			for (DailyPlan plan : schedule.getPlansInMonth(month)) {
+				if (!plan.getDate().isBefore(from) && !plan.getDate().isAfter(to))
+					plans.put(plan.getDate(), plan);
+			}
+		}
+		return plans;
+	}
+
+	private static double[] toArray(List<Double> values) {
+		double[] array = new double[values.size()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = values.get(i);
+		return array;
+	}
+}
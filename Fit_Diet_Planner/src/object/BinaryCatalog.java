@@ -0,0 +1,327 @@
+package object;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import object.Food.FoodCategory;
+import object.LibraryItem.LibraryType;
+
+/**
+ * Read-only view of the default {@link Food} and {@link Sport} catalog stored in a compact binary file.
+ * <p>
+ * The file is produced ahead of time by {@link CatalogCompiler} and contains fixed-size records
+ * sorted by id, a name index sorted by lower-case name, and a pool of UTF-8 strings.
+ * When the file is available on disk it is memory-mapped, so opening a catalog costs the same
+ * regardless of how many items it holds. Items are only turned into objects when
+ * {@link #readFood(int)} or {@link #readSport(int)} is called.
+ * </p>
+ */
+public class BinaryCatalog {
+	static final int MAGIC = 0x46445043; // "FDPC"
+	static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 9 * Integer.BYTES;
+	// idOffset, idLength, nameOffset, nameLength, flag, value1, value2
+	private static final int RECORD_SIZE = 4 * Integer.BYTES + 1 + 2 * Double.BYTES;
+
+	private ByteBuffer buffer;
+	private Section foods;
+	private Section sports;
+
+    /**
+     * One kind of item (foods or sports) inside the catalog.
+     * Records are addressed by their position in id order.
+     */
+	public class Section {
+		private int count;
+		private int recordsOffset;
+		private int nameIndexOffset;
+
+		private Section(int count, int recordsOffset, int nameIndexOffset) {
+			this.count = count;
+			this.recordsOffset = recordsOffset;
+			this.nameIndexOffset = nameIndexOffset;
+		}
+
+		public int size() {
+			return count;
+		}
+
+		public String getId(int record) {
+			int base = recordsOffset + record * RECORD_SIZE;
+			return readString(buffer.getInt(base), buffer.getInt(base + 4));
+		}
+
+		public String getName(int record) {
+			int base = recordsOffset + record * RECORD_SIZE;
+			return readString(buffer.getInt(base + 8), buffer.getInt(base + 12));
+		}
+
+	    /**
+	     * Returns the record at the given position of the name index.
+	     *
+	     * @param rank the position in lower-case name order
+	     * @return the record number
+	     */
+		public int getRecordByNameRank(int rank) {
+			return buffer.getInt(nameIndexOffset + rank * Integer.BYTES);
+		}
+
+	    /**
+	     * Finds a record by id using binary search.
+	     *
+	     * @param id the id to look up
+	     * @return the record number, or -1 if no record has this id
+	     */
+		public int findById(String id) {
+			int low = 0;
+			int high = count - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int cmp = getId(mid).compareTo(id);
+				if (cmp < 0) low = mid + 1;
+				else if (cmp > 0) high = mid - 1;
+				else return mid;
+			}
+			return -1;
+		}
+
+	    /**
+	     * Finds a record by name, ignoring case, using binary search on the name index.
+	     *
+	     * @param name the name to look up
+	     * @return the record number, or -1 if no record has this name
+	     */
+		public int findByName(String name) {
+			String key = name.toLowerCase();
+			int low = 0;
+			int high = count - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int record = getRecordByNameRank(mid);
+				int cmp = getName(record).toLowerCase().compareTo(key);
+				if (cmp < 0) low = mid + 1;
+				else if (cmp > 0) high = mid - 1;
+				else return record;
+			}
+			return -1;
+		}
+
+		private int getFlag(int record) {
+			return buffer.get(recordsOffset + record * RECORD_SIZE + 16);
+		}
+
+		private double getValue1(int record) {
+			return buffer.getDouble(recordsOffset + record * RECORD_SIZE + 17);
+		}
+
+		private double getValue2(int record) {
+			return buffer.getDouble(recordsOffset + record * RECORD_SIZE + 25);
+		}
+	}
+
+	private BinaryCatalog(ByteBuffer buffer) {
+		this.buffer = buffer;
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+			throw new IllegalArgumentException("Not a catalog file or unsupported version");
+		foods = new Section(buffer.getInt(8), buffer.getInt(16), buffer.getInt(24));
+		sports = new Section(buffer.getInt(12), buffer.getInt(20), buffer.getInt(28));
+	}
+
+    /**
+     * Returns a catalog without any items.
+     *
+     * @return an empty catalog
+     */
+	public static BinaryCatalog empty() {
+		return new BinaryCatalog(encode(new ArrayList<>(), new ArrayList<>()));
+	}
+
+    /**
+     * Opens a catalog resource. Files on disk are memory-mapped,
+     * other resources (e.g. inside a jar) are read into memory.
+     *
+     * @param resource the location of the catalog file
+     * @return the opened catalog
+     * @throws IOException if the resource cannot be read
+     */
+	public static BinaryCatalog load(URL resource) throws IOException {
+		if ("file".equals(resource.getProtocol())) {
+			try {
+				return load(Path.of(resource.toURI()));
+			} catch (URISyntaxException e) {
+				throw new IOException(e);
+			}
+		}
+		try (InputStream in = resource.openStream()) {
+			return new BinaryCatalog(ByteBuffer.wrap(in.readAllBytes()));
+		}
+	}
+
+    /**
+     * Memory-maps a catalog file.
+     *
+     * @param file the catalog file
+     * @return the opened catalog
+     * @throws IOException if the file cannot be read
+     */
+	public static BinaryCatalog load(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new BinaryCatalog(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+    /**
+     * Writes the given items as a catalog file.
+     *
+     * @param foodItems  the foods to store
+     * @param sportItems the sports to store
+     * @param file       the file to write
+     * @throws IOException if the file cannot be written
+     */
+	public static void write(List<Food> foodItems, List<Sport> sportItems, Path file) throws IOException {
+		ByteBuffer data = encode(foodItems, sportItems);
+		Files.write(file, data.array());
+	}
+
+	public Section foods() {
+		return foods;
+	}
+
+	public Section sports() {
+		return sports;
+	}
+
+    /**
+     * Materializes the food stored in the given record.
+     *
+     * @param record the record number in the food section
+     * @return a new {@code Food} object
+     */
+	public Food readFood(int record) {
+		return new Food(foods.getId(record), foods.getName(record), LibraryType.DEFAULT,
+				FoodCategory.values()[foods.getFlag(record)], foods.getValue1(record), foods.getValue2(record));
+	}
+
+    /**
+     * Materializes the sport stored in the given record.
+     *
+     * @param record the record number in the sport section
+     * @return a new {@code Sport} object
+     */
+	public Sport readSport(int record) {
+		if (sports.getFlag(record) != 0)
+			return new Sport(sports.getId(record), sports.getName(record), LibraryType.DEFAULT, sports.getValue1(record), sports.getValue2(record));
+		return new Sport(sports.getId(record), sports.getName(record), LibraryType.DEFAULT, sports.getValue1(record));
+	}
+
+    /**
+     * Checks whether the given food category matches a food record without materializing it.
+     *
+     * @param record   the record number in the food section
+     * @param category the category to compare with
+     * @return true if the record belongs to the category
+     */
+	public boolean isFoodCategory(int record, FoodCategory category) {
+		return foods.getFlag(record) == category.ordinal();
+	}
+
+    /**
+     * Checks whether a sport record is rep-based without materializing it.
+     *
+     * @param record the record number in the sport section
+     * @return true if the sport is rep-based
+     */
+	public boolean isRepBased(int record) {
+		return sports.getFlag(record) != 0;
+	}
+
+	private String readString(int offset, int length) {
+		byte[] utf8 = new byte[length];
+		buffer.get(offset, utf8);
+		return new String(utf8, StandardCharsets.UTF_8);
+	}
+
+	private static ByteBuffer encode(List<Food> foodItems, List<Sport> sportItems) {
+		List<Food> sortedFoods = new ArrayList<>(foodItems);
+		List<Sport> sortedSports = new ArrayList<>(sportItems);
+		sortedFoods.sort(Comparator.comparing(LibraryItem::getId));
+		sortedSports.sort(Comparator.comparing(LibraryItem::getId));
+
+		List<byte[]> strings = new ArrayList<>();
+		int stringBytes = 0;
+		for (LibraryItem item : sortedFoods) {
+			stringBytes += addString(strings, item.getId()) + addString(strings, item.getName());
+		}
+		for (LibraryItem item : sortedSports) {
+			stringBytes += addString(strings, item.getId()) + addString(strings, item.getName());
+		}
+
+		int foodRecords = HEADER_SIZE;
+		int sportRecords = foodRecords + sortedFoods.size() * RECORD_SIZE;
+		int foodNames = sportRecords + sortedSports.size() * RECORD_SIZE;
+		int sportNames = foodNames + sortedFoods.size() * Integer.BYTES;
+		int stringPool = sportNames + sortedSports.size() * Integer.BYTES;
+		ByteBuffer out = ByteBuffer.allocate(stringPool + stringBytes);
+
+		out.putInt(MAGIC).putInt(VERSION)
+			.putInt(sortedFoods.size()).putInt(sortedSports.size())
+			.putInt(foodRecords).putInt(sportRecords)
+			.putInt(foodNames).putInt(sportNames)
+			.putInt(stringPool);
+
+		int stringOffset = stringPool;
+		int stringIndex = 0;
+		for (Food food : sortedFoods) {
+			stringOffset = putStrings(out, strings, stringIndex, stringOffset);
+			stringIndex += 2;
+			out.put((byte) food.getCategory().ordinal()).putDouble(food.getCaloriePerG()).putDouble(food.getGramPerServing());
+		}
+		for (Sport sport : sortedSports) {
+			stringOffset = putStrings(out, strings, stringIndex, stringOffset);
+			stringIndex += 2;
+			out.put((byte) (sport.isRepBased() ? 1 : 0)).putDouble(sport.getMet()).putDouble(sport.getSecondsPerRep());
+		}
+		putNameIndex(out, sortedFoods);
+		putNameIndex(out, sortedSports);
+		for (byte[] value : strings) {
+			out.put(value);
+		}
+		return out.rewind();
+	}
+
+	private static int addString(List<byte[]> strings, String value) {
+		byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+		strings.add(utf8);
+		return utf8.length;
+	}
+
+	private static int putStrings(ByteBuffer out, List<byte[]> strings, int index, int offset) {
+		int idLength = strings.get(index).length;
+		int nameLength = strings.get(index + 1).length;
+		out.putInt(offset).putInt(idLength).putInt(offset + idLength).putInt(nameLength);
+		return offset + idLength + nameLength;
+	}
+
+	private static void putNameIndex(ByteBuffer out, List<? extends LibraryItem> items) {
+		List<Integer> order = new ArrayList<>();
+		for (int i = 0; i < items.size(); i++) {
+			order.add(i);
+		}
+		order.sort(Comparator.comparing(i -> items.get(i).getName().toLowerCase()));
+		for (int record : order) {
+			out.putInt(record);
+		}
+	}
+}
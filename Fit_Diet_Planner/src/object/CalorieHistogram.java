@@ -0,0 +1,134 @@
+package object;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import object.Entry.EntryType;
+
+/**
+ * A histogram of daily calorie values with a fixed bucket width, used for percentiles.
+ * <p>
+ * Values are counted in buckets of {@value #BUCKET_KCAL} kcal, so percentiles are exact to half a
+ * bucket whatever the number of days. Only non-empty buckets are stored. Two histograms are merged
+ * by adding their bucket counts, and a value can be removed again, so the {@link RollupTable} keeps
+ * one histogram per month that follows every change and longer ranges merge a few monthly ones
+ * instead of sorting the values of each day.
+ * </p>
+ */
+public class CalorieHistogram {
+
+	/**
+	 * Width of a bucket in kcal.
+	 */
+	public static final int BUCKET_KCAL = 10;
+
+    /**
+     * The daily value that is counted.
+     */
+	public enum Metric {
+		INTAKE,
+		BURN,
+		NET;
+
+	    /**
+	     * Reads this value from the totals of a day.
+	     *
+	     * @param day  the totals of the day
+	     * @param type the entry type
+	     * @return the calories of the day
+	     */
+		public double of(RollupTable.Cell day, EntryType type) {
+			switch (this) {
+				case INTAKE:
+					return day.getIntake(type);
+				case BURN:
+					return day.getBurn(type);
+				default:
+					return day.getNet(type);
+			}
+		}
+	}
+
+	private final TreeMap<Integer, Integer> buckets;
+	private int count;
+
+    /**
+     * Creates an empty histogram.
+     */
+	public CalorieHistogram() {
+		buckets = new TreeMap<>();
+	}
+
+	void add(double value) {
+		buckets.merge(bucketOf(value), 1, Integer::sum);
+		count++;
+	}
+
+	void remove(double value) {
+		buckets.computeIfPresent(bucketOf(value), (bucket, n) -> n == 1 ? null : n - 1);
+		count--;
+	}
+
+	void merge(CalorieHistogram other) {
+		for (Map.Entry<Integer, Integer> bucket : other.buckets.entrySet())
+			buckets.merge(bucket.getKey(), bucket.getValue(), Integer::sum);
+		count += other.count;
+	}
+
+    /**
+     * Returns the number of days counted.
+     *
+     * @return the number of values
+     */
+	public int getCount() {
+		return count;
+	}
+
+    /**
+     * Returns the value below which the given share of the days fall, by nearest rank.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the middle of the bucket holding the percentile, or 0 if the histogram is empty
+     * @throws IllegalArgumentException if the percentile is outside 0 to 100
+     */
+	public double getPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("Percentile must be between 0 and 100");
+		if (count == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (Map.Entry<Integer, Integer> bucket : buckets.entrySet()) {
+			seen += bucket.getValue();
+			if (seen >= rank)
+				return (bucket.getKey() + 0.5) * BUCKET_KCAL;
+		}
+		return (buckets.lastKey() + 0.5) * BUCKET_KCAL;
+	}
+
+	public double getMedian() {
+		return getPercentile(50);
+	}
+
+    /**
+     * Returns the day counts grouped into buckets of the given width, for drawing a histogram.
+     *
+     * @param widthKcal the bucket width in kcal, a multiple of {@value #BUCKET_KCAL}
+     * @return the number of days by the lower bound of each non-empty bucket, in ascending order
+     * @throws IllegalArgumentException if the width is not a positive multiple of {@value #BUCKET_KCAL}
+     */
+	public NavigableMap<Integer, Integer> getBuckets(int widthKcal) {
+		if (widthKcal <= 0 || widthKcal % BUCKET_KCAL != 0)
+			throw new IllegalArgumentException("Bucket width must be a positive multiple of " + BUCKET_KCAL);
+		int factor = widthKcal / BUCKET_KCAL;
+		TreeMap<Integer, Integer> grouped = new TreeMap<>();
+		for (Map.Entry<Integer, Integer> bucket : buckets.entrySet())
+			grouped.merge(Math.floorDiv(bucket.getKey(), factor) * widthKcal, bucket.getValue(), Integer::sum);
+		return Collections.unmodifiableNavigableMap(grouped);
+	}
+
+	private static int bucketOf(double value) {
+		return (int) Math.floor(value / BUCKET_KCAL);
+	}
+}
@@ -0,0 +1,49 @@
+package object;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import object.CatalogImporter.ImportResult;
+
+/**
+ * Build-time tool that compiles the default catalog sources into the binary
+ * file read by {@link BinaryCatalog}.
+ * <p>
+ * Usage: {@code CatalogCompiler <foods.csv|jsonl> <sports.csv|jsonl> <output.bin>}.
+ * The sources use the same columns as {@link CatalogImporter}; rows that fail
+ * validation abort the build.
+ * </p>
+ */
+public class CatalogCompiler {
+
+	//prevent init
+	private CatalogCompiler() {}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 3) {
+			System.err.println("Usage: CatalogCompiler <foods> <sports> <output.bin>");
+			System.exit(2);
+		}
+		Path foods = Path.of(args[0]);
+		Path sports = Path.of(args[1]);
+		Path output = Path.of(args[2]);
+
+		Library library = new Library(BinaryCatalog.empty());
+		CatalogImporter importer = new CatalogImporter(library);
+		check(importer.importFoods(foods, FileFormat.fromFileName(foods.toString()), null), foods);
+		check(importer.importSports(sports, FileFormat.fromFileName(sports.toString()), null), sports);
+
+		BinaryCatalog.write(new ArrayList<>(library.getFoodList().values()),
+				new ArrayList<>(library.getSportList().values()), output);
+		System.out.println("Wrote " + library.getFoodList().size() + " foods and "
+				+ library.getSportList().size() + " sports to " + output);
+	}
+
+	private static void check(ImportResult result, Path source) {
+		if (result.getRejected() > 0 || result.getDuplicates() > 0) {
+			result.getErrors().forEach(System.err::println);
+			throw new IllegalArgumentException(source + ": " + result);
+		}
+	}
+}
@@ -0,0 +1,485 @@
+package object;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import object.Food.FoodCategory;
+import object.LibraryItem.LibraryType;
+
+/**
+ * Streams large food or sport catalogs from CSV or JSON Lines files into a {@link Library}.
+ * <p>
+ * The file is read in chunks of {@value #DEFAULT_CHUNK_SIZE} rows, so only one chunk is held
+ * in memory at a time. Each chunk is parsed and validated in parallel, rows whose id is already
+ * in the library are skipped, and the remaining items are added in one batch.
+ * A progress callback receives a snapshot after every chunk.
+ * </p>
+ * <p>
+ * CSV files must start with a header row. Recognised columns are
+ * {@code id, name, category, caloriePerG, gramPerServing} for foods and
+ * {@code id, name, met, secondsPerRep} for sports; a sport with a {@code secondsPerRep}
+ * value is rep-based. Quoted CSV fields may contain commas, quotes and line breaks.
+ * JSON Lines files contain one flat object per line using the same keys.
+ * Rows without an id receive a generated one.
+ * </p>
+ */
+public class CatalogImporter {
+	public static final int DEFAULT_CHUNK_SIZE = 5000;
+
+	private static final int MAX_REPORTED_ERRORS = 100;
+
+	private Library library;
+	private int chunkSize;
+
+    /**
+     * Progress and outcome of an import.
+     * Instances passed to the progress callback are snapshots and are not modified afterwards.
+     */
+	public static class ImportResult {
+		private long rows;
+		private long imported;
+		private long duplicates;
+		private long rejected;
+		private long elapsedNanos;
+		private List<String> errors = new ArrayList<>();
+
+		ImportResult copy() {
+			ImportResult copy = new ImportResult();
+			copy.rows = rows;
+			copy.imported = imported;
+			copy.duplicates = duplicates;
+			copy.rejected = rejected;
+			copy.elapsedNanos = elapsedNanos;
+			copy.errors = new ArrayList<>(errors);
+			return copy;
+		}
+
+		void countRow() {
+			rows++;
+		}
+
+		void countImported(long count) {
+			imported += count;
+		}
+
+		void countDuplicate() {
+			duplicates++;
+		}
+
+		void countRejected(String error) {
+			rejected++;
+			if (errors.size() < MAX_REPORTED_ERRORS)
+				errors.add(error);
+		}
+
+		void setElapsedNanos(long elapsedNanos) {
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		public long getRows() {
+			return rows;
+		}
+
+		public long getImported() {
+			return imported;
+		}
+
+		public long getDuplicates() {
+			return duplicates;
+		}
+
+		public long getRejected() {
+			return rejected;
+		}
+
+	    /**
+	     * Returns the first error messages of rejected rows, prefixed with their line numbers.
+	     *
+	     * @return the reported error messages
+	     */
+		public List<String> getErrors() {
+			return errors;
+		}
+
+	    /**
+	     * Returns the number of rows processed per second so far.
+	     *
+	     * @return the processing rate in rows per second
+	     */
+		public double getRowsPerSecond() {
+			return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d rows: %d imported, %d duplicates, %d rejected (%.0f rows/s)",
+					rows, imported, duplicates, rejected, getRowsPerSecond());
+		}
+	}
+
+    /**
+     * Creates an importer for the given library with the default chunk size.
+     *
+     * @param library the library to import into
+     */
+	public CatalogImporter(Library library) {
+		this(library, DEFAULT_CHUNK_SIZE);
+	}
+
+    /**
+     * Creates an importer for the given library.
+     *
+     * @param library   the library to import into
+     * @param chunkSize the number of rows parsed together
+     * @throws IllegalArgumentException if the chunk size is not positive
+     */
+	public CatalogImporter(Library library, int chunkSize) {
+		if (chunkSize <= 0) throw new IllegalArgumentException("Chunk size must be greater than 0");
+		this.library = library;
+		this.chunkSize = chunkSize;
+	}
+
+    /**
+     * Imports foods from the given file.
+     *
+     * @param file       the file to read
+     * @param format     the file format
+     * @param onProgress called after every chunk with a progress snapshot, may be null
+     * @return the final import result
+     * @throws IOException if the file cannot be read
+     */
+	public ImportResult importFoods(Path file, FileFormat format, Consumer<ImportResult> onProgress) throws IOException {
+		return importItems(file, format, onProgress, CatalogImporter::parseFood,
+				food -> library.getFood(food.getId()) != null, library::addNewFoods);
+	}
+
+    /**
+     * Imports sports from the given file.
+     *
+     * @param file       the file to read
+     * @param format     the file format
+     * @param onProgress called after every chunk with a progress snapshot, may be null
+     * @return the final import result
+     * @throws IOException if the file cannot be read
+     */
+	public ImportResult importSports(Path file, FileFormat format, Consumer<ImportResult> onProgress) throws IOException {
+		return importItems(file, format, onProgress, CatalogImporter::parseSport,
+				sport -> library.getSport(sport.getId()) != null, library::addNewSports);
+	}
+
+	private <T extends LibraryItem> ImportResult importItems(Path file, FileFormat format, Consumer<ImportResult> onProgress,
+			Function<Map<String, String>, T> parser, Predicate<T> exists, Consumer<List<T>> addAll) throws IOException {
+		long start = System.nanoTime();
+		ImportResult result = new ImportResult();
+
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String[] header = null;
+			if (format == FileFormat.CSV) {
+				String headerLine = reader.readLine();
+				if (headerLine == null)
+					return result;
+				header = splitCsv(stripBom(headerLine)).toArray(new String[0]);
+			}
+
+			long[] lineNumber = {header == null ? 0 : 1};
+			List<String> records = new ArrayList<>(chunkSize);
+			List<Long> lineNumbers = new ArrayList<>(chunkSize);
+			String record;
+			while (true) {
+				long firstLine = lineNumber[0] + 1;
+				record = readRecord(reader, format, lineNumber);
+				if (record != null && !record.isBlank()) {
+					records.add(record);
+					lineNumbers.add(firstLine);
+				}
+
+				if (records.size() == chunkSize || (record == null && !records.isEmpty())) {
+					importChunk(records, lineNumbers, header, format, parser, exists, addAll, result);
+					records.clear();
+					lineNumbers.clear();
+					result.setElapsedNanos(System.nanoTime() - start);
+					if (onProgress != null)
+						onProgress.accept(result.copy());
+				}
+				if (record == null)
+					break;
+			}
+		}
+		result.setElapsedNanos(System.nanoTime() - start);
+		return result;
+	}
+
+	private <T extends LibraryItem> void importChunk(List<String> records, List<Long> lineNumbers, String[] header, FileFormat format,
+			Function<Map<String, String>, T> parser, Predicate<T> exists, Consumer<List<T>> addAll, ImportResult result) {
+		List<Object> parsed = IntStream.range(0, records.size()).parallel().mapToObj(i -> {
+			try {
+				Map<String, String> row = format == FileFormat.CSV
+						? toRow(header, splitCsv(records.get(i)))
+						: parseJsonObject(records.get(i));
+				T item = parser.apply(row);
+				item.validate();
+				return (Object) item;
+			} catch (RuntimeException e) {
+				return "Line " + lineNumbers.get(i) + ": " + e.getMessage();
+			}
+		}).collect(Collectors.toList());
+
+		//dedupe sequentially against both the library and earlier rows of the chunk
+		Map<String, T> accepted = new HashMap<>();
+		List<T> batch = new ArrayList<>();
+		for (Object value : parsed) {
+			result.countRow();
+			if (value instanceof String) {
+				result.countRejected((String) value);
+				continue;
+			}
+			@SuppressWarnings("unchecked")
+			T item = (T) value;
+			if (accepted.containsKey(item.getId()) || exists.test(item)) {
+				result.countDuplicate();
+				continue;
+			}
+			accepted.put(item.getId(), item);
+			batch.add(item);
+		}
+		addAll.accept(batch);
+		result.countImported(batch.size());
+	}
+
+	private static Food parseFood(Map<String, String> row) {
+		String id = row.get("id");
+		String name = row.get("name");
+		FoodCategory category = parseCategory(row.get("category"));
+		double caloriePerG = parseNumber(row, "caloriePerG");
+		double gramPerServing = parseNumber(row, "gramPerServing");
+		if (id == null || id.isEmpty())
+			return new Food(name, LibraryType.DEFAULT, category, caloriePerG, gramPerServing);
+		return new Food(id, name, LibraryType.DEFAULT, category, caloriePerG, gramPerServing);
+	}
+
+	private static Sport parseSport(Map<String, String> row) {
+		String id = row.get("id");
+		String name = row.get("name");
+		double met = parseNumber(row, "met");
+		String secondsPerRep = row.get("secondsPerRep");
+		boolean hasId = id != null && !id.isEmpty();
+		if (secondsPerRep == null || secondsPerRep.isEmpty()) {
+			return hasId ? new Sport(id, name, LibraryType.DEFAULT, met) : new Sport(name, LibraryType.DEFAULT, met);
+		}
+		double seconds = parseNumber(row, "secondsPerRep");
+		return hasId ? new Sport(id, name, LibraryType.DEFAULT, met, seconds) : new Sport(name, LibraryType.DEFAULT, met, seconds);
+	}
+
+	private static FoodCategory parseCategory(String value) {
+		if (value == null || value.isEmpty())
+			return FoodCategory.OTHER;
+		for (FoodCategory category : FoodCategory.values()) {
+			if (category.name().equalsIgnoreCase(value) || category.toString().equalsIgnoreCase(value))
+				return category;
+		}
+		throw new IllegalArgumentException("Unknown food category: " + value);
+	}
+
+	private static double parseNumber(Map<String, String> row, String column) {
+		String value = row.get(column);
+		if (value == null || value.isEmpty())
+			throw new IllegalArgumentException("Missing value for " + column);
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid number for " + column + ": " + value);
+		}
+	}
+
+	static Map<String, String> toRow(String[] header, List<String> values) {
+		Map<String, String> row = new HashMap<>();
+		for (int i = 0; i < header.length && i < values.size(); i++) {
+			row.put(header[i].trim(), values.get(i).trim());
+		}
+		return row;
+	}
+
+    /**
+     * Reads the next record of a file. A JSON Lines record is one line. A CSV record joins
+     * physical lines while a quoted field is still open, so fields containing line breaks are kept intact.
+     *
+     * @param reader     the reader, positioned at the start of a record
+     * @param format     the file format
+     * @param lineNumber the number of lines read so far, advanced by the lines of the record
+     * @return the record, or {@code null} at the end of the file
+     * @throws IOException if the file cannot be read
+     */
+	static String readRecord(BufferedReader reader, FileFormat format, long[] lineNumber) throws IOException {
+		String line = readLine(reader, lineNumber);
+		if (format != FileFormat.CSV || line == null || !hasOpenQuote(line, false))
+			return line;
+
+		StringBuilder record = new StringBuilder(line);
+		boolean open = true;
+		while (open) {
+			String next = readLine(reader, lineNumber);
+			if (next == null)
+				break;
+			record.append('\n').append(next);
+			open = hasOpenQuote(next, true);
+		}
+		return record.toString();
+	}
+
+	private static String readLine(BufferedReader reader, long[] lineNumber) throws IOException {
+		String line = reader.readLine();
+		if (line != null)
+			lineNumber[0]++;
+		return line;
+	}
+
+	private static boolean hasOpenQuote(String line, boolean open) {
+		for (int i = 0; i < line.length(); i++) {
+			if (line.charAt(i) == '"')
+				open = !open;
+		}
+		return open;
+	}
+
+	static String stripBom(String line) {
+		return line.startsWith("\uFEFF") ? line.substring(1) : line;
+	}
+
+    /**
+     * Splits a CSV line into fields, honouring double-quoted fields and escaped quotes.
+     *
+     * @param line the line to split
+     * @return the list of field values
+     */
+	static List<String> splitCsv(String line) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+    /**
+     * Parses a flat JSON object whose values are strings, numbers, booleans or null.
+     * Values are returned in their textual form; null values are omitted.
+     *
+     * @param json the JSON text of a single object
+     * @return the keys and values of the object
+     * @throws IllegalArgumentException if the text is not a flat JSON object
+     */
+	static Map<String, String> parseJsonObject(String json) {
+		Map<String, String> values = new HashMap<>();
+		int[] pos = {skipSpaces(json, 0)};
+		expect(json, pos, '{');
+		if (peek(json, pos) == '}')
+			return values;
+		while (true) {
+			String key = readJsonString(json, pos);
+			expect(json, pos, ':');
+			pos[0] = skipSpaces(json, pos[0]);
+			String value;
+			if (peek(json, pos) == '"') {
+				value = readJsonString(json, pos);
+			} else {
+				int start = pos[0];
+				while (pos[0] < json.length() && ",} \t".indexOf(json.charAt(pos[0])) < 0)
+					pos[0]++;
+				value = json.substring(start, pos[0]);
+				if (value.isEmpty() || value.startsWith("{") || value.startsWith("["))
+					throw new IllegalArgumentException("Unsupported value for " + key);
+				if (value.equals("null"))
+					value = null;
+			}
+			if (value != null)
+				values.put(key, value);
+
+			char next = peek(json, pos);
+			pos[0]++;
+			if (next == '}')
+				return values;
+			if (next != ',')
+				throw new IllegalArgumentException("Malformed JSON object");
+		}
+	}
+
+	private static String readJsonString(String json, int[] pos) {
+		expect(json, pos, '"');
+		StringBuilder value = new StringBuilder();
+		while (pos[0] < json.length()) {
+			char c = json.charAt(pos[0]++);
+			if (c == '"')
+				return value.toString();
+			if (c == '\\' && pos[0] < json.length()) {
+				char escaped = json.charAt(pos[0]++);
+				switch (escaped) {
+					case 'n': value.append('\n'); break;
+					case 't': value.append('\t'); break;
+					case 'r': value.append('\r'); break;
+					case 'b': value.append('\b'); break;
+					case 'f': value.append('\f'); break;
+					case 'u':
+						if (pos[0] + 4 > json.length())
+							throw new IllegalArgumentException("Malformed JSON escape");
+						value.append((char) Integer.parseInt(json.substring(pos[0], pos[0] + 4), 16));
+						pos[0] += 4;
+						break;
+					default: value.append(escaped); break;
+				}
+			} else {
+				value.append(c);
+			}
+		}
+		throw new IllegalArgumentException("Unterminated JSON string");
+	}
+
+	private static void expect(String json, int[] pos, char expected) {
+		if (peek(json, pos) != expected)
+			throw new IllegalArgumentException("Expected '" + expected + "' in JSON object");
+		pos[0]++;
+	}
+
+	private static char peek(String json, int[] pos) {
+		pos[0] = skipSpaces(json, pos[0]);
+		if (pos[0] >= json.length())
+			throw new IllegalArgumentException("Unexpected end of JSON object");
+		return json.charAt(pos[0]);
+	}
+
+	private static int skipSpaces(String json, int pos) {
+		while (pos < json.length() && Character.isWhitespace(json.charAt(pos)))
+			pos++;
+		return pos;
+	}
+}
@@ -0,0 +1,281 @@
+package object;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import object.Entry.EntryType;
+
+/**
+ * Represents a month of {@link DailyPlan}s packed into a compact byte block.
+ * <p>
+ * Days are written in order with delta-encoded day offsets, {@link Food} and {@link Sport}
+ * references are replaced by an index into a per-block dictionary, and integer values
+ * (quantities, sets, reps) are stored as varints. Entry ids, and the source ids of entries
+ * completed from a plan, are packed into 16 bytes when they are UUIDs. Calorie totals are kept by
+ * the schedule's {@link RollupTable}, so a block is only inflated when its plans are read.
+ * </p>
+ */
+public class CompressedMonth {
+	private static final int FOOD_ENTRY = 0;
+	private static final int TIME_ENTRY = 1;
+	private static final int REP_ENTRY = 2;
+	private static final int UUID_FLAG = 0x10;
+	private static final int SOURCE_UUID_FLAG = 0x20;
+	private static final int SOURCE_STRING_FLAG = 0x40;
+
+	private YearMonth month;
+	private byte[] data;
+	private int dayMask;
+	private List<LibraryItem> dictionary;
+
+    /**
+     * Creates a compressed block from the given plans.
+     * All plans must belong to the given month.
+     *
+     * @param month the month the plans belong to
+     * @param plans the daily plans to compress
+     * @throws IllegalArgumentException if a plan is outside the given month
+     */
+	public CompressedMonth(YearMonth month, Collection<DailyPlan> plans) {
+		this.month = month;
+		this.dictionary = new ArrayList<>();
+		List<DailyPlan> sorted = new ArrayList<>();
+		for (DailyPlan plan : plans) {
+			if (!YearMonth.from(plan.getDate()).equals(month))
+				throw new IllegalArgumentException("Plan " + plan.getDate() + " is not in " + month);
+			if (!plan.getEntries().isEmpty()) {
+				sorted.add(plan);
+				dayMask |= 1 << plan.getDate().getDayOfMonth();
+			}
+		}
+		sorted.sort(Comparator.comparing(DailyPlan::getDate));
+
+		data = encode(sorted);
+	}
+
+    /**
+     * Rebuilds the daily plans stored in this block.
+     * Entries keep their original identifiers and library item references.
+     *
+     * @return the inflated daily plans, ordered by date
+     */
+	public List<DailyPlan> inflate() {
+		ByteBuffer in = ByteBuffer.wrap(data);
+		int dayCount = readVarInt(in);
+		List<DailyPlan> plans = new ArrayList<>(dayCount);
+		int day = 0;
+		for (int i = 0; i < dayCount; i++) {
+			day += readVarInt(in);
+			DailyPlan plan = new DailyPlan(month.atDay(day));
+			int entryCount = readVarInt(in);
+			for (int j = 0; j < entryCount; j++) {
+				plan.addEntry(readEntry(in));
+			}
+			plans.add(plan);
+		}
+		return plans;
+	}
+
+	public YearMonth getMonth() {
+		return month;
+	}
+
+    /**
+     * Checks whether the block holds entries for the given day.
+     *
+     * @param day the day of the month
+     * @return true if the day has entries
+     */
+	public boolean hasDay(int day) {
+		return (dayMask & 1 << day) != 0;
+	}
+
+    /**
+     * Returns the size of the packed entry data in bytes.
+     *
+     * @return the number of bytes used by the block
+     */
+	public int getSize() {
+		return data.length;
+	}
+
+	private byte[] encode(List<DailyPlan> plans) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		Map<LibraryItem, Integer> dictionaryIndex = new HashMap<>();
+		try {
+			writeVarInt(out, plans.size());
+			int prevDay = 0;
+			for (DailyPlan plan : plans) {
+				int day = plan.getDate().getDayOfMonth();
+				writeVarInt(out, day - prevDay);
+				prevDay = day;
+				writeVarInt(out, plan.getEntries().size());
+				for (Entry entry : plan.getEntries()) {
+					writeEntry(out, entry, dictionaryIndex);
+				}
+			}
+			out.flush();
+		} catch (IOException e) {
+			throw new AssertionError(e); // in-memory stream
+		}
+		return bytes.toByteArray();
+	}
+
+	private void writeEntry(DataOutputStream out, Entry entry, Map<LibraryItem, Integer> dictionaryIndex) throws IOException {
+		int kind;
+		LibraryItem item;
+		if (entry instanceof FoodEntry) {
+			kind = FOOD_ENTRY;
+			item = ((FoodEntry) entry).getFood();
+		} else if (entry instanceof RepBasedExerciseEntry) {
+			kind = REP_ENTRY;
+			item = ((ExerciseEntry) entry).getSport();
+		} else if (entry instanceof TimeBasedExerciseEntry) {
+			kind = TIME_ENTRY;
+			item = ((ExerciseEntry) entry).getSport();
+		} else {
+			throw new IllegalArgumentException("Unsupported entry " + entry.getClass().getSimpleName());
+		}
+
+		UUID uuid = parseUuid(entry.getId());
+		String source = entry.getSourceEntryId();
+		UUID sourceUuid = parseUuid(source);
+		int sourceFlag = source == null ? 0 : sourceUuid != null ? SOURCE_UUID_FLAG : SOURCE_STRING_FLAG;
+		out.writeByte(kind | entry.getType().ordinal() << 2 | (uuid != null ? UUID_FLAG : 0) | sourceFlag);
+		if (uuid != null) {
+			out.writeLong(uuid.getMostSignificantBits());
+			out.writeLong(uuid.getLeastSignificantBits());
+		} else {
+			writeString(out, entry.getId());
+		}
+		if (sourceUuid != null) {
+			out.writeLong(sourceUuid.getMostSignificantBits());
+			out.writeLong(sourceUuid.getLeastSignificantBits());
+		} else if (source != null) {
+			writeString(out, source);
+		}
+		writeString(out, entry.getNote());
+
+		Integer index = dictionaryIndex.get(item);
+		if (index == null) {
+			index = dictionary.size();
+			dictionary.add(item);
+			dictionaryIndex.put(item, index);
+		}
+		writeVarInt(out, index);
+
+		switch (kind) {
+			case FOOD_ENTRY:
+				FoodEntry food = (FoodEntry) entry;
+				writeVarInt(out, food.getQuantity());
+				out.writeDouble(food.getGram());
+				break;
+			case TIME_ENTRY:
+				TimeBasedExerciseEntry time = (TimeBasedExerciseEntry) entry;
+				out.writeDouble(time.getWeight());
+				out.writeDouble(time.getDuration());
+				break;
+			case REP_ENTRY:
+				RepBasedExerciseEntry rep = (RepBasedExerciseEntry) entry;
+				out.writeDouble(rep.getWeight());
+				writeVarInt(out, rep.getSets());
+				writeVarInt(out, rep.getReps());
+				out.writeDouble(rep.getSecPerRep());
+				break;
+			default:
+				break;
+		}
+	}
+
+	private Entry readEntry(ByteBuffer in) {
+		int header = in.get();
+		int kind = header & 0x3;
+		EntryType type = EntryType.values()[(header >> 2) & 0x3];
+		String id = (header & UUID_FLAG) != 0
+				? new UUID(in.getLong(), in.getLong()).toString()
+				: readString(in);
+		String source = null;
+		if ((header & SOURCE_UUID_FLAG) != 0)
+			source = new UUID(in.getLong(), in.getLong()).toString();
+		else if ((header & SOURCE_STRING_FLAG) != 0)
+			source = readString(in);
+		String note = readString(in);
+		LibraryItem item = dictionary.get(readVarInt(in));
+
+		Entry entry;
+		switch (kind) {
+			case FOOD_ENTRY:
+				entry = new FoodEntry(type, note, (Food) item, readVarInt(in), in.getDouble());
+				break;
+			case TIME_ENTRY:
+				entry = new TimeBasedExerciseEntry(type, note, (Sport) item, in.getDouble(), in.getDouble());
+				break;
+			default:
+				entry = new RepBasedExerciseEntry(type, note, (Sport) item, in.getDouble(), readVarInt(in), readVarInt(in), in.getDouble());
+				break;
+		}
+		entry.setId(id);
+		entry.setSourceEntryId(source);
+		return entry;
+	}
+
+	private static UUID parseUuid(String id) {
+		try {
+			UUID uuid = UUID.fromString(id);
+			return uuid.toString().equals(id) ? uuid : null;
+		} catch (IllegalArgumentException | NullPointerException e) {
+			return null;
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			writeVarInt(out, 0);
+			return;
+		}
+		byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, utf8.length + 1); // 0 is reserved for null
+		out.write(utf8);
+	}
+
+	private static String readString(ByteBuffer in) {
+		int length = readVarInt(in) - 1;
+		if (length < 0)
+			return null;
+		byte[] utf8 = new byte[length];
+		in.get(utf8);
+		return new String(utf8, StandardCharsets.UTF_8);
+	}
+
+	private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarInt(ByteBuffer in) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.get();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+}
@@ -6,6 +6,12 @@ import java.util.List;
 import object.Entry.EntryType;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * Represents a daily plan that contains a list of {@link Entry} items for a specific date.
@@ -13,10 +19,84 @@ import java.util.ArrayList;
  * A plan can store food and sport entries, track intake and burn calories,
  * and manage planned or completed entries.
  * </p>
+ * <p>
+ * Entries are stored in buckets partitioned by {@link EntryType} and by food or exercise,
+ * so listing or aggregating one category only touches the entries of that category.
+ * Type changes made through the plan ({@link #completeEntry}, {@link #updateEntry}) move
+ * the entry to its new bucket.
+ * </p>
+ * <p>
+ * Duplicated plans share their planned entries: a plan may reference an immutable {@link Template}
+ * that is also used by other days, next to its own entries. Shared entries are copied
+ * into the plan only on the first edit that touches them ({@link #updateEntry},
+ * {@link #deleteEntry}, {@link #completeEntry}), so entries must be changed through
+ * the plan rather than directly.
+ * </p>
+ * <p>
+ * Entry ids are therefore unique within a day, not across days: days that share a template
+ * also share the ids of its entries. The copies made on the first edit get fresh ids, so a day
+ * that changed no longer shares ids with the others. Entries are looked up by date and id.
+ * </p>
+ * <p>
+ * Every change is reported to the owning {@link Schedule}. The bulk operations
+ * ({@link #addEntries}, {@link #removeEntries}, {@link #replacePlannedEntries}) validate
+ * all entries first, change the list in a single pass and report the change once.
+ * </p>
+ * <p>
+ * Reads and changes are synchronized on the plan, so different plans can be
+ * changed in parallel, as done by the multi-date duplication in {@link Schedule}.
+ * </p>
  */
 public class DailyPlan {	
+	private static final int FOOD = 0;
+	private static final int EXERCISE = 1;
+	private static final int TYPE_COUNT = EntryType.values().length;
+	
 	private LocalDate date;
-	private List<Entry> entries;
+	private List<Entry>[] buckets;
+	private Template template;
+	private Consumer<DailyPlan> listener;
+	private Adherence adherence;
+	private int adherenceDefinitions;
+	
+    /**
+     * An immutable list of planned entries shared by several plans,
+     * split once into food and exercise entries.
+     */
+	static class Template {
+		static final Template EMPTY = new Template(List.of());
+		
+		private final List<Entry> entries;
+		private final List<Entry> food;
+		private final List<Entry> exercise;
+		
+	    /**
+	     * Creates a template from validated planned entries.
+	     *
+	     * @param entries the entries to share
+	     * @throws IllegalArgumentException if an entry is not {@link EntryType#PLANNED}
+	     */
+		Template(List<Entry> entries) {
+			List<Entry> foodEntries = new ArrayList<>();
+			List<Entry> exerciseEntries = new ArrayList<>();
+			for(Entry entry : entries) {
+				if(entry.getType() != EntryType.PLANNED)
+					throw new IllegalArgumentException("Shared entries must be planned");
+				(entry instanceof FoodEntry ? foodEntries : exerciseEntries).add(entry);
+			}
+			this.entries = List.copyOf(entries);
+			this.food = List.copyOf(foodEntries);
+			this.exercise = List.copyOf(exerciseEntries);
+		}
+		
+		List<Entry> getEntries() {
+			return entries;
+		}
+		
+		boolean isEmpty() {
+			return entries.isEmpty();
+		}
+	}
 
     /**
      * Creates a daily plan for the given date with no entries.
@@ -25,11 +105,70 @@ public class DailyPlan {
      */
 	public DailyPlan(LocalDate date) {		
 		this.date = date;	
-		entries = new ArrayList<>();
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		List<Entry>[] empty = new List[2 * TYPE_COUNT]; // buckets are created on first use
+		buckets = empty;
+		template = Template.EMPTY;
 	}
 	
-	public List<Entry> getEntries() {
-		return entries;
+    /**
+     * Returns all entries of the plan, grouped by type and then by food or exercise.
+     * Shared template entries follow the plan's own entries of the same group.
+     *
+     * @return an unmodifiable list of entries
+     */
+	public synchronized List<Entry> getEntries() {
+		if(isOwnEmpty())
+			return template.getEntries();
+		List<Entry> all = new ArrayList<>(size());
+		for(EntryType type : EntryType.values()) {
+			all.addAll(getFoodEntries(type));
+			all.addAll(getExerciseEntries(type));
+		}
+		return Collections.unmodifiableList(all);
+	}
+	
+    /**
+     * Returns the food entries of exactly the given type.
+     *
+     * @param type the entry type
+     * @return an unmodifiable list of food entries
+     */
+	public synchronized List<Entry> getFoodEntries(EntryType type) {
+		return bucketView(FOOD, type, template.food);
+	}
+	
+    /**
+     * Returns the exercise entries of exactly the given type.
+     *
+     * @param type the entry type
+     * @return an unmodifiable list of exercise entries
+     */
+	public synchronized List<Entry> getExerciseEntries(EntryType type) {
+		return bucketView(EXERCISE, type, template.exercise);
+	}
+	
+    /**
+     * Returns the number of entries in the plan.
+     *
+     * @return the entry count
+     */
+	public synchronized int size() {
+		int count = template.getEntries().size();
+		for(List<Entry> bucket : buckets) {
+			if(bucket != null)
+				count += bucket.size();
+		}
+		return count;
+	}
+	
+    /**
+     * Checks whether the plan still references a shared template.
+     *
+     * @return true if some entries are shared with other plans
+     */
+	public synchronized boolean isShared() {
+		return !template.isEmpty();
 	}
 
 	public LocalDate getDate() {
@@ -42,9 +181,136 @@ public class DailyPlan {
      * @param entry the entry to add
      * @throws IllegalArgumentException if validation fails
      */
-	public void addEntry(Entry entry) {
+	public synchronized void addEntry(Entry entry) {
 		entry.validate();
-		entries.add(entry);
+		put(entry);
+		changed();
+	}
+	
+    /**
+     * Adds several entries to the plan.
+     * All entries are validated before any of them is added.
+     *
+     * @param newEntries the entries to add
+     * @throws IllegalArgumentException if validation of any entry fails
+     */
+	public synchronized void addEntries(Collection<? extends Entry> newEntries) {
+		for(Entry entry : newEntries)
+			entry.validate();
+		if(newEntries.isEmpty())
+			return;
+		for(Entry entry : newEntries)
+			put(entry);
+		changed();
+	}
+	
+    /**
+     * Removes all entries whose type is one of the given types.
+     * Whole buckets are dropped, so no other entries are visited.
+     *
+     * @param types the entry types to remove
+     * @return the number of removed entries
+     */
+	public synchronized int removeEntries(Set<EntryType> types) {
+		int removed = 0;
+		if(types.contains(EntryType.PLANNED)) {
+			removed += template.getEntries().size();
+			template = Template.EMPTY;
+		}
+		for(EntryType type : types) {
+			for(int kind = FOOD; kind <= EXERCISE; kind++) {
+				List<Entry> bucket = buckets[index(kind, type)];
+				if(bucket != null) {
+					removed += bucket.size();
+					buckets[index(kind, type)] = null;
+				}
+			}
+		}
+		if(removed > 0)
+			changed();
+		return removed;
+	}
+	
+    /**
+     * Replaces all planned and planned-complete entries with the given entries.
+     * The new entries are validated before anything is removed.
+     *
+     * @param newEntries the entries to add in place of the planned entries
+     * @throws IllegalArgumentException if validation of any entry fails
+     */
+	public synchronized void replacePlannedEntries(Collection<? extends Entry> newEntries) {
+		for(Entry entry : newEntries)
+			entry.validate();
+		Consumer<DailyPlan> current = listener;
+		listener = null;
+		clearPlannedEntries();
+		for(Entry entry : newEntries)
+			put(entry);
+		listener = current;
+		changed();
+	}
+	
+    /**
+     * Updates an entry of the plan with the values of another entry.
+     * A shared entry is copied into the plan before it is changed,
+     * and the entry moves to another bucket if its type changes.
+     *
+     * @param entry    the entry to update
+     * @param newEntry the entry providing the new values
+     * @throws IllegalArgumentException if the new entry is invalid or of a different kind
+     */
+	public synchronized void updateEntry(Entry entry, Entry newEntry) {
+		entry = own(entry);
+		EntryType before = entry.getType();
+		entry.updateFrom(newEntry);
+		if(entry.getType() != before)
+			move(entry, before);
+		changed();
+	}
+	
+    /**
+     * Appends entries that have already been validated.
+     * Used by bulk imports, which validate entries while parsing.
+     *
+     * @param validated the entries to append
+     */
+	synchronized void appendEntries(List<Entry> validated) {
+		for(Entry entry : validated)
+			put(entry);
+		changed();
+	}
+	
+    /**
+     * Attaches a template shared with other plans.
+     * If the plan already references a template, the entries are cloned instead.
+     *
+     * @param shared the shared entries
+     */
+	synchronized void shareEntries(Template shared) {
+		if(shared.isEmpty())
+			return;
+		if(template.isEmpty()) {
+			template = shared;
+		} else {
+			for(Entry entry : shared.getEntries())
+				put(entry.clone());
+		}
+		changed();
+	}
+	
+    /**
+     * Sets the callback notified after every change of the plan.
+     *
+     * @param listener the callback, or {@code null} for none
+     */
+	void setListener(Consumer<DailyPlan> listener) {
+		this.listener = listener;
+	}
+	
+	private void changed() {
+		adherence = null;
+		if(listener != null)
+			listener.accept(this);
 	}
 	
     /**
@@ -52,62 +318,51 @@ public class DailyPlan {
      *
      * @param entry the entry to remove
      */
-	public void deleteEntry(Entry entry) {
-		entries.remove(entry);
+	public synchronized void deleteEntry(Entry entry) {
+		if(remove(own(entry), entry.getType()))
+			changed();
 	} 
 	
     /**
      * Marks an entry as {@link EntryType#PLANNED_COMPLETE} 
-     * and adds a new {@link EntryType#RECORDED} entry cloned from it.
+     * and adds a new {@link EntryType#RECORDED} entry cloned from it,
+     * linked back to the planned entry by {@link Entry#getSourceEntryId()}.
      *
      * @param entry the entry to complete
      */
-	public void completeEntry(Entry entry) {
+	public synchronized void completeEntry(Entry entry) {
+		entry = own(entry);
+		EntryType before = entry.getType();
 		entry.setType(EntryType.PLANNED_COMPLETE);
+		move(entry, before);
 		
 		Entry newEntry = entry.clone();
 		newEntry.setType(EntryType.RECORDED);
-		addEntry(newEntry);	
+		newEntry.setSourceEntryId(entry.getId());
+		put(newEntry);
+		changed();
 	}
 	
     /**
      * Returns the total intake calories for the given entry type.
+     * Only food entries are visited, as exercise entries never add intake.
      *
      * @param type the entry type filter
      * @return total intake calories
      */
-	public double getIntakeCalories(EntryType type) {
-	    double total = 0.0;
-	    for (Entry entry : entries){
-	    	EntryType t = entry.getType();
-	        if ((type == EntryType.PLANNED && (t == EntryType.PLANNED || t == EntryType.PLANNED_COMPLETE))|| t == type){
-	        	double cal = entry.calculateCalories();
-	            if (cal > 0){
-	                total += cal;
-	            }
-	        }
-	    }
-	    return total;
+	public synchronized double getIntakeCalories(EntryType type) {
+	    return sum(FOOD, type, template.food, cal -> cal > 0 ? cal : 0);
 	}
 	
     /**
      * Returns the total burn calories for the given entry type.
+     * Only exercise entries are visited, as food entries never burn calories.
      *
      * @param type the entry type filter
      * @return total burn calories
      */
-	public double getBurnCalories(EntryType type) {
-	    double total = 0.0;
-	    for(Entry entry : entries){
-	    	EntryType t = entry.getType();
-	        if((type == EntryType.PLANNED && (t == EntryType.PLANNED || t == EntryType.PLANNED_COMPLETE))|| t == type){
-	        	double cal = entry.calculateCalories();
-	            if (cal < 0){
-	                total -= cal;
-	            }
-	        }
-	    }
-	    return total;
+	public synchronized double getBurnCalories(EntryType type) {
+	    return sum(EXERCISE, type, template.exercise, cal -> cal < 0 ? -cal : 0);
 	}
 
 
@@ -117,16 +372,25 @@ public class DailyPlan {
      * @param type the entry type filter
      * @return net calories
      */
-	public double getNetCalories(EntryType type) {
-	    double total = 0.0;
-	    for(Entry entry : entries){
-	    	EntryType t = entry.getType();
-	        if((type == EntryType.PLANNED && (t == EntryType.PLANNED || t == EntryType.PLANNED_COMPLETE))|| t == type){
-	        	double cal = entry.calculateCalories();
-	        	total+=cal;
-	        }
-	    }
-	    return total;		
+	public synchronized double getNetCalories(EntryType type) {
+	    return getIntakeCalories(type) - getBurnCalories(type);
+	}
+	
+    /**
+     * Returns how closely the recorded entries of the day followed its plan.
+     * The summary is computed once and kept until the plan or a food or sport definition changes.
+     *
+     * @return the adherence summary of the plan
+     */
+	public synchronized Adherence getAdherence() {
+		int definitions = LibraryItem.getDefinitionChanges();
+		if(adherence == null || adherenceDefinitions != definitions) {
+			RollupTable.Cell day = new RollupTable.Cell();
+			day.add(this);
+			adherence = day.getAdherence();
+			adherenceDefinitions = definitions;
+		}
+		return adherence;
 	}
 	
     /**
@@ -134,26 +398,28 @@ public class DailyPlan {
      *
      * @return list of duplicated entries
      */
-	public List<Entry> duplicateEntries() {
+	public synchronized List<Entry> duplicateEntries() {
 	    List<Entry> duplicates = new ArrayList<>();
-	    for(Entry entry : entries) {    	
-	    	if(entry.getType()==EntryType.PLANNED || entry.getType()==EntryType.PLANNED_COMPLETE) {
-	    		Entry newEntry = entry.clone();
-	    		newEntry.setType(EntryType.PLANNED);
-	    		duplicates.add(newEntry);
-	    	}        
+	    for(EntryType type : List.of(EntryType.PLANNED, EntryType.PLANNED_COMPLETE)) {
+	    	for(Entry entry : getFoodEntries(type))
+	    		duplicates.add(duplicate(entry));
+	    	for(Entry entry : getExerciseEntries(type))
+	    		duplicates.add(duplicate(entry));
 	    }
 	    return duplicates;
 	}
 	
+	private static Entry duplicate(Entry entry) {
+		Entry newEntry = entry.clone();
+		newEntry.setType(EntryType.PLANNED);
+		return newEntry;
+	}
+	
     /**
      * Removes all planned or planned-complete entries from the plan.
      */
-	public void clearPlannedEntries() {
-		for(Entry entry: entries) {
-			if(entry.getType() == EntryType.PLANNED || entry.getType() == EntryType.PLANNED_COMPLETE) 
-				deleteEntry(entry);		
-		}
+	public synchronized void clearPlannedEntries() {
+		removeEntries(EnumSet.of(EntryType.PLANNED, EntryType.PLANNED_COMPLETE));
 	}
 	
     /**
@@ -161,12 +427,121 @@ public class DailyPlan {
      *
      * @return true if planned entries exist, false otherwise
      */
-	public boolean hasPlannedEntries() {
-	    for(Entry entry : entries) {
-	        if(entry.getType() == EntryType.PLANNED || entry.getType() == EntryType.PLANNED_COMPLETE) {
-	            return true;
-	        }
-	    }
-	    return false;
+	public synchronized boolean hasPlannedEntries() {
+		if(!template.isEmpty())
+			return true;
+		for(int kind = FOOD; kind <= EXERCISE; kind++) {
+			if(!isEmpty(buckets[index(kind, EntryType.PLANNED)]) || !isEmpty(buckets[index(kind, EntryType.PLANNED_COMPLETE)]))
+				return true;
+		}
+		return false;
+	}
+	
+	private static int index(int kind, EntryType type) {
+		return kind * TYPE_COUNT + type.ordinal();
+	}
+	
+	private static int kindOf(Entry entry) {
+		return entry instanceof FoodEntry ? FOOD : EXERCISE;
+	}
+	
+	private static boolean isEmpty(List<Entry> bucket) {
+		return bucket == null || bucket.isEmpty();
+	}
+	
+	private boolean isOwnEmpty() {
+		for(List<Entry> bucket : buckets) {
+			if(!isEmpty(bucket))
+				return false;
+		}
+		return true;
+	}
+	
+	private List<Entry> bucketView(int kind, EntryType type, List<Entry> shared) {
+		List<Entry> bucket = buckets[index(kind, type)];
+		if(type != EntryType.PLANNED || shared.isEmpty())
+			return bucket == null ? List.of() : Collections.unmodifiableList(bucket);
+		if(isEmpty(bucket))
+			return shared;
+		List<Entry> all = new ArrayList<>(bucket);
+		all.addAll(shared);
+		return Collections.unmodifiableList(all);
+	}
+	
+    /**
+     * Sums the calories of one kind of entries, where {@link EntryType#PLANNED}
+     * also includes planned-complete and shared entries.
+     */
+	private double sum(int kind, EntryType type, List<Entry> shared, DoubleUnaryOperator part) {
+		double total = sum(buckets[index(kind, type)], part);
+		if(type == EntryType.PLANNED) {
+			total += sum(buckets[index(kind, EntryType.PLANNED_COMPLETE)], part);
+			total += sum(shared, part);
+		}
+		return total;
+	}
+	
+	private static double sum(List<Entry> bucket, DoubleUnaryOperator part) {
+		double total = 0.0;
+		if(bucket != null) {
+			for(Entry entry : bucket)
+				total += part.applyAsDouble(entry.calculateCalories());
+		}
+		return total;
+	}
+	
+	private void put(Entry entry) {
+		int index = index(kindOf(entry), entry.getType());
+		if(buckets[index] == null)
+			buckets[index] = new ArrayList<>();
+		buckets[index].add(entry);
+	}
+	
+    /**
+     * Removes an entry from the bucket of the given type, falling back to
+     * the other buckets in case its type was changed outside the plan.
+     */
+	private boolean remove(Entry entry, EntryType type) {
+		List<Entry> bucket = buckets[index(kindOf(entry), type)];
+		if(bucket != null && bucket.remove(entry))
+			return true;
+		for(List<Entry> other : buckets) {
+			if(other != null && other.remove(entry))
+				return true;
+		}
+		return false;
+	}
+	
+	private void move(Entry entry, EntryType from) {
+		remove(entry, from);
+		put(entry);
+	}
+	
+    /**
+     * Returns the plan's own copy of an entry, first copying the shared template
+     * into the plan if the entry belongs to it. Copies get new identifiers.
+     *
+     * @param entry an entry of the plan
+     * @return the entry to change
+     */
+	private Entry own(Entry entry) {
+		List<Entry> shared = template.getEntries();
+		int index = -1;
+		for(int i = 0; i < shared.size(); i++) {
+			if(shared.get(i) == entry)
+				index = i;
+		}
+		if(index < 0)
+			return entry;
+		
+		Entry owned = null;
+		for(int i = 0; i < shared.size(); i++) {
+			Entry copy = shared.get(i).clone();
+			put(copy);
+			if(i == index)
+				owned = copy;
+		}
+		template = Template.EMPTY;
+		return owned;
 	}
 }
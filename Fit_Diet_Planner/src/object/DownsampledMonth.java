@@ -0,0 +1,169 @@
+package object;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The summary of a month whose entries are no longer kept.
+ * <p>
+ * Instead of the entries, only one {@link RollupTable.Cell} per day is stored, with the calorie
+ * totals and entry counts of every {@link Entry.EntryType}, plus the items used most often in the
+ * month. Calories are fixed when the month is downsampled, so later changes to a food or sport
+ * definition no longer affect them.
+ * </p>
+ */
+public class DownsampledMonth {
+	private final YearMonth month;
+	private final RollupTable.Cell[] days;
+	private final int topItemCount;
+	private List<TopItem> topItems;
+
+    /**
+     * A food or sport used often in the month.
+     */
+	public static class TopItem {
+		private final String itemId;
+		private final String name;
+		private int uses;
+		private double calories;
+
+		private TopItem(String itemId, String name) {
+			this.itemId = itemId;
+			this.name = name;
+		}
+
+		public String getItemId() {
+			return itemId;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getUses() {
+			return uses;
+		}
+
+	    /**
+	     * Returns the calories of all uses, negative for sports as in {@link Entry#calculateCalories()}.
+	     *
+	     * @return the total calories
+	     */
+		public double getCalories() {
+			return calories;
+		}
+	}
+
+    /**
+     * Summarizes the given plans.
+     * All plans must belong to the given month.
+     *
+     * @param month        the month the plans belong to
+     * @param plans        the daily plans to summarize
+     * @param topItemCount the number of most used items to keep
+     * @throws IllegalArgumentException if a plan is outside the given month
+     */
+	public DownsampledMonth(YearMonth month, Collection<DailyPlan> plans, int topItemCount) {
+		this.month = month;
+		this.days = new RollupTable.Cell[month.lengthOfMonth() + 1];
+		this.topItemCount = topItemCount;
+		Map<String, TopItem> items = new HashMap<>();
+		for (DailyPlan plan : plans) {
+			if (!YearMonth.from(plan.getDate()).equals(month))
+				throw new IllegalArgumentException("Plan " + plan.getDate() + " is not in " + month);
+			if (plan.getEntries().isEmpty())
+				continue;
+			int day = plan.getDate().getDayOfMonth();
+			if (days[day] == null)
+				days[day] = new RollupTable.Cell();
+			days[day].add(plan);
+			for (Entry entry : plan.getEntries()) {
+				LibraryItem item = entry instanceof FoodEntry ? ((FoodEntry) entry).getFood() : ((ExerciseEntry) entry).getSport();
+				TopItem top = items.computeIfAbsent(item.getId(), id -> new TopItem(id, item.getName()));
+				top.uses++;
+				top.calories += entry.calculateCalories();
+			}
+		}
+		this.topItems = rank(items.values());
+	}
+
+    /**
+     * Adds the days and top items of an earlier summary of the same month,
+     * used when entries added after downsampling are downsampled in turn.
+     * Items outside both top lists are not counted, so merged top items are approximate.
+     *
+     * @param older the earlier summary
+     */
+	void absorb(DownsampledMonth older) {
+		for (int day = 1; day < days.length; day++) {
+			if (older.days[day] == null)
+				continue;
+			if (days[day] == null)
+				days[day] = new RollupTable.Cell();
+			days[day].add(older.days[day], 1);
+		}
+		Map<String, TopItem> items = new HashMap<>();
+		for (TopItem item : topItems)
+			items.put(item.itemId, item);
+		for (TopItem item : older.topItems) {
+			TopItem merged = items.computeIfAbsent(item.itemId, id -> new TopItem(id, item.name));
+			merged.uses += item.uses;
+			merged.calories += item.calories;
+		}
+		topItems = rank(items.values());
+	}
+
+	public YearMonth getMonth() {
+		return month;
+	}
+
+    /**
+     * Returns the totals of a day.
+     *
+     * @param date the date to read
+     * @return a copy of the day's totals, or {@code null} if the day had no entries or is in another month
+     */
+	public RollupTable.Cell getDay(LocalDate date) {
+		if (!YearMonth.from(date).equals(month))
+			return null;
+		RollupTable.Cell day = days[date.getDayOfMonth()];
+		return day == null ? null : new RollupTable.Cell(day);
+	}
+
+    /**
+     * Returns the dates that had entries, in order.
+     *
+     * @return the dates with totals
+     */
+	public List<LocalDate> getDates() {
+		List<LocalDate> dates = new ArrayList<>();
+		for (int day = 1; day < days.length; day++) {
+			if (days[day] != null)
+				dates.add(month.atDay(day));
+		}
+		return dates;
+	}
+
+    /**
+     * Returns the most used items of the month, most uses first.
+     *
+     * @return an unmodifiable list of top items
+     */
+	public List<TopItem> getTopItems() {
+		return topItems;
+	}
+
+	private List<TopItem> rank(Collection<TopItem> items) {
+		List<TopItem> ranked = new ArrayList<>(items);
+		ranked.sort(Comparator.comparingInt((TopItem item) -> item.uses).reversed()
+				.thenComparing(item -> -Math.abs(item.calories)));
+		return Collections.unmodifiableList(new ArrayList<>(ranked.subList(0, Math.min(topItemCount, ranked.size()))));
+	}
+}
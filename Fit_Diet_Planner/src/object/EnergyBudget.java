@@ -0,0 +1,168 @@
+package object;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import object.Entry.EntryType;
+
+/**
+ * Computes the daily energy budget of a {@link User}: what they can eat on a day to keep their weight.
+ * <p>
+ * The basal metabolic rate (BMR) follows the Mifflin-St Jeor equation with the weight and height
+ * valid on the day (see {@link User#getWeightOn(LocalDate)}). The user's sex is not known, so the
+ * constant is the midpoint of the male and female ones. The daily energy expenditure (TDEE) is the
+ * BMR times a sedentary activity factor, and the recorded exercise burn of the day is added on top,
+ * since exercise is logged separately.
+ * </p>
+ * <p>
+ * Days are computed on first use and cached. A day is dropped from the cache when its entries
+ * change, and the whole cache when the weight history, the user's age or a food or sport
+ * definition changes, so calendar cells can read their budget on every render.
+ * </p>
+ */
+public class EnergyBudget implements ScheduleListener {
+
+	/**
+	 * Factor from BMR to daily expenditure for a sedentary day, without logged exercise.
+	 */
+	public static final double ACTIVITY_FACTOR = 1.2;
+
+	/**
+	 * Mifflin-St Jeor constant, the midpoint of +5 for men and -161 for women.
+	 */
+	public static final double SEX_NEUTRAL_CONSTANT = -78;
+
+    /**
+     * The energy budget of one day.
+     */
+	public static class Day {
+		private final LocalDate date;
+		private final double bmr;
+		private final double exerciseBurn;
+		private final double intake;
+
+		private Day(LocalDate date, double bmr, double exerciseBurn, double intake) {
+			this.date = date;
+			this.bmr = bmr;
+			this.exerciseBurn = exerciseBurn;
+			this.intake = intake;
+		}
+
+		public LocalDate getDate() {
+			return date;
+		}
+
+		public double getBmr() {
+			return bmr;
+		}
+
+	    /**
+	     * Returns the daily energy expenditure without logged exercise.
+	     *
+	     * @return the BMR times {@value #ACTIVITY_FACTOR}
+	     */
+		public double getTdee() {
+			return bmr * ACTIVITY_FACTOR;
+		}
+
+		public double getExerciseBurn() {
+			return exerciseBurn;
+		}
+
+	    /**
+	     * Returns the calories that can be eaten on the day without gaining weight.
+	     *
+	     * @return the TDEE plus the recorded exercise burn
+	     */
+		public double getBudget() {
+			return getTdee() + exerciseBurn;
+		}
+
+		public double getIntake() {
+			return intake;
+		}
+
+	    /**
+	     * Returns the calories left in the budget after the recorded intake.
+	     *
+	     * @return the budget minus the recorded intake, negative when over budget
+	     */
+		public double getRemaining() {
+			return getBudget() - intake;
+		}
+	}
+
+	private final User user;
+	private final Map<LocalDate, Day> days;
+	private int historyRevision;
+	private int age;
+	private int definitions;
+	private LocalDate today;
+
+    /**
+     * Creates the budget of a user and registers it as a listener of their schedule.
+     *
+     * @param user the user to compute the budget for
+     */
+	public EnergyBudget(User user) {
+		this.user = user;
+		this.days = new HashMap<>();
+		user.getSchedule().addListener(this);
+	}
+
+    /**
+     * Calculates the basal metabolic rate with the Mifflin-St Jeor equation.
+     *
+     * @param weight the weight in kilograms
+     * @param height the height in centimeters
+     * @param age    the age in years
+     * @return the BMR in kcal per day
+     * @throws IllegalArgumentException if weight, height or age are non-positive
+     */
+	public static double calculateBmr(double weight, double height, int age) {
+		if (weight <= 0) throw new IllegalArgumentException("Weight must be greater than 0");
+		if (height <= 0) throw new IllegalArgumentException("Height must be greater than 0");
+		if (age <= 0) throw new IllegalArgumentException("Age must be greater than 0");
+		return 10 * weight + 6.25 * height - 5 * age + SEX_NEUTRAL_CONSTANT;
+	}
+
+    /**
+     * Drops the changed dates from the cache.
+     *
+     * @param dates the dates whose plans changed
+     */
+	@Override
+	public synchronized void plansChanged(Set<LocalDate> dates) {
+		days.keySet().removeAll(dates);
+	}
+
+    /**
+     * Returns the budget of a day, computing it if it is not cached.
+     * The age on a past or future day is derived from the user's current age.
+     *
+     * @param date the date to read
+     * @return the budget of the day
+     */
+	public synchronized Day getDay(LocalDate date) {
+		LocalDate now = LocalDate.now();
+		if (historyRevision != user.getWeightHistory().getRevision() || age != user.getAge()
+				|| definitions != LibraryItem.getDefinitionChanges() || !now.equals(today)) {
+			days.clear();
+			historyRevision = user.getWeightHistory().getRevision();
+			age = user.getAge();
+			definitions = LibraryItem.getDefinitionChanges();
+			today = now;
+		}
+		return days.computeIfAbsent(date, this::compute);
+	}
+
+	private Day compute(LocalDate date) {
+		int ageOn = (int) Math.max(1, age + ChronoUnit.YEARS.between(today, date));
+		double bmr = calculateBmr(user.getWeightOn(date), user.getHeightOn(date), ageOn);
+		RollupTable.Cell cell = user.getSchedule().getRollups().get(Granularity.DAY, date);
+		return new Day(date, bmr, cell.getBurn(EntryType.RECORDED), cell.getIntake(EntryType.RECORDED));
+	}
+}
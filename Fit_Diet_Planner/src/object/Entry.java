@@ -14,6 +14,9 @@ public abstract class Entry implements Cloneable{
 	private String id;
 	private EntryType type;
 	private String note;
+	private String sourceEntryId;
+	private double cachedCalories = Double.NaN;
+	private int cachedRevision;
 	
     /**
      * Defines the possible statuses for an entry.
@@ -52,15 +55,50 @@ public abstract class Entry implements Cloneable{
 	}
 		
     /**
-     * Calculates the calories for this entry.
+     * Returns the calories for this entry.
+     * <p>
+     * The value is computed once by {@link #computeCalories()} and cached until
+     * one of the entry's values changes or the referenced library item is updated.
+     *
+     * @return the calculated calories (in kcal) for this entry
+     */
+	public double calculateCalories() {
+		int revision = getDefinitionRevision();
+		if(Double.isNaN(cachedCalories) || cachedRevision != revision) {
+			cachedCalories = computeCalories();
+			cachedRevision = revision;
+		}
+		return cachedCalories;
+	}
+	
+    /**
+     * Computes the calories for this entry.
      * <p>
      * Implementations must provide logic based on the type of entry,
      * e.g., food entries calculate from quantity and gram,
      * exercise entries calculate from duration and intensity.
      *
-     * @return the calculated calories (in kcal) for this entry
+     * @return the computed calories (in kcal) for this entry
      */
-	public abstract double calculateCalories();
+	protected abstract double computeCalories();
+	
+    /**
+     * Clears the cached calories. Subclasses call this whenever
+     * a value used by {@link #computeCalories()} changes.
+     */
+	protected void invalidateCalories() {
+		cachedCalories = Double.NaN;
+	}
+	
+    /**
+     * Returns the revision of the library item this entry refers to,
+     * so cached calories are recomputed after the item is updated.
+     *
+     * @return the revision of the referenced item
+     */
+	protected int getDefinitionRevision() {
+		return 0;
+	}
 	
     /**
      * Returns a display-friendly name for this entry.
@@ -92,13 +130,15 @@ public abstract class Entry implements Cloneable{
 	
     /**
      * Updates the current entry’s type and note
-     * based on another entry. The unique identifier is not changed.
+     * based on another entry. The unique identifier is not changed
+     * and the cached calories are cleared.
      *
      * @param newEntry the entry whose data is used for updating
      */
 	public void updateFrom(Entry newEntry) {
 		this.type = newEntry.getType();
-		this.note = newEntry.getNote();		
+		this.note = newEntry.getNote();
+		invalidateCalories();
 	};
 	
     /**
@@ -149,6 +189,12 @@ public abstract class Entry implements Cloneable{
 		this.type = type;
 	}
 
+    /**
+     * Returns the identifier of the entry. Identifiers are unique within a {@link DailyPlan};
+     * days sharing duplicated entries share their identifiers until a day changes them.
+     *
+     * @return the entry id
+     */
 	public String getId() {
 		return id;
 	}
@@ -156,4 +202,18 @@ public abstract class Entry implements Cloneable{
 	public void setId(String id) {
 		this.id = id;
 	}
+
+    /**
+     * Returns the id of the planned entry this entry was recorded from.
+     * Set by {@link DailyPlan#completeEntry(Entry)} on the recorded copy of a completed entry.
+     *
+     * @return the id of the source entry, or {@code null} if the entry was not completed from a plan
+     */
+	public String getSourceEntryId() {
+		return sourceEntryId;
+	}
+
+	public void setSourceEntryId(String sourceEntryId) {
+		this.sourceEntryId = sourceEntryId;
+	}
 }
@@ -85,6 +85,11 @@ public abstract class ExerciseEntry extends Entry{
 		this.setWeight(newExeEntry.getWeight());
 	}
 	
+	@Override
+	protected int getDefinitionRevision() {
+		return sport.getRevision();
+	}
+	
 	public Sport getSport() {
 		return sport;
 	}
@@ -95,6 +100,7 @@ public abstract class ExerciseEntry extends Entry{
 
 	public void setWeight(double weight) {
 		this.weight = weight;
+		invalidateCalories();
 	}
 	
 }
@@ -0,0 +1,26 @@
+package object;
+
+/**
+ * File formats supported when importing or exporting data.
+ */
+public enum FileFormat {
+	/** Comma separated values with a header row. */
+	CSV,
+
+	/** One flat JSON object per line. */
+	JSON_LINES;
+
+    /**
+     * Guesses the format from a file name: JSON Lines for {@code .jsonl} and {@code .ndjson}, otherwise CSV.
+     *
+     * @param fileName the name of the file
+     * @return the guessed format
+     * @throws IllegalArgumentException if the file is a {@code .json} file, which holds a single JSON value rather than JSON Lines
+     */
+	public static FileFormat fromFileName(String fileName) {
+		String lower = fileName.toLowerCase();
+		if (lower.endsWith(".json"))
+			throw new IllegalArgumentException("JSON files are not supported, use JSON Lines (.jsonl) with one object per line");
+		return lower.endsWith(".jsonl") || lower.endsWith(".ndjson") ? JSON_LINES : CSV;
+	}
+}
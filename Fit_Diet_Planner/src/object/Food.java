@@ -139,6 +139,28 @@ public class Food extends LibraryItem {
 	    return String.format("%.0f g/serving", gramPerServing);
 	}
 
+    /**
+     * Updates the nutritional values of this food.
+     * <p>
+     * Entries referring to this food recalculate their calories on next access.
+     * </p>
+     *
+     * @param caloriePerG    the new calories per gram
+     * @param gramPerServing the new grams per serving
+     * @throws IllegalArgumentException if a value is not greater than zero
+     */
+	public void updateNutrition(double caloriePerG, double gramPerServing) {
+        if (caloriePerG <= 0) {
+            throw new IllegalArgumentException("Calorie per gram must be greater than 0.");
+        }
+        if (gramPerServing <= 0) {
+            throw new IllegalArgumentException("Gram per serving must be greater than 0.");
+        }
+		this.caloriePerG = caloriePerG;
+		this.gramPerServing = gramPerServing;
+		definitionChanged();
+	}
+
 	public double getGramPerServing() {
 		return gramPerServing;
 	}
@@ -48,7 +48,7 @@ public class FoodEntry extends Entry {
      * @return the calculated calories for this food entry
      */
 	@Override
-	public double calculateCalories() {		
+	protected double computeCalories() {		
 		return gram * quantity * food.getCaloriePerG();
 	}
 
@@ -113,6 +113,11 @@ public class FoodEntry extends Entry {
 		this.setQuantity(newFoodEntry.getQuantity());	
 	}
 
+	@Override
+	protected int getDefinitionRevision() {
+		return food.getRevision();
+	}
+
 	public Food getFood() {
 		return food;
 	}
@@ -129,13 +134,14 @@ public class FoodEntry extends Entry {
 	    if (quantity < 0) 
 	    	quantity = 1;
 	    this.quantity = quantity;
-		
+	    invalidateCalories();
 	}
 
 	public void setGrams(double gram) {
 	    if (gram < 0) 
 	    	gram = 0.0;
 	    this.gram = gram; 
+	    invalidateCalories();
 	}
 
 }
@@ -0,0 +1,200 @@
+package object;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import object.Entry.EntryType;
+
+/**
+ * Tracks on which days of a {@link Schedule} the calorie goal was met, as streaks and rolling rates.
+ * <p>
+ * A day has a goal when its planned net calories are not zero. The goal is met when the recorded
+ * net calories reach the plan: at least the planned intake on a surplus day, or at least the
+ * planned deficit on a deficit day (see {@link #isGoalMet(double, double)}).
+ * </p>
+ * <p>
+ * Met days are stored as runs of consecutive days, keyed by their first day, together with a
+ * count of runs per length. When a day changes, only its own run is split or joined with its
+ * neighbours, so the longest streak, the current streak and the attainment of a window of days
+ * are answered without reading the history. Day totals come from the schedule's {@link RollupTable}.
+ * </p>
+ */
+public class GoalTracker implements ScheduleListener {
+
+	/**
+	 * The window lengths in days shown in goal reports.
+	 */
+	public static final int[] WINDOWS = {7, 30, 90};
+
+	private final Schedule schedule;
+	private final TreeSet<Long> goalDays;
+	private final TreeMap<Long, Long> runs;
+	private final TreeMap<Integer, Integer> runLengths;
+	private int definitions;
+
+    /**
+     * Builds the tracker from the day totals of a schedule and registers it as a listener.
+     *
+     * @param schedule the schedule to track
+     */
+	public GoalTracker(Schedule schedule) {
+		this.schedule = schedule;
+		this.goalDays = new TreeSet<>();
+		this.runs = new TreeMap<>();
+		this.runLengths = new TreeMap<>();
+		rebuild();
+		schedule.addListener(this);
+	}
+
+    /**
+     * Checks whether the recorded calories of a day reach its plan.
+     *
+     * @param planned the planned net calories
+     * @param actual  the recorded net calories
+     * @return true if the day has a goal and it was met
+     */
+	public static boolean isGoalMet(double planned, double actual) {
+		return (planned < 0 && actual <= planned) || (planned > 0 && actual >= planned);
+	}
+
+    /**
+     * Updates the changed dates.
+     *
+     * @param dates the dates whose plans changed
+     */
+	@Override
+	public synchronized void plansChanged(Set<LocalDate> dates) {
+		if (definitions != LibraryItem.getDefinitionChanges()) {
+			rebuild();
+			return;
+		}
+		for (LocalDate date : dates)
+			update(date);
+	}
+
+    /**
+     * Returns the number of consecutive met days up to today. A streak that ends
+     * yesterday still counts, since today may not be recorded yet.
+     *
+     * @param today the current date
+     * @return the length of the current streak in days
+     */
+	public synchronized int getCurrentStreak(LocalDate today) {
+		refresh();
+		long day = today.toEpochDay();
+		Map.Entry<Long, Long> run = runs.floorEntry(day);
+		if (run == null || run.getValue() < day - 1)
+			return 0;
+		return (int) (Math.min(run.getValue(), day) - run.getKey() + 1);
+	}
+
+    /**
+     * Returns the longest run of consecutive met days in the whole schedule.
+     *
+     * @return the length of the longest streak in days
+     */
+	public synchronized int getLongestStreak() {
+		refresh();
+		return runLengths.isEmpty() ? 0 : runLengths.lastKey();
+	}
+
+    /**
+     * Returns the share of days with a goal that met it, over the given number of days up to today.
+     *
+     * @param days  the length of the window
+     * @param today the last day of the window
+     * @return a ratio between 0 and 1, or 0 if no day of the window had a goal
+     * @throws IllegalArgumentException if the window is not positive
+     */
+	public synchronized double getAttainment(int days, LocalDate today) {
+		if (days <= 0) throw new IllegalArgumentException("Window must be at least one day");
+		refresh();
+		long last = today.toEpochDay();
+		long first = last - days + 1;
+		int goals = goalDays.subSet(first, true, last, true).size();
+		if (goals == 0)
+			return 0;
+
+		long met = 0;
+		Long start = runs.floorKey(first);
+		for (Map.Entry<Long, Long> run : runs.tailMap(start == null ? first : start, true).entrySet()) {
+			if (run.getKey() > last)
+				break;
+			met += Math.max(0, Math.min(run.getValue(), last) - Math.max(run.getKey(), first) + 1);
+		}
+		return (double) met / goals;
+	}
+
+	private void refresh() {
+		if (definitions != LibraryItem.getDefinitionChanges())
+			rebuild();
+	}
+
+	private void rebuild() {
+		definitions = LibraryItem.getDefinitionChanges();
+		goalDays.clear();
+		runs.clear();
+		runLengths.clear();
+		if (schedule.getFirstMonth() == null)
+			return;
+		LocalDate first = schedule.getFirstMonth().atDay(1);
+		LocalDate last = schedule.getLastMonth().atEndOfMonth();
+		for (Map.Entry<LocalDate, RollupTable.Cell> day : schedule.getRollups().getRange(Granularity.DAY, first, last).entrySet()) {
+			RollupTable.Cell cell = day.getValue();
+			update(day.getKey().toEpochDay(), cell.getNet(EntryType.PLANNED), cell.getNet(EntryType.RECORDED));
+		}
+	}
+
+	private void update(LocalDate date) {
+		update(date.toEpochDay(), schedule.getNetCalories(date, EntryType.PLANNED), schedule.getNetCalories(date, EntryType.RECORDED));
+	}
+
+	private void update(long day, double planned, double actual) {
+		if (planned != 0)
+			goalDays.add(day);
+		else
+			goalDays.remove(day);
+
+		boolean met = isGoalMet(planned, actual);
+		Map.Entry<Long, Long> run = runs.floorEntry(day);
+		boolean inRun = run != null && run.getValue() >= day;
+		if (met == inRun)
+			return;
+
+		if (met) {
+			long start = day;
+			long end = day;
+			if (run != null && run.getValue() == day - 1) {
+				start = run.getKey();
+				removeRun(start);
+			}
+			Long next = runs.get(day + 1);
+			if (next != null) {
+				end = next;
+				removeRun(day + 1);
+			}
+			addRun(start, end);
+		} else {
+			long start = run.getKey();
+			long end = run.getValue();
+			removeRun(start);
+			if (start < day)
+				addRun(start, day - 1);
+			if (end > day)
+				addRun(day + 1, end);
+		}
+	}
+
+	private void addRun(long start, long end) {
+		runs.put(start, end);
+		runLengths.merge((int) (end - start + 1), 1, Integer::sum);
+	}
+
+	private void removeRun(long start) {
+		long end = runs.remove(start);
+		runLengths.computeIfPresent((int) (end - start + 1), (length, count) -> count == 1 ? null : count - 1);
+	}
+}
@@ -0,0 +1,35 @@
+package object;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * The length of the periods that entries are grouped into for reports.
+ */
+public enum Granularity {
+	DAY,
+	/** An ISO week, starting on Monday. */
+	WEEK,
+	MONTH,
+	YEAR;
+
+    /**
+     * Returns the first day of the period containing the date.
+     *
+     * @param date the date
+     * @return the start of its period
+     */
+	public LocalDate startOf(LocalDate date) {
+		switch (this) {
+			case WEEK:
+				return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+			case MONTH:
+				return date.withDayOfMonth(1);
+			case YEAR:
+				return date.withDayOfYear(1);
+			default:
+				return date;
+		}
+	}
+}
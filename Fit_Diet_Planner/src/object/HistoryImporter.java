@@ -0,0 +1,311 @@
+package object;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import object.CatalogImporter.ImportResult;
+import object.Entry.EntryType;
+
+/**
+ * Imports food and exercise history from CSV or JSON Lines files into a {@link Schedule}.
+ * <p>
+ * Rows use the columns written by {@link ScheduleExporter}. Only {@code date} and {@code item}
+ * are required: {@code type} defaults to {@link EntryType#RECORDED}, {@code kind} is inferred from
+ * the matched library item, and a missing {@code weight} falls back to the body weight valid on the row's date.
+ * Items are matched against the {@link Library} by name, ignoring case, and each distinct name
+ * is looked up only once per import. The {@code calories} column is ignored, since calories
+ * are always derived from the item and amounts.
+ * </p>
+ * <p>
+ * Importing happens in two steps. {@link #parse} reads the file in chunks of
+ * {@value CatalogImporter#DEFAULT_CHUNK_SIZE} rows, parses and validates every chunk in parallel
+ * and groups the entries by date without touching the schedule. {@link #insert} then adds each
+ * day's entries to its {@link DailyPlan} in one bulk operation, skipping the per-entry validation
+ * already done while parsing, and rebuilds the totals of compressed months once at the end.
+ * </p>
+ */
+public class HistoryImporter {
+	private Schedule schedule;
+	private Library library;
+	private int chunkSize;
+
+    /**
+     * Entries parsed from a history file that have not been added to the schedule yet.
+     */
+	public static class ParsedHistory {
+		private Map<LocalDate, List<Entry>> entriesByDate = new HashMap<>();
+		private ImportResult result = new ImportResult();
+
+	    /**
+	     * Returns the outcome of parsing. The imported count is the number of valid entries.
+	     *
+	     * @return the parse result
+	     */
+		public ImportResult getResult() {
+			return result;
+		}
+
+	    /**
+	     * Returns the number of distinct days the parsed entries belong to.
+	     *
+	     * @return the number of days
+	     */
+		public int getDayCount() {
+			return entriesByDate.size();
+		}
+	}
+
+	private static class DatedEntry {
+		private LocalDate date;
+		private Entry entry;
+
+		private DatedEntry(LocalDate date, Entry entry) {
+			this.date = date;
+			this.entry = entry;
+		}
+	}
+
+    /**
+     * Creates an importer for the given schedule with the default chunk size.
+     *
+     * @param schedule the schedule to import into
+     * @param library  the library used to match item names
+     */
+	public HistoryImporter(Schedule schedule, Library library) {
+		this(schedule, library, CatalogImporter.DEFAULT_CHUNK_SIZE);
+	}
+
+    /**
+     * Creates an importer for the given schedule.
+     *
+     * @param schedule  the schedule to import into
+     * @param library   the library used to match item names
+     * @param chunkSize the number of rows parsed together
+     * @throws IllegalArgumentException if the chunk size is not positive
+     */
+	public HistoryImporter(Schedule schedule, Library library, int chunkSize) {
+		if (chunkSize <= 0) throw new IllegalArgumentException("Chunk size must be greater than 0");
+		this.schedule = schedule;
+		this.library = library;
+		this.chunkSize = chunkSize;
+	}
+
+    /**
+     * Parses and inserts a history file in one call.
+     *
+     * @param file          the file to read
+     * @param format        the file format
+     * @param weightOn      the body weight (kg) on a date, used for exercise rows without a weight
+     * @param onProgress    called after every chunk with a progress snapshot, may be null
+     * @return the final import result
+     * @throws IOException if the file cannot be read
+     */
+	public ImportResult importHistory(Path file, FileFormat format, ToDoubleFunction<LocalDate> weightOn, Consumer<ImportResult> onProgress) throws IOException {
+		ParsedHistory parsed = parse(file, format, weightOn, onProgress);
+		insert(parsed);
+		return parsed.getResult();
+	}
+
+    /**
+     * Parses a history file into entries grouped by date.
+     * The schedule is not modified, so this can run on a background thread.
+     *
+     * @param file          the file to read
+     * @param format        the file format
+     * @param weightOn      the body weight (kg) on a date, used for exercise rows without a weight
+     * @param onProgress    called after every chunk with a progress snapshot, may be null
+     * @return the parsed entries
+     * @throws IOException if the file cannot be read
+     */
+	public ParsedHistory parse(Path file, FileFormat format, ToDoubleFunction<LocalDate> weightOn, Consumer<ImportResult> onProgress) throws IOException {
+		long start = System.nanoTime();
+		ParsedHistory parsed = new ParsedHistory();
+		Map<String, Optional<Food>> foods = new ConcurrentHashMap<>();
+		Map<String, Optional<Sport>> sports = new ConcurrentHashMap<>();
+
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String[] header = null;
+			if (format == FileFormat.CSV) {
+				String headerLine = reader.readLine();
+				if (headerLine == null)
+					return parsed;
+				header = CatalogImporter.splitCsv(CatalogImporter.stripBom(headerLine)).toArray(new String[0]);
+			}
+
+			long[] lineNumber = {header == null ? 0 : 1};
+			List<String> records = new ArrayList<>(chunkSize);
+			List<Long> lineNumbers = new ArrayList<>(chunkSize);
+			String record;
+			while (true) {
+				long firstLine = lineNumber[0] + 1;
+				record = CatalogImporter.readRecord(reader, format, lineNumber);
+				if (record != null && !record.isBlank()) {
+					records.add(record);
+					lineNumbers.add(firstLine);
+				}
+
+				if (records.size() == chunkSize || (record == null && !records.isEmpty())) {
+					parseChunk(records, lineNumbers, header, format, weightOn, foods, sports, parsed);
+					records.clear();
+					lineNumbers.clear();
+					parsed.result.setElapsedNanos(System.nanoTime() - start);
+					if (onProgress != null)
+						onProgress.accept(parsed.result.copy());
+				}
+				if (record == null)
+					break;
+			}
+		}
+		parsed.result.setElapsedNanos(System.nanoTime() - start);
+		return parsed;
+	}
+
+    /**
+     * Adds parsed entries to the schedule, one bulk operation per day.
+     * Must be called on the thread that owns the schedule.
+     *
+     * @param parsed the entries returned by {@link #parse}
+     */
+	public void insert(ParsedHistory parsed) {
+		schedule.appendEntries(parsed.entriesByDate);
+		parsed.entriesByDate = new HashMap<>();
+	}
+
+	private void parseChunk(List<String> records, List<Long> lineNumbers, String[] header, FileFormat format, ToDoubleFunction<LocalDate> weightOn,
+			Map<String, Optional<Food>> foods, Map<String, Optional<Sport>> sports, ParsedHistory parsed) {
+		List<Object> values = IntStream.range(0, records.size()).parallel().mapToObj(i -> {
+			try {
+				Map<String, String> row = format == FileFormat.CSV
+						? CatalogImporter.toRow(header, CatalogImporter.splitCsv(records.get(i)))
+						: CatalogImporter.parseJsonObject(records.get(i));
+				return (Object) parseRow(row, weightOn, foods, sports);
+			} catch (RuntimeException e) {
+				return "Line " + lineNumbers.get(i) + ": " + e.getMessage();
+			}
+		}).collect(Collectors.toList());
+
+		for (Object value : values) {
+			parsed.result.countRow();
+			if (value instanceof String) {
+				parsed.result.countRejected((String) value);
+				continue;
+			}
+			DatedEntry dated = (DatedEntry) value;
+			parsed.entriesByDate.computeIfAbsent(dated.date, date -> new ArrayList<>()).add(dated.entry);
+			parsed.result.countImported(1);
+		}
+	}
+
+	private DatedEntry parseRow(Map<String, String> row, ToDoubleFunction<LocalDate> weightOn,
+			Map<String, Optional<Food>> foods, Map<String, Optional<Sport>> sports) {
+		if (ScheduleExporter.DAY_TOTAL.equalsIgnoreCase(row.get("kind")))
+			throw new IllegalArgumentException("Day totals of downsampled months cannot be imported");
+		LocalDate date = parseDate(row.get("date"));
+		String item = row.get("item");
+		if (item == null || item.isEmpty())
+			throw new IllegalArgumentException("Missing value for item");
+		EntryType type = parseType(row.get("type"));
+		String note = row.get("note");
+		if (note != null && note.isEmpty())
+			note = null;
+
+		String kind = row.getOrDefault("kind", "");
+		Entry entry;
+		if (kind.isEmpty() || kind.equalsIgnoreCase(ScheduleExporter.FOOD)) {
+			Food food = foods.computeIfAbsent(item.toLowerCase(), key -> Optional.ofNullable(library.findFoodByName(item))).orElse(null);
+			if (food != null) {
+				entry = new FoodEntry(type, note, food, parseInteger(row, "quantity", 1), parseNumber(row, "grams", food.getGramPerServing()));
+			} else if (kind.isEmpty()) {
+				entry = parseExercise(row, type, note, item, "", weightOn.applyAsDouble(date), sports);
+			} else {
+				throw new IllegalArgumentException("Unknown food: " + item);
+			}
+		} else if (kind.equalsIgnoreCase(ScheduleExporter.TIME_BASED) || kind.equalsIgnoreCase(ScheduleExporter.REP_BASED)) {
+			entry = parseExercise(row, type, note, item, kind, weightOn.applyAsDouble(date), sports);
+		} else {
+			throw new IllegalArgumentException("Unknown kind: " + kind);
+		}
+		entry.validate();
+		return new DatedEntry(date, entry);
+	}
+
+	private Entry parseExercise(Map<String, String> row, EntryType type, String note, String item, String kind,
+			double defaultWeight, Map<String, Optional<Sport>> sports) {
+		Sport sport = sports.computeIfAbsent(item.toLowerCase(), key -> Optional.ofNullable(library.findSportByName(item))).orElse(null);
+		if (sport == null)
+			throw new IllegalArgumentException("Unknown " + (kind.isEmpty() ? "food or sport" : "sport") + ": " + item);
+
+		double weight = parseNumber(row, "weight", defaultWeight);
+		boolean repBased = kind.isEmpty() ? sport.isRepBased() : kind.equalsIgnoreCase(ScheduleExporter.REP_BASED);
+		if (repBased) {
+			return new RepBasedExerciseEntry(type, note, sport, weight, parseInteger(row, "sets", Double.NaN),
+					parseInteger(row, "reps", Double.NaN), parseNumber(row, "secPerRep", sport.getSecondsPerRep()));
+		}
+		return new TimeBasedExerciseEntry(type, note, sport, weight, parseNumber(row, "duration", Double.NaN));
+	}
+
+	private static LocalDate parseDate(String value) {
+		if (value == null || value.isEmpty())
+			throw new IllegalArgumentException("Missing value for date");
+		try {
+			return LocalDate.parse(value);
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException("Invalid date: " + value);
+		}
+	}
+
+	private static EntryType parseType(String value) {
+		if (value == null || value.isEmpty())
+			return EntryType.RECORDED;
+		for (EntryType type : EntryType.values()) {
+			if (type.name().equalsIgnoreCase(value))
+				return type;
+		}
+		throw new IllegalArgumentException("Unknown entry type: " + value);
+	}
+
+    /**
+     * Parses a numeric column, using the fallback when the column is empty.
+     * A fallback of {@code NaN} marks the column as required.
+     */
+	private static double parseNumber(Map<String, String> row, String column, double fallback) {
+		String value = row.get(column);
+		if (value == null || value.isEmpty()) {
+			if (Double.isNaN(fallback))
+				throw new IllegalArgumentException("Missing value for " + column);
+			return fallback;
+		}
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid number for " + column + ": " + value);
+		}
+	}
+
+    /**
+     * Parses a column holding a whole number, such as a quantity or a number of reps.
+     *
+     * @throws IllegalArgumentException if the value has a fractional part or does not fit an int
+     */
+	private static int parseInteger(Map<String, String> row, String column, double fallback) {
+		double value = parseNumber(row, column, fallback);
+		if (value != Math.rint(value) || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Invalid whole number for " + column + ": " + row.get(column));
+		return (int) value;
+	}
+}
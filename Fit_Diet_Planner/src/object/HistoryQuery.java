@@ -0,0 +1,401 @@
+package object;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import object.Entry.EntryType;
+import object.Food.FoodCategory;
+
+/**
+ * A query over the entries of a {@link Schedule}, built with chained filters and read as a lazy stream.
+ * <p>
+ * Example: {@code schedule.query().between(from, to).kind(Kind.FOOD).type(EntryType.RECORDED).groupBy(Granularity.WEEK)}
+ * streams the weekly totals of recorded food between two dates.
+ * </p>
+ * <p>
+ * Before reading, the query picks an access path (see {@link #plan()}). With an item filter whose
+ * days are few compared to the date range, only the months and days listed by the schedule's
+ * {@link ItemUsageIndex} are read. Otherwise the months of the date range are read in order, and
+ * without a date range every month from the first to the last stored one is scanned. Either way one
+ * month is decoded at a time through {@link Schedule#getPlansInMonth(YearMonth)}, so reports over many
+ * years never hold more than a month of plans, and pending recurring occurrences are included.
+ * </p>
+ * <p>
+ * Rows of compressed months are temporary copies and are meant for reading only.
+ * </p>
+ * <p>
+ * Days of {@link DownsampledMonth}s have no entries left, so they never appear as rows. Their
+ * totals are still counted by {@link #groupBy(Granularity)} unless the query filters by item,
+ * category or calories, which only detailed entries can be checked against.
+ * </p>
+ */
+public class HistoryQuery {
+
+	/**
+	 * An item filter is answered from the item index when its days in range are at most
+	 * this fraction of the days in the range.
+	 */
+	private static final double INDEX_SELECTIVITY = 0.25;
+
+    /**
+     * The kind of entry to match.
+     */
+	public enum Kind {
+		FOOD,
+		EXERCISE
+	}
+
+    /**
+     * The access path chosen for a query.
+     */
+	public enum Plan {
+		/** Read only the days that use the filtered item. */
+		ITEM_INDEX,
+		/** Read the months of the date range. */
+		DATE_RANGE,
+		/** Read every stored month. */
+		FULL_SCAN
+	}
+
+    /**
+     * An entry matched by a query, with the date of its plan.
+     */
+	public static class Row {
+		private final LocalDate date;
+		private final Entry entry;
+
+		private Row(LocalDate date, Entry entry) {
+			this.date = date;
+			this.entry = entry;
+		}
+
+		public LocalDate getDate() {
+			return date;
+		}
+
+		public Entry getEntry() {
+			return entry;
+		}
+	}
+
+    /**
+     * The totals of the rows of one period.
+     */
+	public static class Group {
+		private final LocalDate start;
+		private int count;
+		private double intake;
+		private double burn;
+
+		private Group(LocalDate start) {
+			this.start = start;
+		}
+
+		private void add(Entry entry) {
+			double calories = entry.calculateCalories();
+			if (entry instanceof FoodEntry)
+				intake += calories;
+			else
+				burn -= calories;
+			count++;
+		}
+
+	    /**
+	     * Adds the totals of a downsampled day for the given types and kind.
+	     */
+		private void add(RollupTable.Cell day, Set<EntryType> types, Kind kind) {
+			for (EntryType type : types) {
+				//the planned totals of a cell include completed entries, the query matches exact types
+				boolean planned = type == EntryType.PLANNED;
+				if (kind != Kind.EXERCISE) {
+					intake += day.getIntake(type) - (planned ? day.getIntake(EntryType.PLANNED_COMPLETE) : 0);
+					count += day.getFoodCount(type);
+				}
+				if (kind != Kind.FOOD) {
+					burn += day.getBurn(type) - (planned ? day.getBurn(EntryType.PLANNED_COMPLETE) : 0);
+					count += day.getExerciseCount(type);
+				}
+			}
+		}
+
+        /**
+         * Returns the first day of the period.
+         *
+         * @return the start date
+         */
+		public LocalDate getStart() {
+			return start;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public double getIntake() {
+			return intake;
+		}
+
+        /**
+         * Returns the calories burned in the period, as a positive number.
+         *
+         * @return the burned calories
+         */
+		public double getBurn() {
+			return burn;
+		}
+
+		public double getNet() {
+			return intake - burn;
+		}
+	}
+
+	private final Schedule schedule;
+	private LocalDate from;
+	private LocalDate to;
+	private Set<EntryType> types = EnumSet.allOf(EntryType.class);
+	private Kind kind;
+	private LibraryItem item;
+	private FoodCategory category;
+	private double minCalories = 0;
+	private double maxCalories = Double.POSITIVE_INFINITY;
+
+    /**
+     * Creates a query matching every entry of a schedule.
+     * Use {@link Schedule#query()} instead.
+     *
+     * @param schedule the schedule to read
+     */
+	HistoryQuery(Schedule schedule) {
+		this.schedule = schedule;
+	}
+
+    /**
+     * Restricts the query to a date range.
+     *
+     * @param from the first date (inclusive)
+     * @param to   the last date (inclusive)
+     * @return this query
+     * @throws IllegalArgumentException if {@code from} is after {@code to}
+     */
+	public HistoryQuery between(LocalDate from, LocalDate to) {
+		if (from.isAfter(to))
+			throw new IllegalArgumentException("Start date must not be after end date");
+		this.from = from;
+		this.to = to;
+		return this;
+	}
+
+    /**
+     * Restricts the query to the given entry types.
+     *
+     * @param first the first type to match
+     * @param rest  further types to match
+     * @return this query
+     */
+	public HistoryQuery type(EntryType first, EntryType... rest) {
+		this.types = EnumSet.of(first, rest);
+		return this;
+	}
+
+    /**
+     * Restricts the query to food or exercise entries.
+     *
+     * @param kind the kind to match
+     * @return this query
+     */
+	public HistoryQuery kind(Kind kind) {
+		this.kind = kind;
+		return this;
+	}
+
+    /**
+     * Restricts the query to entries of one food or sport.
+     *
+     * @param item the food or sport
+     * @return this query
+     */
+	public HistoryQuery item(LibraryItem item) {
+		this.item = item;
+		return this;
+	}
+
+    /**
+     * Restricts the query to food entries of a category.
+     *
+     * @param category the food category
+     * @return this query
+     */
+	public HistoryQuery category(FoodCategory category) {
+		this.category = category;
+		this.kind = Kind.FOOD;
+		return this;
+	}
+
+    /**
+     * Restricts the query to entries whose calories, burned or eaten, lie within a range.
+     *
+     * @param min the minimum calories (inclusive)
+     * @param max the maximum calories (inclusive)
+     * @return this query
+     * @throws IllegalArgumentException if {@code min} is greater than {@code max}
+     */
+	public HistoryQuery calories(double min, double max) {
+		if (min > max)
+			throw new IllegalArgumentException("Minimum calories must not exceed maximum calories");
+		this.minCalories = min;
+		this.maxCalories = max;
+		return this;
+	}
+
+    /**
+     * Returns the access path the query will use, based on its filters.
+     *
+     * @return the chosen plan
+     */
+	public Plan plan() {
+		if (item != null) {
+			LocalDate start = from != null ? from : LocalDate.MIN;
+			LocalDate end = to != null ? to : LocalDate.MAX;
+			int itemDays = itemDays().subSet(start, true, end, true).size();
+			if (from == null || itemDays <= INDEX_SELECTIVITY * (to.toEpochDay() - from.toEpochDay() + 1))
+				return Plan.ITEM_INDEX;
+		}
+		return from != null ? Plan.DATE_RANGE : Plan.FULL_SCAN;
+	}
+
+    /**
+     * Streams the matching entries in date order.
+     * Months are read one at a time as the stream is consumed.
+     *
+     * @return a lazy stream of rows
+     */
+	public Stream<Row> stream() {
+		Predicate<Entry> filter = this::matches;
+		Stream<DailyPlan> plans;
+		switch (plan()) {
+			case ITEM_INDEX:
+				plans = itemPlans();
+				break;
+			case DATE_RANGE:
+				plans = rangePlans(YearMonth.from(from), YearMonth.from(to));
+				break;
+			default:
+				YearMonth first = schedule.getFirstMonth();
+				plans = first == null ? Stream.empty() : rangePlans(first, schedule.getLastMonth());
+				break;
+		}
+		return plans
+				.filter(plan -> inRange(plan.getDate()))
+				.flatMap(plan -> plan.getEntries().stream().filter(filter).map(entry -> new Row(plan.getDate(), entry)));
+	}
+
+    /**
+     * Streams the totals of the matching entries per period, in date order.
+     * Each group is completed as soon as the rows of the next period start, so groups
+     * are produced lazily as well. Periods without matching entries are skipped.
+     * Downsampled days are merged in by date (see the class description).
+     *
+     * @param period the period to group by
+     * @return a lazy stream of groups
+     */
+	public Stream<Group> groupBy(Granularity period) {
+		Iterator<Row> rows = stream().iterator();
+		Iterator<LocalDate> summaries = downsampledDays().iterator();
+		Iterator<Group> groups = new Iterator<Group>() {
+			private Row pending = rows.hasNext() ? rows.next() : null;
+			private LocalDate pendingDay = summaries.hasNext() ? summaries.next() : null;
+
+			@Override
+			public boolean hasNext() {
+				return pending != null || pendingDay != null;
+			}
+
+			@Override
+			public Group next() {
+				if (pending == null && pendingDay == null)
+					throw new NoSuchElementException();
+				LocalDate first = pending == null ? pendingDay
+						: pendingDay == null || pending.getDate().isBefore(pendingDay) ? pending.getDate() : pendingDay;
+				Group group = new Group(period.startOf(first));
+				while (pending != null && period.startOf(pending.getDate()).equals(group.getStart())) {
+					group.add(pending.getEntry());
+					pending = rows.hasNext() ? rows.next() : null;
+				}
+				while (pendingDay != null && period.startOf(pendingDay).equals(group.getStart())) {
+					group.add(schedule.getDownsampledMonth(YearMonth.from(pendingDay)).getDay(pendingDay), types, kind);
+					pendingDay = summaries.hasNext() ? summaries.next() : null;
+				}
+				return group;
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(groups, Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	private boolean matches(Entry entry) {
+		if (!types.contains(entry.getType()))
+			return false;
+		boolean food = entry instanceof FoodEntry;
+		if (kind != null && food != (kind == Kind.FOOD))
+			return false;
+		if (item != null) {
+			LibraryItem used = food ? ((FoodEntry) entry).getFood() : ((ExerciseEntry) entry).getSport();
+			if (!item.getId().equals(used.getId()))
+				return false;
+		}
+		if (category != null && (!food || ((FoodEntry) entry).getFood().getCategory() != category))
+			return false;
+		double calories = Math.abs(entry.calculateCalories());
+		return calories >= minCalories && calories <= maxCalories;
+	}
+
+	private boolean inRange(LocalDate date) {
+		return (from == null || !date.isBefore(from)) && (to == null || !date.isAfter(to));
+	}
+
+	private Stream<DailyPlan> rangePlans(YearMonth first, YearMonth last) {
+		return Stream.iterate(first, month -> !month.isAfter(last), month -> month.plusMonths(1))
+				.flatMap(month -> schedule.getPlansInMonth(month).stream());
+	}
+
+    /**
+     * Streams the downsampled days in range, in date order, or none if a filter needs entries.
+     */
+	private Stream<LocalDate> downsampledDays() {
+		YearMonth first = from != null ? YearMonth.from(from) : schedule.getFirstMonth();
+		if (item != null || category != null || minCalories > 0 || maxCalories < Double.POSITIVE_INFINITY || first == null)
+			return Stream.empty();
+		YearMonth last = to != null ? YearMonth.from(to) : schedule.getLastMonth();
+		return Stream.iterate(first, month -> !month.isAfter(last), month -> month.plusMonths(1))
+				.map(schedule::getDownsampledMonth)
+				.filter(summary -> summary != null)
+				.flatMap(summary -> summary.getDates().stream())
+				.filter(this::inRange);
+	}
+
+	private Stream<DailyPlan> itemPlans() {
+		TreeMap<YearMonth, Set<LocalDate>> daysByMonth = new TreeMap<>();
+		for (LocalDate date : itemDays()) {
+			if (inRange(date))
+				daysByMonth.computeIfAbsent(YearMonth.from(date), month -> new TreeSet<>()).add(date);
+		}
+		return daysByMonth.entrySet().stream()
+				.flatMap(month -> schedule.getPlansInMonth(month.getKey()).stream()
+						.filter(plan -> month.getValue().contains(plan.getDate())));
+	}
+
+	private NavigableSet<LocalDate> itemDays() {
+		return schedule.getUsageIndex().getDays(item);
+	}
+}
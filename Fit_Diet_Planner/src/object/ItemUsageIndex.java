@@ -0,0 +1,312 @@
+package object;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * An inverted index from library items to the days and entries of a {@link Schedule} that use them.
+ * <p>
+ * For every {@link Food} and {@link Sport} id the index keeps the entries referring to it, grouped
+ * by epoch day, together with running totals of the number of entries, the calories and the amount
+ * (grams for food, minutes for sport). The index is built once from the stored plans and then kept
+ * up to date as a {@link ScheduleListener}: every changed day is dropped from the index and read again.
+ * Calories depend on the food and sport definitions, so the index is rebuilt when one of them changes.
+ * </p>
+ * <p>
+ * Each item also has a time-decayed usage score: every entry adds a weight that halves every
+ * {@value #HALF_LIFE_DAYS} days between the entry's date and today, so items used recently and often
+ * rank first. The score is stored as its value on a reference day and only rescaled when an entry
+ * later than that day is added, so adding or removing a day's entries updates it in constant time.
+ * Entries dated after today, such as planned or recurring ones, count as used on the day they were
+ * indexed, so they never weigh more than a use today.
+ * </p>
+ * <p>
+ * Pending occurrences of {@link RecurringPlan}s are not stored in any plan, so they are added
+ * from the recurring templates when a query is answered, multiplied by the number of pending
+ * occurrences each plan keeps.
+ * </p>
+ */
+public class ItemUsageIndex implements ScheduleListener {
+	
+	/**
+	 * Number of days after which the weight of a use is halved.
+	 */
+	public static final int HALF_LIFE_DAYS = 30;
+	
+	private final Schedule schedule;
+	private final Map<String, Usage> usages;
+	private final Map<Long, Set<String>> itemsByDay;
+	private int definitions;
+
+    /**
+     * The entries of one day that refer to an item.
+     */
+	private static class Posting {
+		private final List<String> entryIds = new ArrayList<>();
+		private double calories;
+		private double amount;
+		private long scoreDay;
+	}
+
+    /**
+     * All postings of one item, with totals over every day.
+     */
+	private static class Usage {
+		private final TreeMap<Long, Posting> days = new TreeMap<>();
+		private int count;
+		private double calories;
+		private double amount;
+		private double score;
+		private long scoreDay;
+		
+		private Usage(long scoreDay) {
+			this.scoreDay = scoreDay;
+		}
+		
+	    /**
+	     * Adds the weight of uses on a day to the score, moving the reference day
+	     * forward first if the day is later than it.
+	     */
+		private void addScore(long day, double uses) {
+			if(day > scoreDay) {
+				score *= decay(day - scoreDay);
+				scoreDay = day;
+			}
+			score += uses * decay(scoreDay - day);
+		}
+	}
+
+    /**
+     * Builds the index from the stored plans of a schedule and registers it as a listener.
+     *
+     * @param schedule the schedule to index
+     */
+	public ItemUsageIndex(Schedule schedule) {
+		this.schedule = schedule;
+		this.usages = new HashMap<>();
+		this.itemsByDay = new HashMap<>();
+		rebuild();
+		schedule.addListener(this);
+	}
+
+    /**
+     * Re-reads the plans of the changed dates.
+     *
+     * @param dates the dates whose plans changed
+     */
+	@Override
+	public synchronized void plansChanged(Set<LocalDate> dates) {
+		if (definitions != LibraryItem.getDefinitionChanges()) {
+			rebuild();
+			return;
+		}
+		for (LocalDate date : dates) {
+			unindex(date.toEpochDay());
+			DailyPlan plan = schedule.peekDailyPlan(date);
+			if (plan != null)
+				index(plan);
+		}
+	}
+
+    /**
+     * Indexes the stored plans of days whose recurring occurrences are no longer pending.
+     *
+     * @param dates the dates whose occurrences were materialized
+     */
+	@Override
+	public void occurrencesMaterialized(Set<LocalDate> dates) {
+		plansChanged(dates);
+	}
+
+    /**
+     * Returns the days on which the item is used, including pending recurring occurrences.
+     *
+     * @param item the food or sport
+     * @return the dates in ascending order
+     */
+	public synchronized NavigableSet<LocalDate> getDays(LibraryItem item) {
+		NavigableSet<LocalDate> dates = new TreeSet<>();
+		Usage usage = usages.get(item.getId());
+		if (usage != null) {
+			for (long day : usage.days.keySet())
+				dates.add(LocalDate.ofEpochDay(day));
+		}
+		for (RecurringPlan recurring : schedule.getRecurringPlans()) {
+			if (countTemplateUses(recurring, item) > 0)
+				dates.addAll(recurring.getPendingDates());
+		}
+		return dates;
+	}
+
+    /**
+     * Returns the ids of the stored entries of a day that refer to the item.
+     *
+     * @param item the food or sport
+     * @param date the day to read
+     * @return the entry ids, empty if the item is not used on that day
+     */
+	public synchronized List<String> getEntryIds(LibraryItem item, LocalDate date) {
+		Usage usage = usages.get(item.getId());
+		Posting posting = usage == null ? null : usage.days.get(date.toEpochDay());
+		return posting == null ? List.of() : Collections.unmodifiableList(new ArrayList<>(posting.entryIds));
+	}
+
+    /**
+     * Returns the number of entries referring to the item, including pending recurring occurrences.
+     *
+     * @param item the food or sport
+     * @return the number of uses
+     */
+	public synchronized int getUseCount(LibraryItem item) {
+		Usage usage = usages.get(item.getId());
+		int count = usage == null ? 0 : usage.count;
+		for (RecurringPlan recurring : schedule.getRecurringPlans()) {
+			int uses = countTemplateUses(recurring, item);
+			if (uses > 0)
+				count += uses * recurring.getPendingCount();
+		}
+		return count;
+	}
+
+    /**
+     * Returns the calories of all entries referring to the item, including pending recurring occurrences.
+     * Burned calories are negative, as returned by {@link Entry#calculateCalories()}.
+     *
+     * @param item the food or sport
+     * @return the total calories
+     */
+	public synchronized double getTotalCalories(LibraryItem item) {
+		if (definitions != LibraryItem.getDefinitionChanges())
+			rebuild();
+		Usage usage = usages.get(item.getId());
+		double total = usage == null ? 0 : usage.calories;
+		for (RecurringPlan recurring : schedule.getRecurringPlans()) {
+			double calories = 0;
+			for (Entry entry : recurring.getTemplate()) {
+				if (isFor(entry, item))
+					calories += entry.calculateCalories();
+			}
+			if (calories != 0)
+				total += calories * recurring.getPendingCount();
+		}
+		return total;
+	}
+
+    /**
+     * Returns the total amount of the item, in grams for food and in minutes for sport,
+     * including pending recurring occurrences.
+     *
+     * @param item the food or sport
+     * @return the total amount
+     */
+	public synchronized double getTotalAmount(LibraryItem item) {
+		Usage usage = usages.get(item.getId());
+		double total = usage == null ? 0 : usage.amount;
+		for (RecurringPlan recurring : schedule.getRecurringPlans()) {
+			double amount = 0;
+			for (Entry entry : recurring.getTemplate()) {
+				if (isFor(entry, item))
+					amount += amountOf(entry);
+			}
+			if (amount != 0)
+				total += amount * recurring.getPendingCount();
+		}
+		return total;
+	}
+
+    /**
+     * Returns the time-decayed usage score of an item as of today.
+     * Pending recurring occurrences are not counted.
+     *
+     * @param itemId the id of the food or sport
+     * @return the score, 0 if the item has never been used
+     */
+	public synchronized double getUsageScore(String itemId) {
+		Usage usage = usages.get(itemId);
+		if (usage == null)
+			return 0;
+		return Math.max(0, usage.score * decay(LocalDate.now().toEpochDay() - usage.scoreDay));
+	}
+
+	private void rebuild() {
+		definitions = LibraryItem.getDefinitionChanges();
+		usages.clear();
+		itemsByDay.clear();
+		schedule.forEachStoredPlan(this::index);
+	}
+
+	private void index(DailyPlan plan) {
+		long day = plan.getDate().toEpochDay();
+		long scoreDay = Math.min(day, LocalDate.now().toEpochDay());
+		for (Entry entry : plan.getEntries()) {
+			String itemId = itemOf(entry).getId();
+			Usage usage = usages.computeIfAbsent(itemId, id -> new Usage(scoreDay));
+			Posting posting = usage.days.computeIfAbsent(day, d -> new Posting());
+			posting.scoreDay = scoreDay;
+			double calories = entry.calculateCalories();
+			double amount = amountOf(entry);
+			posting.entryIds.add(entry.getId());
+			posting.calories += calories;
+			posting.amount += amount;
+			usage.count++;
+			usage.calories += calories;
+			usage.amount += amount;
+			usage.addScore(scoreDay, 1);
+			itemsByDay.computeIfAbsent(day, d -> new HashSet<>()).add(itemId);
+		}
+	}
+
+	private void unindex(long day) {
+		Set<String> itemIds = itemsByDay.remove(day);
+		if (itemIds == null)
+			return;
+		for (String itemId : itemIds) {
+			Usage usage = usages.get(itemId);
+			Posting posting = usage.days.remove(day);
+			usage.count -= posting.entryIds.size();
+			usage.calories -= posting.calories;
+			usage.amount -= posting.amount;
+			usage.addScore(posting.scoreDay, -posting.entryIds.size());
+			if (usage.days.isEmpty())
+				usages.remove(itemId);
+		}
+	}
+
+	private static double decay(long days) {
+		return Math.pow(0.5, (double) days / HALF_LIFE_DAYS);
+	}
+
+	private static int countTemplateUses(RecurringPlan recurring, LibraryItem item) {
+		int uses = 0;
+		for (Entry entry : recurring.getTemplate()) {
+			if (isFor(entry, item))
+				uses++;
+		}
+		return uses;
+	}
+
+	private static boolean isFor(Entry entry, LibraryItem item) {
+		return itemOf(entry).getId().equals(item.getId());
+	}
+
+	private static LibraryItem itemOf(Entry entry) {
+		return entry instanceof FoodEntry ? ((FoodEntry) entry).getFood() : ((ExerciseEntry) entry).getSport();
+	}
+
+	private static double amountOf(Entry entry) {
+		if (entry instanceof FoodEntry)
+			return ((FoodEntry) entry).getGram() * ((FoodEntry) entry).getQuantity();
+		if (entry instanceof RepBasedExerciseEntry)
+			return ((RepBasedExerciseEntry) entry).totalMinutes();
+		return ((TimeBasedExerciseEntry) entry).getDuration();
+	}
+}
@@ -1,63 +1,128 @@
 package object;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 
 import application.AppContext;
+import object.BinaryCatalog.Section;
+import object.Food.FoodCategory;
 import object.LibraryItem.LibraryType;
 
 /**
  * Represents a library that stores predefined and user-added {@link Food} and {@link Sport} items.
  * <p>
- * The library is preloaded with a set of default items and also supports 
- * adding new validated foods and sports. Items are stored in maps keyed by their unique IDs.
+ * Predefined items come from a {@link BinaryCatalog} that is memory-mapped at startup.
+ * Catalog items are only materialized into objects when they are looked up or returned
+ * by a search, and the same object is returned for every later lookup.
+ * New validated foods and sports can be added at runtime; they are stored in maps keyed by their unique IDs.
+ * The maps are concurrent so that large catalogs can be imported in the background
+ * (see {@link CatalogImporter}) while the library page is being browsed.
+ * </p>
+ * <p>
+ * Searches can also be ranked by a score per item id, such as the usage score of
+ * {@link ItemUsageIndex}. Only the requested number of best matches is kept in a bounded heap,
+ * so the first page of a large catalog is found without sorting or materializing every match.
+ * </p>
+ * <p>
+ * For names that are misspelled, {@link #fuzzySearchFoods(String, FoodCategory, int)} and
+ * {@link #fuzzySearchSports(String, Boolean, int)} search a {@link TrigramIndex} of all names.
+ * The indexes are built on first use, or ahead of time with {@link #prepareFuzzySearch()},
+ * and items added afterwards are indexed as they are added. The catalog names are indexed without
+ * holding the library lock, so items can be added and looked up while a background build runs.
  * </p>
  */
 public class Library {
+	private static final String CATALOG_RESOURCE = "/DefaultCatalog.bin";
+	
+	/**
+	 * Orders ranked candidates from the weakest to the strongest: lower score first,
+	 * and on equal scores the one found later in search order first.
+	 */
+	private static final Comparator<Candidate> WEAKEST_FIRST =
+			Comparator.comparingDouble((Candidate candidate) -> candidate.score).thenComparing(candidate -> -candidate.order);
+	
+	/**
+	 * Time budget of a fuzzy search, short enough to run on every keystroke.
+	 */
+	private static final long FUZZY_BUDGET_NANOS = 50_000_000L;
+	
+	private BinaryCatalog catalog;
 	private Map<String, Food> foodList;
 	private Map<String, Sport> sportList;
+	private Map<String, Food> catalogFoods;
+	private Map<String, Sport> catalogSports;
+	private TrigramIndex foodNames;
+	private TrigramIndex sportNames;
+	private List<Food> indexedFoods;
+	private List<Sport> indexedSports;
+	private final Object fuzzyBuild = new Object();
 	
     /**
-     * Creates a new library and initializes it with default food and sport items.
+     * A match found during a ranked search, either a catalog record or an added item.
+     */
+	private static class Candidate {
+		private final double score;
+		private final int order;
+		private final int record;
+		private final LibraryItem item;
+		
+		private Candidate(double score, int order, int record, LibraryItem item) {
+			this.score = score;
+			this.order = order;
+			this.record = record;
+			this.item = item;
+		}
+	}
+	
+    /**
+     * Creates a new library backed by the bundled default catalog.
      */
     public Library() { 	
-    	foodList = new HashMap<>();
-    	sportList = new HashMap<>();
-    	intializeItem();
+    	this(loadDefaultCatalog());
     }   
+    
+    /**
+     * Creates a new library backed by the given catalog.
+     *
+     * @param catalog the catalog providing the predefined items
+     */
+    public Library(BinaryCatalog catalog) {
+    	this.catalog = catalog;
+    	foodList = new ConcurrentHashMap<>();
+    	sportList = new ConcurrentHashMap<>();
+    	catalogFoods = new ConcurrentHashMap<>();
+    	catalogSports = new ConcurrentHashMap<>();
+    }
 	
     /**
-     * Initializes the library with a set of default {@link Food} and {@link Sport} items.
-     * These items are added to the library at startup so that users have
-     * some predefined options available before adding their own.
-     */
-    private void intializeItem() {
-    	addNewFood(new Food("FOOD_001", "Apple", LibraryType.DEFAULT, Food.FoodCategory.PRODUCE, 0.52, 150));
-    	addNewFood(new Food("FOOD_002", "Banana", LibraryType.DEFAULT, Food.FoodCategory.PRODUCE, 0.96, 120));
-    	addNewFood(new Food("FOOD_003", "Orange", LibraryType.DEFAULT, Food.FoodCategory.PRODUCE, 0.47, 130));
-    	addNewFood(new Food("FOOD_004", "Rice", LibraryType.DEFAULT, Food.FoodCategory.GRAIN, 1.3, 100));
-    	addNewFood(new Food("FOOD_005", "Bread", LibraryType.DEFAULT, Food.FoodCategory.GRAIN, 2.5, 50));
-    	addNewFood(new Food("FOOD_006", "Chicken Breast", LibraryType.DEFAULT, Food.FoodCategory.PROTEIN, 1.65, 100));
-    	addNewFood(new Food("FOOD_007", "Egg", LibraryType.DEFAULT, Food.FoodCategory.PROTEIN, 1.55, 50));
-    	addNewFood(new Food("FOOD_008", "Milk", LibraryType.DEFAULT, Food.FoodCategory.DAIRY, 0.64, 200));
-    	addNewFood(new Food("FOOD_009", "Cheese", LibraryType.DEFAULT, Food.FoodCategory.DAIRY, 4.0, 30));
-    	addNewFood(new Food("FOOD_010", "Almonds", LibraryType.DEFAULT, Food.FoodCategory.OTHER, 5.7, 30));
-    	addNewFood(new Food("FOOD_011", "Chocolate", LibraryType.DEFAULT, Food.FoodCategory.OTHER, 5.3, 20));
-    	addNewFood(new Food("FOOD_012", "Yogurt", LibraryType.DEFAULT, Food.FoodCategory.DAIRY, 0.6, 150));
-
-    	addNewSport(new Sport("SPORT_001", "Running", LibraryType.DEFAULT, 9.8));
-    	addNewSport(new Sport("SPORT_002", "Walking", LibraryType.DEFAULT, 3.5));
-    	addNewSport(new Sport("SPORT_003", "Push-ups", LibraryType.DEFAULT, 8.0, 2)); 
-    	addNewSport(new Sport("SPORT_004", "Plank", LibraryType.DEFAULT, 4.0, 60));   
-    	addNewSport(new Sport("SPORT_005", "Cycling", LibraryType.DEFAULT, 7.5));
-    	addNewSport(new Sport("SPORT_006", "Jump Rope", LibraryType.DEFAULT, 12.3));
-    	addNewSport(new Sport("SPORT_007", "Squats", LibraryType.DEFAULT, 7.0, 3));   
-    	addNewSport(new Sport("SPORT_008", "Swimming", LibraryType.DEFAULT, 8.0));
-    	addNewSport(new Sport("SPORT_009", "Yoga", LibraryType.DEFAULT, 3.0, 60));    
-    	addNewSport(new Sport("SPORT_010", "Elliptical", LibraryType.DEFAULT, 5.0));
-    	addNewSport(new Sport("SPORT_011", "Bench Press", LibraryType.DEFAULT, 6.0, 3));
-    	addNewSport(new Sport("SPORT_012", "Burpees", LibraryType.DEFAULT, 10.0, 4));
-        
+     * Opens the bundled default catalog.
+     * If the resource is missing or unreadable, an empty catalog is used instead.
+     *
+     * @return the default catalog
+     */
+    private static BinaryCatalog loadDefaultCatalog() {
+    	URL resource = Library.class.getResource(CATALOG_RESOURCE);
+    	if(resource == null) {
+    		System.err.println("Default catalog " + CATALOG_RESOURCE + " not found");
+    		return BinaryCatalog.empty();
+    	}
+    	try {
+			return BinaryCatalog.load(resource);
+		} catch (IOException | IllegalArgumentException e) {
+			e.printStackTrace();
+			return BinaryCatalog.empty();
+		}
     }
     
     /**
@@ -66,9 +131,10 @@ public class Library {
      * @param food the food item to add
      * @throws IllegalArgumentException if validation fails
      */
-	public void addNewFood(Food food) {	
+	public synchronized void addNewFood(Food food) {	
 		food.validate();
 		getFoodList().put(food.getId(),food);	
+		indexFood(food);
 	} 
 	
     /**
@@ -77,15 +143,398 @@ public class Library {
      * @param sport the sport item to add
      * @throws IllegalArgumentException if validation fails
      */
-	public void addNewSport(Sport sport) {
+	public synchronized void addNewSport(Sport sport) {
 		sport.validate();
 		getSportList().put(sport.getId(),sport);
+		indexSport(sport);
+	}
+	
+    /**
+     * Adds a batch of foods to the library.
+     * All foods are validated before any of them is added.
+     *
+     * @param foods the food items to add
+     * @throws IllegalArgumentException if validation of any food fails
+     */
+	public synchronized void addNewFoods(Collection<Food> foods) {
+		for(Food food : foods)
+			food.validate();
+		for(Food food : foods) {
+			getFoodList().put(food.getId(), food);
+			indexFood(food);
+		}
+	}
+	
+    /**
+     * Adds a batch of sports to the library.
+     * All sports are validated before any of them is added.
+     *
+     * @param sports the sport items to add
+     * @throws IllegalArgumentException if validation of any sport fails
+     */
+	public synchronized void addNewSports(Collection<Sport> sports) {
+		for(Sport sport : sports)
+			sport.validate();
+		for(Sport sport : sports) {
+			getSportList().put(sport.getId(), sport);
+			indexSport(sport);
+		}
+	}
+	
+    /**
+     * Returns the food with the given id, materializing it from the catalog if needed.
+     *
+     * @param id the id of the food
+     * @return the food, or {@code null} if no food has this id
+     */
+	public Food getFood(String id) {
+		Food food = getFoodList().get(id);
+		if(food != null)
+			return food;
+		int record = catalog.foods().findById(id);
+		return record < 0 ? null : materializeFood(record);
+	}
+	
+    /**
+     * Returns the sport with the given id, materializing it from the catalog if needed.
+     *
+     * @param id the id of the sport
+     * @return the sport, or {@code null} if no sport has this id
+     */
+	public Sport getSport(String id) {
+		Sport sport = getSportList().get(id);
+		if(sport != null)
+			return sport;
+		int record = catalog.sports().findById(id);
+		return record < 0 ? null : materializeSport(record);
+	}
+	
+    /**
+     * Searches non-archived foods whose name contains the given text, ignoring case.
+     * Catalog items are matched on their stored name and category, and only matches are materialized.
+     * Catalog results come first in name order, followed by foods added at runtime.
+     *
+     * @param text     the text to search for, empty or {@code null} to match every name
+     * @param category the category to match, or {@code null} for all categories
+     * @return the matching foods
+     */
+	public List<Food> searchFoods(String text, FoodCategory category) {
+		String search = text == null ? "" : text.toLowerCase();
+		List<Food> results = new ArrayList<>();
+		Section section = catalog.foods();
+		for(int rank = 0; rank < section.size(); rank++) {
+			int record = section.getRecordByNameRank(rank);
+			if(category != null && !catalog.isFoodCategory(record, category))
+				continue;
+			if(!search.isEmpty() && !section.getName(record).toLowerCase().contains(search))
+				continue;
+			results.add(materializeFood(record));
+		}
+		for(Food food : getFoodList().values()) {
+			if(category != null && food.getCategory() != category)
+				continue;
+			if(matches(food, search))
+				results.add(food);
+		}
+		results.removeIf(food -> food.getLibraryType() == LibraryType.ARCHIVED);
+		return results;
+	}
+	
+    /**
+     * Searches non-archived sports whose name contains the given text, ignoring case.
+     * Catalog items are matched on their stored name and kind, and only matches are materialized.
+     * Catalog results come first in name order, followed by sports added at runtime.
+     *
+     * @param text     the text to search for, empty or {@code null} to match every name
+     * @param repBased {@code true} for rep-based sports, {@code false} for time-based sports, 
+     *                 or {@code null} for both
+     * @return the matching sports
+     */
+	public List<Sport> searchSports(String text, Boolean repBased) {
+		String search = text == null ? "" : text.toLowerCase();
+		List<Sport> results = new ArrayList<>();
+		Section section = catalog.sports();
+		for(int rank = 0; rank < section.size(); rank++) {
+			int record = section.getRecordByNameRank(rank);
+			if(repBased != null && catalog.isRepBased(record) != repBased)
+				continue;
+			if(!search.isEmpty() && !section.getName(record).toLowerCase().contains(search))
+				continue;
+			results.add(materializeSport(record));
+		}
+		for(Sport sport : getSportList().values()) {
+			if(repBased != null && sport.isRepBased() != repBased)
+				continue;
+			if(matches(sport, search))
+				results.add(sport);
+		}
+		results.removeIf(sport -> sport.getLibraryType() == LibraryType.ARCHIVED);
+		return results;
+	}
+	
+    /**
+     * Searches non-archived foods like {@link #searchFoods(String, FoodCategory)}, returning only
+     * the best scored matches. Items with equal scores keep their search order.
+     *
+     * @param text     the text to search for, empty or {@code null} to match every name
+     * @param category the category to match, or {@code null} for all categories
+     * @param score    the score of an item id, higher first
+     * @param limit    the maximum number of results
+     * @return at most {@code limit} matching foods, best first
+     */
+	public List<Food> searchFoods(String text, FoodCategory category, ToDoubleFunction<String> score, int limit) {
+		String search = text == null ? "" : text.toLowerCase();
+		Section section = catalog.foods();
+		return topMatches(section,
+				record -> (category == null || catalog.isFoodCategory(record, category)) && matches(section, record, search),
+				this::materializeFood,
+				getFoodList().values(),
+				food -> (category == null || food.getCategory() == category) && matches(food, search),
+				score, limit);
+	}
+	
+    /**
+     * Searches non-archived sports like {@link #searchSports(String, Boolean)}, returning only
+     * the best scored matches. Items with equal scores keep their search order.
+     *
+     * @param text     the text to search for, empty or {@code null} to match every name
+     * @param repBased {@code true} for rep-based sports, {@code false} for time-based sports, 
+     *                 or {@code null} for both
+     * @param score    the score of an item id, higher first
+     * @param limit    the maximum number of results
+     * @return at most {@code limit} matching sports, best first
+     */
+	public List<Sport> searchSports(String text, Boolean repBased, ToDoubleFunction<String> score, int limit) {
+		String search = text == null ? "" : text.toLowerCase();
+		Section section = catalog.sports();
+		return topMatches(section,
+				record -> (repBased == null || catalog.isRepBased(record) == repBased) && matches(section, record, search),
+				this::materializeSport,
+				getSportList().values(),
+				sport -> (repBased == null || sport.isRepBased() == repBased) && matches(sport, search),
+				score, limit);
+	}
+	
+    /**
+     * Keeps the {@code limit} best scored matches in a min-heap whose head is the weakest kept match,
+     * then materializes only those, best first.
+     */
+	@SuppressWarnings("unchecked")
+	private <T extends LibraryItem> List<T> topMatches(Section section, IntPredicate recordMatches, IntFunction<T> materialize,
+			Collection<T> added, Predicate<T> addedMatches, ToDoubleFunction<String> score, int limit) {
+		List<T> results = new ArrayList<>();
+		if(limit <= 0)
+			return results;
+		
+		PriorityQueue<Candidate> heap = new PriorityQueue<>(limit + 1, WEAKEST_FIRST);
+		int order = 0;
+		for(int rank = 0; rank < section.size(); rank++) {
+			int record = section.getRecordByNameRank(rank);
+			if(recordMatches.test(record))
+				offer(heap, score.applyAsDouble(section.getId(record)), order++, record, null, limit);
+		}
+		for(T item : added) {
+			if(item.getLibraryType() != LibraryType.ARCHIVED && addedMatches.test(item))
+				offer(heap, score.applyAsDouble(item.getId()), order++, -1, item, limit);
+		}
+		
+		List<Candidate> best = new ArrayList<>(heap);
+		best.sort(WEAKEST_FIRST.reversed());
+		for(Candidate candidate : best)
+			results.add(candidate.item != null ? (T) candidate.item : materialize.apply(candidate.record));
+		return results;
+	}
+	
+	private static void offer(PriorityQueue<Candidate> heap, double score, int order, int record, LibraryItem item, int limit) {
+		if(heap.size() == limit) {
+			//a later candidate only replaces the weakest one if it scores strictly higher
+			if(score <= heap.peek().score)
+				return;
+			heap.poll();
+		}
+		heap.add(new Candidate(score, order, record, item));
+	}
+	
+    /**
+     * Searches non-archived foods whose name is close to the given text, tolerating typos
+     * such as "chiken" for "chicken". Results are ordered by edit distance, closest first.
+     *
+     * @param text     the text to search for
+     * @param category the category to match, or {@code null} for all categories
+     * @param limit    the maximum number of results
+     * @return at most {@code limit} matching foods, closest first
+     */
+	public List<Food> fuzzySearchFoods(String text, FoodCategory category, int limit) {
+		prepareFuzzySearch();
+		synchronized(this) {
+			TrigramIndex index = foodNames;
+			List<Food> added = indexedFoods;
+			Section section = catalog.foods();
+			int catalogSize = section.size();
+			IntPredicate accept = id -> id < catalogSize
+					? category == null || catalog.isFoodCategory(id, category)
+					: added.get(id - catalogSize).getLibraryType() != LibraryType.ARCHIVED
+						&& (category == null || added.get(id - catalogSize).getCategory() == category);
+			IntFunction<String> nameOf = id -> id < catalogSize ? section.getName(id) : added.get(id - catalogSize).getName();
+		
+			List<Food> results = new ArrayList<>();
+			for(int id : index.search(text, accept, nameOf, limit, FUZZY_BUDGET_NANOS))
+				results.add(id < catalogSize ? materializeFood(id) : added.get(id - catalogSize));
+			return results;
+		}
+	}
+	
+    /**
+     * Searches non-archived sports whose name is close to the given text, tolerating typos.
+     * Results are ordered by edit distance, closest first.
+     *
+     * @param text     the text to search for
+     * @param repBased {@code true} for rep-based sports, {@code false} for time-based sports, 
+     *                 or {@code null} for both
+     * @param limit    the maximum number of results
+     * @return at most {@code limit} matching sports, closest first
+     */
+	public List<Sport> fuzzySearchSports(String text, Boolean repBased, int limit) {
+		prepareFuzzySearch();
+		synchronized(this) {
+			TrigramIndex index = sportNames;
+			List<Sport> added = indexedSports;
+			Section section = catalog.sports();
+			int catalogSize = section.size();
+			IntPredicate accept = id -> id < catalogSize
+					? repBased == null || catalog.isRepBased(id) == repBased
+					: added.get(id - catalogSize).getLibraryType() != LibraryType.ARCHIVED
+						&& (repBased == null || added.get(id - catalogSize).isRepBased() == repBased);
+			IntFunction<String> nameOf = id -> id < catalogSize ? section.getName(id) : added.get(id - catalogSize).getName();
+		
+			List<Sport> results = new ArrayList<>();
+			for(int id : index.search(text, accept, nameOf, limit, FUZZY_BUDGET_NANOS))
+				results.add(id < catalogSize ? materializeSport(id) : added.get(id - catalogSize));
+			return results;
+		}
+	}
+	
+    /**
+     * Builds the name indexes used by fuzzy search, if they have not been built yet.
+     * Catalog records are indexed under their record number, followed by the items added at runtime.
+     * This may take a while for large catalogs, so it can be called on a background thread
+     * before the first search. The catalog is only read while building, and the indexes are
+     * published under the library lock together with the items added in the meantime.
+     */
+	public void prepareFuzzySearch() {
+		synchronized(fuzzyBuild) {
+			synchronized(this) {
+				if(foodNames != null)
+					return;
+			}
+			TrigramIndex catalogFoodNames = new TrigramIndex();
+			TrigramIndex catalogSportNames = new TrigramIndex();
+			Section foods = catalog.foods();
+			for(int record = 0; record < foods.size(); record++)
+				catalogFoodNames.add(foods.getName(record));
+			Section sports = catalog.sports();
+			for(int record = 0; record < sports.size(); record++)
+				catalogSportNames.add(sports.getName(record));
+			
+			synchronized(this) {
+				foodNames = catalogFoodNames;
+				sportNames = catalogSportNames;
+				indexedFoods = new ArrayList<>();
+				indexedSports = new ArrayList<>();
+				for(Food food : getFoodList().values())
+					indexFood(food);
+				for(Sport sport : getSportList().values())
+					indexSport(sport);
+			}
+		}
+	}
+	
+	private void indexFood(Food food) {
+		if(foodNames == null)
+			return;
+		foodNames.add(food.getName());
+		indexedFoods.add(food);
+	}
+	
+	private void indexSport(Sport sport) {
+		if(sportNames == null)
+			return;
+		sportNames.add(sport.getName());
+		indexedSports.add(sport);
+	}
+	
+    /**
+     * Finds a food by its exact name, ignoring case.
+     * Catalog items are looked up in the name index; non-archived items are preferred
+     * over archived ones, so that old records can still be matched after an item is archived.
+     *
+     * @param name the name of the food
+     * @return the matching food, or {@code null} if no food has this name
+     */
+	public Food findFoodByName(String name) {
+		int record = catalog.foods().findByName(name);
+		Food match = record < 0 ? null : materializeFood(record);
+		for(Food food : getFoodList().values()) {
+			if(match != null && match.getLibraryType() != LibraryType.ARCHIVED)
+				break;
+			if(food.getName() != null && food.getName().equalsIgnoreCase(name) && (match == null || food.getLibraryType() != LibraryType.ARCHIVED))
+				match = food;
+		}
+		return match;
+	}
+	
+    /**
+     * Finds a sport by its exact name, ignoring case.
+     * Catalog items are looked up in the name index; non-archived items are preferred
+     * over archived ones, so that old records can still be matched after an item is archived.
+     *
+     * @param name the name of the sport
+     * @return the matching sport, or {@code null} if no sport has this name
+     */
+	public Sport findSportByName(String name) {
+		int record = catalog.sports().findByName(name);
+		Sport match = record < 0 ? null : materializeSport(record);
+		for(Sport sport : getSportList().values()) {
+			if(match != null && match.getLibraryType() != LibraryType.ARCHIVED)
+				break;
+			if(sport.getName() != null && sport.getName().equalsIgnoreCase(name) && (match == null || sport.getLibraryType() != LibraryType.ARCHIVED))
+				match = sport;
+		}
+		return match;
+	}
+	
+	private static boolean matches(Section section, int record, String search) {
+		return search.isEmpty() || section.getName(record).toLowerCase().contains(search);
+	}
+	
+	private static boolean matches(LibraryItem item, String search) {
+		return search.isEmpty() || (item.getName() != null && item.getName().toLowerCase().contains(search));
+	}
+	
+	private Food materializeFood(int record) {
+		return catalogFoods.computeIfAbsent(catalog.foods().getId(record), id -> catalog.readFood(record));
+	}
+	
+	private Sport materializeSport(int record) {
+		return catalogSports.computeIfAbsent(catalog.sports().getId(record), id -> catalog.readSport(record));
 	}
 
+    /**
+     * Returns the foods added at runtime (custom or imported), keyed by id.
+     * Catalog items are reached through {@link #getFood(String)} and {@link #searchFoods(String, FoodCategory)}.
+     *
+     * @return the map of added foods
+     */
 	public Map<String, Food> getFoodList() {
 		return foodList;
 	}
 
+    /**
+     * Returns the sports added at runtime (custom or imported), keyed by id.
+     * Catalog items are reached through {@link #getSport(String)} and {@link #searchSports(String, Boolean)}.
+     *
+     * @return the map of added sports
+     */
 	public Map<String, Sport> getSportList() {
 		return sportList;
 	}
@@ -1,5 +1,6 @@
 package object;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a generic item stored in a library.
@@ -12,9 +13,12 @@ import java.util.UUID;
  */
 public abstract class LibraryItem {
 	
+	private static final AtomicInteger DEFINITION_CHANGES = new AtomicInteger();
+	
 	private String id;
 	private String name;
 	private LibraryType libraryType;
+	private final AtomicInteger revision = new AtomicInteger();
 	
     /**
      * Defines the possible categories of a library item.
@@ -99,6 +103,39 @@ public abstract class LibraryItem {
 		return libraryType;
 	}
 
+    /**
+     * Returns the revision of this item's definition.
+     * <p>
+     * The revision starts at 0 and increases each time a value used for
+     * calorie calculation changes, so entries and cached totals that refer
+     * to this item can detect that they are out of date.
+     * </p>
+     *
+     * @return the current revision
+     */
+	public int getRevision() {
+		return revision.get();
+	}
+
+    /**
+     * Marks the definition of this item as changed.
+     * Subclasses call this after updating a value used for calorie calculation.
+     */
+	protected void definitionChanged() {
+		revision.incrementAndGet();
+		DEFINITION_CHANGES.incrementAndGet();
+	}
+
+    /**
+     * Returns how many times the definition of any item has changed,
+     * so totals over many items can tell whether one of them is out of date.
+     *
+     * @return the number of definition changes of all items
+     */
+	static int getDefinitionChanges() {
+		return DEFINITION_CHANGES.get();
+	}
+
     /**
      * Archives this item if it is of type {@link LibraryType#CUSTOM}.
      * <p>
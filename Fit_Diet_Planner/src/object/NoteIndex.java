@@ -0,0 +1,372 @@
+package object;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An inverted full-text index over the notes of the entries of a {@link Schedule}.
+ * <p>
+ * Notes are split into lower-case words of letters and digits. Every entry with a note becomes a
+ * document with a sequential id, and for every word the index keeps a posting list of the documents
+ * containing it. Since ids only grow, each list is stored as a byte array of delta-encoded ids
+ * followed by the word count, both written as varints, and new documents are simply appended.
+ * </p>
+ * <p>
+ * The index listens to the schedule. When the plans of a day change, the documents of that day are
+ * marked as deleted in a tombstone set and the day's notes are indexed again under new ids. Posting
+ * lists are rewritten without the deleted documents once these outnumber the live ones.
+ * </p>
+ * <p>
+ * A query matches the notes containing all of its words, where the last word may also be the start
+ * of a word so results appear while typing. Matches are ranked by TF-IDF, scaled down for long notes,
+ * with more recent dates first on equal scores. Pending recurring occurrences are not indexed until
+ * their day is materialized.
+ * </p>
+ */
+public class NoteIndex implements ScheduleListener {
+
+	/**
+	 * Minimum number of deleted documents before the posting lists are compacted.
+	 */
+	private static final int MIN_COMPACT = 1024;
+
+	private final Schedule schedule;
+	private final NavigableMap<String, Postings> postings;
+	private final Map<Long, int[]> docsByDay;
+	private final BitSet deleted;
+	private int[] docDays;
+	private String[] docEntryIds;
+	private int[] docLengths;
+	private int docCount;
+	private int deletedCount;
+
+    /**
+     * The documents containing one word, as varint pairs of id delta and word count.
+     */
+	private static class Postings {
+		private byte[] data = new byte[8];
+		private int length;
+		private int lastDoc;
+		private int docs;
+
+		private void add(int doc, int count) {
+			while (length + 10 > data.length)
+				data = Arrays.copyOf(data, data.length * 2);
+			length = writeVarInt(data, length, doc - lastDoc);
+			length = writeVarInt(data, length, count);
+			lastDoc = doc;
+			docs++;
+		}
+	}
+
+    /**
+     * An entry whose note matches a query.
+     */
+	public static class Match {
+		private final LocalDate date;
+		private final String entryId;
+		private final double score;
+
+		private Match(LocalDate date, String entryId, double score) {
+			this.date = date;
+			this.entryId = entryId;
+			this.score = score;
+		}
+
+		public LocalDate getDate() {
+			return date;
+		}
+
+		public String getEntryId() {
+			return entryId;
+		}
+
+		public double getScore() {
+			return score;
+		}
+	}
+
+    /**
+     * One page of ranked matches together with the total number of matches.
+     */
+	public static class Page {
+		private final List<Match> matches;
+		private final int total;
+
+		private Page(List<Match> matches, int total) {
+			this.matches = matches;
+			this.total = total;
+		}
+
+		public List<Match> getMatches() {
+			return matches;
+		}
+
+		public int getTotal() {
+			return total;
+		}
+	}
+
+    /**
+     * Builds the index from the stored plans of a schedule and registers it as a listener.
+     *
+     * @param schedule the schedule to index
+     */
+	public NoteIndex(Schedule schedule) {
+		this.schedule = schedule;
+		this.postings = new TreeMap<>();
+		this.docsByDay = new HashMap<>();
+		this.deleted = new BitSet();
+		this.docDays = new int[64];
+		this.docEntryIds = new String[64];
+		this.docLengths = new int[64];
+		schedule.forEachStoredPlan(this::index);
+		schedule.addListener(this);
+	}
+
+    /**
+     * Indexes the notes of the changed dates again.
+     *
+     * @param dates the dates whose plans changed
+     */
+	@Override
+	public synchronized void plansChanged(Set<LocalDate> dates) {
+		for (LocalDate date : dates) {
+			int[] docs = docsByDay.remove(date.toEpochDay());
+			if (docs != null) {
+				for (int doc : docs)
+					deleted.set(doc);
+				deletedCount += docs.length;
+			}
+			DailyPlan plan = schedule.peekDailyPlan(date);
+			if (plan != null)
+				index(plan);
+		}
+		if (deletedCount >= MIN_COMPACT && deletedCount > docCount - deletedCount)
+			compact();
+	}
+
+    /**
+     * Indexes the notes of days whose recurring occurrences are no longer pending.
+     *
+     * @param dates the dates whose occurrences were materialized
+     */
+	@Override
+	public void occurrencesMaterialized(Set<LocalDate> dates) {
+		plansChanged(dates);
+	}
+
+    /**
+     * Searches the notes containing every word of the query.
+     *
+     * @param query  the words to search for; the last one may be incomplete
+     * @param offset the number of ranked matches to skip
+     * @param limit  the maximum number of matches to return
+     * @return the requested page of matches, best first, and the total number of matches
+     */
+	public synchronized Page search(String query, int offset, int limit) {
+		List<String> words = tokenize(query);
+		if (words.isEmpty())
+			return new Page(List.of(), 0);
+
+		//start from the rarest word so the candidate set is as small as possible
+		List<Map<Integer, Integer>> wordMatches = new ArrayList<>();
+		for (int i = 0; i < words.size(); i++) {
+			boolean prefix = i == words.size() - 1;
+			Map<Integer, Integer> counts = decode(words.get(i), prefix);
+			if (counts.isEmpty())
+				return new Page(List.of(), 0);
+			wordMatches.add(counts);
+		}
+		wordMatches.sort(Comparator.comparingInt(Map::size));
+
+		List<Match> matches = new ArrayList<>();
+		int liveDocs = docCount - deletedCount;
+		for (Map.Entry<Integer, Integer> candidate : wordMatches.get(0).entrySet()) {
+			int doc = candidate.getKey();
+			double score = 0;
+			for (Map<Integer, Integer> counts : wordMatches) {
+				Integer count = counts.get(doc);
+				if (count == null) {
+					score = -1;
+					break;
+				}
+				score += (1 + Math.log(count)) * Math.log(1 + (double) liveDocs / counts.size());
+			}
+			if (score >= 0)
+				matches.add(new Match(LocalDate.ofEpochDay(docDays[doc]), docEntryIds[doc], score / Math.sqrt(docLengths[doc])));
+		}
+
+		matches.sort(Comparator.comparingDouble(Match::getScore).reversed()
+				.thenComparing(Comparator.comparing(Match::getDate).reversed()));
+		int from = Math.min(Math.max(offset, 0), matches.size());
+		int to = Math.min(from + Math.max(limit, 0), matches.size());
+		return new Page(Collections.unmodifiableList(new ArrayList<>(matches.subList(from, to))), matches.size());
+	}
+
+    /**
+     * Returns the number of indexed notes, excluding deleted ones.
+     *
+     * @return the number of live documents
+     */
+	public synchronized int size() {
+		return docCount - deletedCount;
+	}
+
+    /**
+     * Splits text into lower-case words of letters and digits.
+     *
+     * @param text the text to split
+     * @return the words in order of appearance
+     */
+	public static List<String> tokenize(String text) {
+		List<String> words = new ArrayList<>();
+		if (text == null)
+			return words;
+		String lower = text.toLowerCase();
+		int start = -1;
+		for (int i = 0; i <= lower.length(); i++) {
+			boolean letter = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+			if (letter && start < 0) {
+				start = i;
+			} else if (!letter && start >= 0) {
+				words.add(lower.substring(start, i));
+				start = -1;
+			}
+		}
+		return words;
+	}
+
+	private void index(DailyPlan plan) {
+		List<Integer> docs = new ArrayList<>();
+		for (Entry entry : plan.getEntries()) {
+			List<String> words = tokenize(entry.getNote());
+			if (words.isEmpty())
+				continue;
+			int doc = addDocument(plan.getDate(), entry.getId(), words.size());
+			Map<String, Integer> counts = new LinkedHashMap<>();
+			for (String word : words)
+				counts.merge(word, 1, Integer::sum);
+			for (Map.Entry<String, Integer> word : counts.entrySet())
+				postings.computeIfAbsent(word.getKey(), w -> new Postings()).add(doc, word.getValue());
+			docs.add(doc);
+		}
+		if (!docs.isEmpty()) {
+			int[] ids = new int[docs.size()];
+			for (int i = 0; i < ids.length; i++)
+				ids[i] = docs.get(i);
+			docsByDay.put(plan.getDate().toEpochDay(), ids);
+		}
+	}
+
+	private int addDocument(LocalDate date, String entryId, int length) {
+		if (docCount == docDays.length) {
+			docDays = Arrays.copyOf(docDays, docCount * 2);
+			docEntryIds = Arrays.copyOf(docEntryIds, docCount * 2);
+			docLengths = Arrays.copyOf(docLengths, docCount * 2);
+		}
+		docDays[docCount] = (int) date.toEpochDay();
+		docEntryIds[docCount] = entryId;
+		docLengths[docCount] = length;
+		return docCount++;
+	}
+
+    /**
+     * Decodes the live documents of a word, or of every word starting with it, with their word counts.
+     */
+	private Map<Integer, Integer> decode(String word, boolean prefix) {
+		Map<Integer, Integer> counts = new HashMap<>();
+		Map<String, Postings> lists = prefix
+				? postings.subMap(word, true, word + Character.MAX_VALUE, false)
+				: postings.containsKey(word) ? Map.of(word, postings.get(word)) : Map.of();
+		int[] position = new int[1];
+		for (Postings list : lists.values()) {
+			position[0] = 0;
+			int doc = 0;
+			while (position[0] < list.length) {
+				doc += readVarInt(list.data, position);
+				int count = readVarInt(list.data, position);
+				if (!deleted.get(doc))
+					counts.merge(doc, count, Integer::sum);
+			}
+		}
+		return counts;
+	}
+
+    /**
+     * Renumbers the live documents and rewrites every posting list without the deleted ones.
+     */
+	private void compact() {
+		int[] newIds = new int[docCount];
+		int live = 0;
+		for (int doc = 0; doc < docCount; doc++) {
+			if (deleted.get(doc)) {
+				newIds[doc] = -1;
+			} else {
+				newIds[doc] = live;
+				docDays[live] = docDays[doc];
+				docEntryIds[live] = docEntryIds[doc];
+				docLengths[live] = docLengths[doc];
+				live++;
+			}
+		}
+		Arrays.fill(docEntryIds, live, docCount, null);
+
+		int[] position = new int[1];
+		postings.entrySet().removeIf(word -> {
+			Postings old = word.getValue();
+			Postings rewritten = new Postings();
+			position[0] = 0;
+			int doc = 0;
+			while (position[0] < old.length) {
+				doc += readVarInt(old.data, position);
+				int count = readVarInt(old.data, position);
+				if (newIds[doc] >= 0)
+					rewritten.add(newIds[doc], count);
+			}
+			word.setValue(rewritten);
+			return rewritten.docs == 0;
+		});
+		for (Map.Entry<Long, int[]> day : docsByDay.entrySet()) {
+			int[] ids = day.getValue();
+			for (int i = 0; i < ids.length; i++)
+				ids[i] = newIds[ids[i]];
+		}
+
+		docCount = live;
+		deletedCount = 0;
+		deleted.clear();
+	}
+
+	private static int writeVarInt(byte[] data, int offset, int value) {
+		while ((value & ~0x7F) != 0) {
+			data[offset++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		data[offset++] = (byte) value;
+		return offset;
+	}
+
+	private static int readVarInt(byte[] data, int[] position) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = data[position[0]++];
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+}
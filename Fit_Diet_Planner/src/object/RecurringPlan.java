@@ -0,0 +1,253 @@
+package object;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import object.Entry.EntryType;
+
+/**
+ * Represents a plan that repeats on selected weekdays within a date range.
+ * <p>
+ * Instead of cloning the template entries into every matching day, a recurring plan stores the
+ * template once together with its rule: a set of weekdays, a date range and a set of exception dates.
+ * Occurrences stay virtual until their day is opened through {@link Schedule#getDailyPlan(LocalDate)};
+ * that day then references the shared template (see {@link DailyPlan}) and the date becomes an exception,
+ * so each occurrence is materialized at most once and entries are only copied when a day edits them.
+ * The number of pending occurrences is kept up to date, so a schedule can drop the plan once it reaches zero.
+ * </p>
+ * <p>
+ * The calorie totals of the template are computed once when the plan is created, so
+ * aggregates over many recurring days only count occurrences and multiply. They are
+ * recomputed only after a food or sport used by the template has been updated.
+ * </p>
+ */
+public class RecurringPlan {
+	private String id;
+	private DailyPlan.Template template;
+	private Set<DayOfWeek> days;
+	private LocalDate start;
+	private LocalDate end;
+	private Set<LocalDate> exceptions;
+	private int pendingCount;
+	private double[] intakeTotals;
+	private double[] burnTotals;
+	private double[] netTotals;
+	private int definitionRevision;
+
+    /**
+     * Creates a recurring plan.
+     *
+     * @param template   the validated planned entries of each occurrence, copied into an immutable list
+     * @param days       the weekdays on which the plan occurs
+     * @param start      the first date of the range (inclusive)
+     * @param end        the last date of the range (inclusive)
+     * @param exceptions dates within the range that are skipped
+     * @throws IllegalArgumentException if no weekday is given, the range is empty or an entry is not planned
+     */
+	public RecurringPlan(List<Entry> template, Set<DayOfWeek> days, LocalDate start, LocalDate end, Set<LocalDate> exceptions) {
+		if (days.isEmpty()) throw new IllegalArgumentException("At least one weekday is required");
+		if (start.isAfter(end)) throw new IllegalArgumentException("Start date must not be after end date");
+
+		this.id = UUID.randomUUID().toString();
+		this.template = new DailyPlan.Template(template);
+		this.days = EnumSet.copyOf(days);
+		this.start = start;
+		this.end = end;
+		this.exceptions = new HashSet<>(exceptions);
+		for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+			if (isPending(date))
+				pendingCount++;
+		}
+		computeTotals();
+	}
+
+    /**
+     * Checks whether the rule matches the given date, ignoring exceptions.
+     *
+     * @param date the date to check
+     * @return true if the date is in range and on one of the weekdays
+     */
+	public boolean occursOn(LocalDate date) {
+		return !date.isBefore(start) && !date.isAfter(end) && days.contains(date.getDayOfWeek());
+	}
+
+    /**
+     * Checks whether the given date still has a virtual occurrence.
+     *
+     * @param date the date to check
+     * @return true if the rule matches and the date is not an exception
+     */
+	public boolean isPending(LocalDate date) {
+		return occursOn(date) && !exceptions.contains(date);
+	}
+
+    /**
+     * Counts the virtual occurrences within a month.
+     *
+     * @param month the month to count
+     * @return the number of pending dates in the month
+     */
+	public int countPending(YearMonth month) {
+		int count = 0;
+		for (int day = 1; day <= month.lengthOfMonth(); day++) {
+			if (isPending(month.atDay(day)))
+				count++;
+		}
+		return count;
+	}
+
+    /**
+     * Returns the number of virtual occurrences left.
+     *
+     * @return the number of pending dates
+     */
+	public int getPendingCount() {
+		return pendingCount;
+	}
+
+    /**
+     * Returns the dates that still have a virtual occurrence.
+     *
+     * @return the pending dates in ascending order
+     */
+	public List<LocalDate> getPendingDates() {
+		List<LocalDate> dates = new ArrayList<>(pendingCount);
+		for (LocalDate date = start; dates.size() < pendingCount; date = date.plusDays(1)) {
+			if (isPending(date))
+				dates.add(date);
+		}
+		return dates;
+	}
+
+    /**
+     * Attaches the shared template to the given plan and marks its date as an exception.
+     * Does nothing if the plan's date has no pending occurrence.
+     *
+     * @param plan the plan of an occurrence date
+     * @return true if an occurrence was materialized
+     */
+	boolean materialize(DailyPlan plan) {
+		if (!isPending(plan.getDate()))
+			return false;
+		plan.shareEntries(template);
+		exceptions.add(plan.getDate());
+		pendingCount--;
+		return true;
+	}
+
+    /**
+     * Marks a date as an exception, removing its virtual occurrence.
+     *
+     * @param date the date to skip
+     */
+	void skip(LocalDate date) {
+		if (isPending(date)) {
+			exceptions.add(date);
+			pendingCount--;
+		}
+	}
+
+	public String getId() {
+		return id;
+	}
+
+    /**
+     * Returns the template entries shared by all occurrences.
+     * The entries must not be modified.
+     *
+     * @return an unmodifiable list of template entries
+     */
+	public List<Entry> getTemplate() {
+		return template.getEntries();
+	}
+
+	DailyPlan.Template getSharedTemplate() {
+		return template;
+	}
+
+	public Set<DayOfWeek> getDays() {
+		return Collections.unmodifiableSet(days);
+	}
+
+	public LocalDate getStart() {
+		return start;
+	}
+
+	public LocalDate getEnd() {
+		return end;
+	}
+
+	public Set<LocalDate> getExceptions() {
+		return Collections.unmodifiableSet(exceptions);
+	}
+
+    /**
+     * Returns the intake calories of one occurrence for the given entry type.
+     *
+     * @param type the entry type filter
+     * @return intake calories of the template
+     */
+	public double getIntakeCalories(EntryType type) {
+		if (templateRevision() != definitionRevision)
+			computeTotals();
+		return intakeTotals[type.ordinal()];
+	}
+
+    /**
+     * Returns the burn calories of one occurrence for the given entry type.
+     *
+     * @param type the entry type filter
+     * @return burn calories of the template
+     */
+	public double getBurnCalories(EntryType type) {
+		if (templateRevision() != definitionRevision)
+			computeTotals();
+		return burnTotals[type.ordinal()];
+	}
+
+    /**
+     * Returns the net calories of one occurrence for the given entry type.
+     *
+     * @param type the entry type filter
+     * @return net calories of the template
+     */
+	public double getNetCalories(EntryType type) {
+		if (templateRevision() != definitionRevision)
+			computeTotals();
+		return netTotals[type.ordinal()];
+	}
+
+	private void computeTotals() {
+		int typeCount = EntryType.values().length;
+		double[] intake = new double[typeCount];
+		double[] burn = new double[typeCount];
+		double[] net = new double[typeCount];
+		int revision = templateRevision();
+		DailyPlan sample = new DailyPlan(start);
+		sample.shareEntries(template);
+		for (EntryType type : EntryType.values()) {
+			intake[type.ordinal()] = sample.getIntakeCalories(type);
+			burn[type.ordinal()] = sample.getBurnCalories(type);
+			net[type.ordinal()] = sample.getNetCalories(type);
+		}
+		intakeTotals = intake;
+		burnTotals = burn;
+		netTotals = net;
+		definitionRevision = revision;
+	}
+
+	private int templateRevision() {
+		int revision = 0;
+		for (Entry entry : template.getEntries())
+			revision += entry.getDefinitionRevision();
+		return revision;
+	}
+}
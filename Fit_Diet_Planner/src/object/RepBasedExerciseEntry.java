@@ -66,7 +66,7 @@ public class RepBasedExerciseEntry extends ExerciseEntry {
      * @return the negative number of calories burned
      */
 	@Override
-	public double calculateCalories() {
+	protected double computeCalories() {
 		double durationHours = totalMinutes() / 60.0;
 		return -1 * durationHours * getWeight() * getSport().getMet();
 	}
@@ -138,6 +138,7 @@ public class RepBasedExerciseEntry extends ExerciseEntry {
 
 	public void setSets(int sets) {
 		this.sets = sets;
+		invalidateCalories();
 	}
 
 	public int getReps() {
@@ -146,6 +147,7 @@ public class RepBasedExerciseEntry extends ExerciseEntry {
 
 	public void setReps(int reps) {
 		this.reps = reps;
+		invalidateCalories();
 	}
 
 	public double getSecPerRep() {
@@ -154,6 +156,7 @@ public class RepBasedExerciseEntry extends ExerciseEntry {
 
 	public void setSecPerRep(double secPerRep) {
 		this.secPerRep = secPerRep;
+		invalidateCalories();
 	}
 
 
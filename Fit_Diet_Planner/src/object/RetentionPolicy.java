@@ -0,0 +1,51 @@
+package object;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Decides how long the individual entries of a {@link Schedule} are kept.
+ * <p>
+ * Months that ended more than the detail period ago are expired: their entries are replaced by a
+ * {@link DownsampledMonth} holding the totals of each day and the most used items of the month
+ * (see {@link Schedule#applyRetention(RetentionPolicy, LocalDate, int)}).
+ * </p>
+ */
+public class RetentionPolicy {
+	private final int detailMonths;
+	private final int topItems;
+
+    /**
+     * Creates a retention policy.
+     *
+     * @param detailMonths the number of months before the current one whose entries are kept
+     * @param topItems     the number of most used items kept for each expired month
+     * @throws IllegalArgumentException if the detail period is shorter than a month or topItems is negative
+     */
+	public RetentionPolicy(int detailMonths, int topItems) {
+		if (detailMonths < 1) throw new IllegalArgumentException("At least one month of entries must be kept");
+		if (topItems < 0) throw new IllegalArgumentException("Number of top items must not be negative");
+
+		this.detailMonths = detailMonths;
+		this.topItems = topItems;
+	}
+
+	public int getDetailMonths() {
+		return detailMonths;
+	}
+
+	public int getTopItems() {
+		return topItems;
+	}
+
+    /**
+     * Checks whether the entries of a month are past the detail period.
+     *
+     * @param month the month to check
+     * @param today the current date
+     * @return true if the month should be downsampled
+     */
+	public boolean isExpired(YearMonth month, LocalDate today) {
+		return month.isBefore(YearMonth.from(today).minusMonths(detailMonths));
+	}
+}
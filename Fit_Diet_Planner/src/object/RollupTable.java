@@ -0,0 +1,327 @@
+package object;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import object.Entry.EntryType;
+
+/**
+ * Precomputed calorie totals and entry counts of a {@link Schedule} per day, ISO week, month and year.
+ * <p>
+ * The table keeps one {@link Cell} per period that has entries, keyed by the first day of the
+ * period (see {@link Granularity#startOf(LocalDate)}). When the contents of a day change, the schedule
+ * replaces that day's cell; the difference to the old cell is then added to the week, month and
+ * year cells containing the day, so every change costs four cell updates however long the history is,
+ * and reports over years read a handful of cells instead of every entry.
+ * </p>
+ * <p>
+ * Each month also keeps a {@link CalorieHistogram} of the daily intake, burn and net calories
+ * per entry type, updated with the day cells, for percentiles over any range of dates. A day is
+ * only counted for the entry types it has entries of (see {@link Cell#hasEntries(EntryType)}).
+ * </p>
+ * <p>
+ * Cells are owned by the schedule and count pending recurring occurrences and
+ * {@link DownsampledMonth}s like stored entries.
+ * </p>
+ */
+public class RollupTable {
+
+	private final Map<Granularity, NavigableMap<Long, Cell>> cells;
+	private final Map<Long, CalorieHistogram[]> monthHistograms;
+
+    /**
+     * The totals of one period.
+     * <p>
+     * Intake, burn and net calories follow {@link DailyPlan#getIntakeCalories(EntryType)}:
+     * the {@link EntryType#PLANNED} totals also include completed planned entries.
+     * Entry counts are per exact type. Recorded entries linked to a completed planned entry
+     * are also summed separately for the {@link Adherence} of the period.
+     * </p>
+     */
+	public static class Cell {
+		private final double[] intake;
+		private final double[] burn;
+		private final int[] entries;
+		private final int[] foodEntries;
+		private int linkedEntries;
+		private double linkedNet;
+
+		Cell() {
+			int typeCount = EntryType.values().length;
+			intake = new double[typeCount];
+			burn = new double[typeCount];
+			entries = new int[typeCount];
+			foodEntries = new int[typeCount];
+		}
+
+		Cell(Cell other) {
+			intake = other.intake.clone();
+			burn = other.burn.clone();
+			entries = other.entries.clone();
+			foodEntries = other.foodEntries.clone();
+			linkedEntries = other.linkedEntries;
+			linkedNet = other.linkedNet;
+		}
+
+	    /**
+	     * Adds the totals and entries of a plan to this cell.
+	     *
+	     * @param plan the plan to add
+	     */
+		void add(DailyPlan plan) {
+			for (EntryType type : EntryType.values()) {
+				intake[type.ordinal()] += plan.getIntakeCalories(type);
+				burn[type.ordinal()] += plan.getBurnCalories(type);
+			}
+			for (Entry entry : plan.getEntries())
+				count(entry);
+		}
+
+	    /**
+	     * Adds one occurrence of a recurring plan to this cell.
+	     *
+	     * @param recurring the recurring plan with a pending occurrence
+	     */
+		void add(RecurringPlan recurring) {
+			for (EntryType type : EntryType.values()) {
+				intake[type.ordinal()] += recurring.getIntakeCalories(type);
+				burn[type.ordinal()] += recurring.getBurnCalories(type);
+			}
+			for (Entry entry : recurring.getTemplate())
+				count(entry);
+		}
+
+		void add(Cell other, int sign) {
+			for (int i = 0; i < entries.length; i++) {
+				intake[i] += sign * other.intake[i];
+				burn[i] += sign * other.burn[i];
+				entries[i] += sign * other.entries[i];
+				foodEntries[i] += sign * other.foodEntries[i];
+			}
+			linkedEntries += sign * other.linkedEntries;
+			linkedNet += sign * other.linkedNet;
+		}
+
+		private void count(Entry entry) {
+			entries[entry.getType().ordinal()]++;
+			if (entry instanceof FoodEntry)
+				foodEntries[entry.getType().ordinal()]++;
+			if (entry.getType() == EntryType.RECORDED && entry.getSourceEntryId() != null) {
+				linkedEntries++;
+				linkedNet += entry.calculateCalories();
+			}
+		}
+
+	    /**
+	     * Checks whether the period has entries counted in the totals of a type.
+	     * For {@link EntryType#PLANNED} this includes completed planned entries.
+	     *
+	     * @param type the entry type
+	     * @return true if the type's totals come from at least one entry
+	     */
+		boolean hasEntries(EntryType type) {
+			if (type == EntryType.PLANNED)
+				return entries[type.ordinal()] + entries[EntryType.PLANNED_COMPLETE.ordinal()] > 0;
+			return entries[type.ordinal()] > 0;
+		}
+
+		private boolean isEmpty() {
+			for (int count : entries) {
+				if (count != 0)
+					return false;
+			}
+			return true;
+		}
+
+		public double getIntake(EntryType type) {
+			return intake[type.ordinal()];
+		}
+
+		public double getBurn(EntryType type) {
+			return burn[type.ordinal()];
+		}
+
+		public double getNet(EntryType type) {
+			return intake[type.ordinal()] - burn[type.ordinal()];
+		}
+
+	    /**
+	     * Returns the number of entries of exactly the given type.
+	     *
+	     * @param type the entry type
+	     * @return the entry count
+	     */
+		public int getEntryCount(EntryType type) {
+			return entries[type.ordinal()];
+		}
+
+		public int getFoodCount(EntryType type) {
+			return foodEntries[type.ordinal()];
+		}
+
+		public int getExerciseCount(EntryType type) {
+			return entries[type.ordinal()] - foodEntries[type.ordinal()];
+		}
+
+	    /**
+	     * Returns how closely the recorded entries of the period followed its plan.
+	     *
+	     * @return the adherence summary of the period
+	     */
+		public Adherence getAdherence() {
+			int completed = entries[EntryType.PLANNED_COMPLETE.ordinal()];
+			return new Adherence(entries[EntryType.PLANNED.ordinal()] + completed, completed,
+					entries[EntryType.RECORDED.ordinal()] - linkedEntries,
+					getNet(EntryType.PLANNED), getNet(EntryType.RECORDED),
+					getNet(EntryType.PLANNED_COMPLETE), linkedNet);
+		}
+	}
+
+    /**
+     * Creates an empty table.
+     */
+	RollupTable() {
+		cells = new EnumMap<>(Granularity.class);
+		for (Granularity period : Granularity.values())
+			cells.put(period, new TreeMap<>());
+		monthHistograms = new HashMap<>();
+	}
+
+    /**
+     * Replaces the cell of a day and updates the week, month and year containing it.
+     *
+     * @param date the day whose contents changed
+     * @param day  the new totals of the day
+     */
+	synchronized void put(LocalDate date, Cell day) {
+		Cell old = cells.get(Granularity.DAY).get(date.toEpochDay());
+		Cell delta = new Cell(day);
+		if (old != null)
+			delta.add(old, -1);
+		if (delta.isEmpty() && old == null)
+			return;
+		long month = Granularity.MONTH.startOf(date).toEpochDay();
+		CalorieHistogram[] histograms = monthHistograms.computeIfAbsent(month, m -> newHistograms());
+		if (old != null)
+			count(histograms, old, -1);
+		for (Granularity period : Granularity.values()) {
+			NavigableMap<Long, Cell> periodCells = cells.get(period);
+			long start = period.startOf(date).toEpochDay();
+			Cell cell = periodCells.computeIfAbsent(start, s -> new Cell());
+			cell.add(delta, 1);
+			//drop cells without entries, so their rounding errors do not pile up either
+			if (cell.isEmpty())
+				periodCells.remove(start);
+		}
+		Cell updated = cells.get(Granularity.DAY).get(date.toEpochDay());
+		if (updated != null)
+			count(histograms, updated, 1);
+		else if (!cells.get(Granularity.MONTH).containsKey(month))
+			monthHistograms.remove(month);
+	}
+
+    /**
+     * Removes every cell.
+     */
+	synchronized void clear() {
+		for (NavigableMap<Long, Cell> periodCells : cells.values())
+			periodCells.clear();
+		monthHistograms.clear();
+	}
+
+    /**
+     * Returns the totals of the period containing a date.
+     *
+     * @param period the length of the period
+     * @param date   any date of the period
+     * @return a copy of the period's cell, empty if the period has no entries
+     */
+	public synchronized Cell get(Granularity period, LocalDate date) {
+		Cell cell = cells.get(period).get(period.startOf(date).toEpochDay());
+		return cell == null ? new Cell() : new Cell(cell);
+	}
+
+    /**
+     * Returns the distribution of a daily value over the days between two dates
+     * that have entries of the given type.
+     * Whole months are merged from their monthly histograms; only the days of partly covered
+     * months at either end are added one by one.
+     *
+     * @param metric the daily value to count
+     * @param type   the entry type
+     * @param from   the first date (inclusive)
+     * @param to     the last date (inclusive)
+     * @return a new histogram of the range
+     * @throws IllegalArgumentException if {@code from} is after {@code to}
+     */
+	public synchronized CalorieHistogram getDistribution(CalorieHistogram.Metric metric, EntryType type, LocalDate from, LocalDate to) {
+		if (from.isAfter(to)) throw new IllegalArgumentException("Start date must not be after end date");
+		CalorieHistogram histogram = new CalorieHistogram();
+		NavigableMap<Long, Cell> days = cells.get(Granularity.DAY);
+		int index = metric.ordinal() * EntryType.values().length + type.ordinal();
+		YearMonth last = YearMonth.from(to);
+		for (YearMonth month = YearMonth.from(from); !month.isAfter(last); month = month.plusMonths(1)) {
+			LocalDate start = month.atDay(1);
+			LocalDate end = month.atEndOfMonth();
+			if (!start.isBefore(from) && !end.isAfter(to)) {
+				CalorieHistogram[] histograms = monthHistograms.get(start.toEpochDay());
+				if (histograms != null)
+					histogram.merge(histograms[index]);
+				continue;
+			}
+			long first = Math.max(start.toEpochDay(), from.toEpochDay());
+			long lastDay = Math.min(end.toEpochDay(), to.toEpochDay());
+			for (Cell day : days.subMap(first, true, lastDay, true).values()) {
+				if (day.hasEntries(type))
+					histogram.add(metric.of(day, type));
+			}
+		}
+		return histogram;
+	}
+
+	private static CalorieHistogram[] newHistograms() {
+		CalorieHistogram[] histograms = new CalorieHistogram[CalorieHistogram.Metric.values().length * EntryType.values().length];
+		for (int i = 0; i < histograms.length; i++)
+			histograms[i] = new CalorieHistogram();
+		return histograms;
+	}
+
+	private static void count(CalorieHistogram[] histograms, Cell day, int sign) {
+		int i = 0;
+		for (CalorieHistogram.Metric metric : CalorieHistogram.Metric.values()) {
+			for (EntryType type : EntryType.values()) {
+				if (day.hasEntries(type)) {
+					if (sign > 0)
+						histograms[i].add(metric.of(day, type));
+					else
+						histograms[i].remove(metric.of(day, type));
+				}
+				i++;
+			}
+		}
+	}
+
+    /**
+     * Returns the totals of every period with entries between two dates.
+     *
+     * @param period the length of the periods
+     * @param from   a date of the first period (inclusive)
+     * @param to     a date of the last period (inclusive)
+     * @return copies of the cells by the first day of their period, in date order
+     */
+	public synchronized Map<LocalDate, Cell> getRange(Granularity period, LocalDate from, LocalDate to) {
+		Map<LocalDate, Cell> range = new LinkedHashMap<>();
+		long first = period.startOf(from).toEpochDay();
+		long last = period.startOf(to).toEpochDay();
+		for (Map.Entry<Long, Cell> cell : cells.get(period).subMap(first, true, last, true).entrySet())
+			range.put(LocalDate.ofEpochDay(cell.getKey()), new Cell(cell.getValue()));
+		return Collections.unmodifiableMap(range);
+	}
+}
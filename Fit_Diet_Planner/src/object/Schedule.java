@@ -1,119 +1,465 @@
 package object;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import application.AppContext;
 import controller.EntryDuplicatePopUpController.ConflictAction;
+import object.DailyPlan.Template;
 import object.Entry.EntryType;
 
 /**
  * Represents a schedule that organizes daily plans by date.
  * A schedule can calculate average intake, burn, and net calories
  * for a given month, and supports duplicating daily plans.
+ * <p>
+ * Months that are not being viewed can be packed into {@link CompressedMonth} blocks,
+ * which are inflated back into objects transparently when one of their days is accessed.
+ * </p>
+ * <p>
+ * Plans duplicated onto a weekday of a month are kept as {@link RecurringPlan}s. Their
+ * occurrences on empty days stay virtual until the day is accessed, and are counted in
+ * the totals from their template. They are indexed by start date, so reading a day only visits
+ * the plans whose range can contain it, and a plan is dropped once it has no pending occurrence left.
+ * </p>
+ * <p>
+ * Calorie totals and entry counts per day, week, month and year are kept in a {@link RollupTable}
+ * that is updated on every change, so the per-date totals and the monthly averages never read entries.
+ * </p>
+ * <p>
+ * Months past a {@link RetentionPolicy} are replaced by {@link DownsampledMonth}s that only keep
+ * the totals of each day. Their totals stay in the rollups, so aggregates read the same across
+ * detailed and downsampled months. Entries added later to a downsampled day are kept in detail
+ * on top of the day's summary.
+ * </p>
+ * <p>
+ * Changes to the plans are reported to {@link ScheduleListener}s. Bulk operations such as
+ * {@link #duplicatePlan(LocalDate, LocalDate, LocalDate, ConflictAction)} and {@link #batch(Runnable)}
+ * report all affected dates in a single notification.
+ * </p>
  */
 public class Schedule {
 
+	/**
+	 * Number of months around the active month that are never compressed.
+	 */
+	private static final int RESIDENT_RANGE = 1;
+	
+	/**
+	 * Minimum number of target days before a duplication is spread over the fork-join pool.
+	 */
+	private static final int PARALLEL_THRESHOLD = 64;
+
 	private Map<LocalDate, DailyPlan> plans;
+	
+	private Map<YearMonth, CompressedMonth> compressedMonths;
+	
+	private Map<YearMonth, DownsampledMonth> downsampledMonths;
+	
+	private NavigableMap<LocalDate, List<RecurringPlan>> recurringPlans;
+	
+	/**
+	 * Number of days from the start to the end of the longest recurring plan, which bounds
+	 * how far before a date a recurring plan covering it can start.
+	 */
+	private long longestRecurringDays;
+	
+	private List<ScheduleListener> listeners;
+	
+	private Set<LocalDate> changedDates;
+	
+	private int batchDepth;
+	
+	private Consumer<DailyPlan> planListener;
+	
+	private NoteIndex noteIndex;
+	
+	private ItemUsageIndex usageIndex;
+	
+	private GoalTracker goalTracker;
+	
+	private RollupTable rollups;
+	
+	private int rollupDefinitions;
 
     /**
      * Creates a new empty schedule.
      */
     public Schedule() { 	
     	plans = new HashMap<>();   	
+    	compressedMonths = new HashMap<>();
+    	downsampledMonths = new HashMap<>();
+    	recurringPlans = new TreeMap<>();
+    	listeners = new ArrayList<>();
+    	changedDates = new HashSet<>();
+    	planListener = plan -> planChanged(plan.getDate());
+    	rollups = new RollupTable();
+    	rollupDefinitions = LibraryItem.getDefinitionChanges();
+    }
+    
+    /**
+     * Registers a listener notified after plans of this schedule change.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(ScheduleListener listener) {
+    	listeners.add(listener);
+    }
+    
+    /**
+     * Removes a previously registered listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(ScheduleListener listener) {
+    	listeners.remove(listener);
+    }
+    
+    /**
+     * Runs a group of changes and notifies listeners once at the end,
+     * with every date changed by the group. Batches may be nested.
+     *
+     * @param changes the changes to run
+     */
+    public void batch(Runnable changes) {
+    	batchDepth++;
+    	try {
+    		changes.run();
+    	} finally {
+    		batchDepth--;
+    		if (batchDepth == 0) {
+    			fireChanges();
+    		}
+    	}
+    }
+    
+    private void planChanged(LocalDate date) {
+    	rollups.put(date, getDayTotals(date));
+    	changedDates.add(date);
+    	if (batchDepth == 0) {
+    		fireChanges();
+    	}
+    }
+    
+    /**
+     * Adds up the stored plan, the pending recurring occurrences and the downsampled summary of a date.
+     */
+    private RollupTable.Cell getDayTotals(LocalDate date) {
+    	RollupTable.Cell day = new RollupTable.Cell();
+    	DailyPlan plan = peekDailyPlan(date);
+    	if (plan != null) {
+    		day.add(plan);
+    	}
+    	for (RecurringPlan recurring : getRecurringPlans(date, date)) {
+    		if (recurring.isPending(date)) {
+    			day.add(recurring);
+    		}
+    	}
+    	DownsampledMonth summary = downsampledMonths.get(YearMonth.from(date));
+    	RollupTable.Cell downsampled = summary == null ? null : summary.getDay(date);
+    	if (downsampled != null) {
+    		day.add(downsampled, 1);
+    	}
+    	return day;
+    }
+    
+    private void fireChanges() {
+    	if (changedDates.isEmpty()) {
+    		return;
+    	}
+    	Set<LocalDate> dates = Collections.unmodifiableSet(changedDates);
+    	changedDates = new HashSet<>();
+    	for (ScheduleListener listener : new ArrayList<>(listeners)) {
+    		listener.plansChanged(dates);
+    	}
+    }
+
+    /**
+     * Returns the calorie totals and entry counts of this schedule per day, week, month and year.
+     * <p>
+     * The table is updated on every change. If a food or sport has been redefined since the
+     * last read, its cells are out of date and the table is rebuilt from all plans first.
+     * Downsampled days keep the calories they had when they were downsampled.
+     * </p>
+     *
+     * @return the rollup table of this schedule
+     */
+    public RollupTable getRollups() {
+    	int definitions = LibraryItem.getDefinitionChanges();
+    	if (definitions != rollupDefinitions) {
+    		rollupDefinitions = definitions;
+    		Map<LocalDate, RollupTable.Cell> days = new HashMap<>();
+    		forEachStoredPlan(plan -> days.computeIfAbsent(plan.getDate(), date -> new RollupTable.Cell()).add(plan));
+    		for (RecurringPlan recurring : getRecurringPlans()) {
+    			for (LocalDate date : recurring.getPendingDates()) {
+    				days.computeIfAbsent(date, d -> new RollupTable.Cell()).add(recurring);
+    			}
+    		}
+    		for (DownsampledMonth summary : downsampledMonths.values()) {
+    			for (LocalDate date : summary.getDates()) {
+    				days.computeIfAbsent(date, d -> new RollupTable.Cell()).add(summary.getDay(date), 1);
+    			}
+    		}
+    		rollups.clear();
+    		days.forEach(rollups::put);
+    	}
+    	return rollups;
+    }
+
+    /**
+     * Returns how closely the recorded entries of a period followed its plan,
+     * read from the period's cell of the rollup table.
+     *
+     * @param period the length of the period
+     * @param date   any date of the period
+     * @return the adherence summary of the period
+     */
+    public Adherence getAdherence(Granularity period, LocalDate date) {
+    	return getRollups().get(period, date).getAdherence();
+    }
+
+    /**
+     * Returns the index of the days and entries that use each library item.
+     * The index is built on first use and kept up to date afterwards.
+     *
+     * @return the item usage index of this schedule
+     */
+    public ItemUsageIndex getUsageIndex() {
+    	if (usageIndex == null) {
+    		usageIndex = new ItemUsageIndex(this);
+    	}
+    	return usageIndex;
+    }
+    
+    /**
+     * Returns the tracker of goal streaks and attainment.
+     * The tracker is built on first use and kept up to date afterwards.
+     *
+     * @return the goal tracker of this schedule
+     */
+    public GoalTracker getGoalTracker() {
+    	if (goalTracker == null) {
+    		goalTracker = new GoalTracker(this);
+    	}
+    	return goalTracker;
+    }
+    
+    /**
+     * Starts a query over the entries of this schedule.
+     *
+     * @return a new query matching every entry
+     * @see HistoryQuery
+     */
+    public HistoryQuery query() {
+    	return new HistoryQuery(this);
+    }
+
+    /**
+     * Searches the notes of all stored entries, ranked by relevance.
+     * The full-text index is built on the first search and kept up to date afterwards.
+     *
+     * @param query  the words to search for; the last one may be incomplete
+     * @param offset the number of ranked matches to skip
+     * @param limit  the maximum number of matches to return
+     * @return one page of matching dates and entry ids, with the total number of matches
+     * @see NoteIndex
+     */
+    public NoteIndex.Page searchNotes(String query, int offset, int limit) {
+    	if (noteIndex == null) {
+    		noteIndex = new NoteIndex(this);
+    	}
+    	return noteIndex.search(query, offset, limit);
     }
 
     /**
      * Returns the daily plan for the given date. 
      * If no plan exists, a new one is created and stored.
+     * Pending recurring occurrences of the date are materialized into the plan.
      *
      * @param date the date of the daily plan
      * @return the daily plan for the specified date
      */
     public DailyPlan getDailyPlan(LocalDate date) {
-    	if (!plans.containsKey(date)) {
-    		plans.put(date, new DailyPlan(date));
-    	}  	
-    	return plans.get(date);
+    	inflateMonth(YearMonth.from(date));
+    	DailyPlan plan = plans.get(date);
+    	if (plan == null) {
+    		plan = new DailyPlan(date);
+    		plans.put(date, plan);
+    	}
+    	
+    	//materializing does not change what the day contains, so it is not reported as a change
+    	plan.setListener(null);
+    	boolean materialized = false;
+    	for (RecurringPlan recurring : getRecurringPlans(date, date)) {
+    		if (recurring.materialize(plan)) {
+    			materialized = true;
+    			dropIfDone(recurring);
+    		}
+    	}
+    	plan.setListener(planListener);
+    	if (materialized) {
+    		Set<LocalDate> dates = Set.of(date);
+    		for (ScheduleListener listener : new ArrayList<>(listeners)) {
+    			listener.occurrencesMaterialized(dates);
+    		}
+    	}
+    	return plan;
     }
     
     /**
      * Adds a daily plan to the schedule. 
-     * If a plan already exists for the date, it is replaced.
+     * If a plan already exists for the date, it is replaced,
+     * together with any pending recurring occurrence of the date.
      *
      * @param dailyPlan the daily plan to add
      */
     public void addDailyPlan(DailyPlan dailyPlan) {
-    	plans.put(dailyPlan.getDate(), dailyPlan);
+    	inflateMonth(YearMonth.from(dailyPlan.getDate()));
+    	for (RecurringPlan recurring : getRecurringPlans(dailyPlan.getDate(), dailyPlan.getDate())) {
+    		recurring.skip(dailyPlan.getDate());
+    		dropIfDone(recurring);
+    	}
+    	DailyPlan previous = plans.put(dailyPlan.getDate(), dailyPlan);
+    	if (previous != null) {
+    		previous.setListener(null);
+    	}
+    	dailyPlan.setListener(planListener);
+    	planChanged(dailyPlan.getDate());
+    }
+    
+    /**
+     * Returns the intake calories of a date for the given entry type,
+     * including pending recurring occurrences, without creating or materializing the plan.
+     *
+     * @param date the date to read
+     * @param type the entry type filter
+     * @return intake calories of the date
+     */
+    public double getIntakeCalories(LocalDate date, EntryType type) {
+    	return getRollups().get(Granularity.DAY, date).getIntake(type);
+    }
+    
+    /**
+     * Returns the burn calories of a date for the given entry type,
+     * including pending recurring occurrences, without creating or materializing the plan.
+     *
+     * @param date the date to read
+     * @param type the entry type filter
+     * @return burn calories of the date
+     */
+    public double getBurnCalories(LocalDate date, EntryType type) {
+    	return getRollups().get(Granularity.DAY, date).getBurn(type);
+    }
+    
+    /**
+     * Returns the net calories of a date for the given entry type,
+     * including pending recurring occurrences, without creating or materializing the plan.
+     *
+     * @param date the date to read
+     * @param type the entry type filter
+     * @return net calories of the date
+     */
+    public double getNetCalories(LocalDate date, EntryType type) {
+    	return getRollups().get(Granularity.DAY, date).getNet(type);
+    }
+    
+    /**
+     * Returns the stored plan of a date without creating, inflating or materializing anything.
+     * Plans of compressed months are decoded into a temporary copy.
+     *
+     * @param date the date to read
+     * @return the stored plan, or {@code null} if the date has none
+     */
+    DailyPlan peekDailyPlan(LocalDate date) {
+    	CompressedMonth block = compressedMonths.get(YearMonth.from(date));
+    	if (block == null) {
+    		return plans.get(date);
+    	}
+    	if (block.hasDay(date.getDayOfMonth())) {
+    		for (DailyPlan plan : block.inflate()) {
+    			if (plan.getDate().equals(date)) {
+    				return plan;
+    			}
+    		}
+    	}
+    	return null;
+    }
+    
+    /**
+     * Runs an action on every stored plan, resident or compressed, without changing
+     * how the months are stored. Pending recurring occurrences are not included.
+     *
+     * @param action the action to run on each plan
+     */
+    void forEachStoredPlan(Consumer<DailyPlan> action) {
+    	for (DailyPlan plan : plans.values()) {
+    		action.accept(plan);
+    	}
+    	for (CompressedMonth block : compressedMonths.values()) {
+    		for (DailyPlan plan : block.inflate()) {
+    			action.accept(plan);
+    		}
+    	}
     }
     
     /**
      * Calculates the average intake calories for a given month and entry type.
      * If some days do not have plans, they count as zero.
+     * The total is read from the month's cell of the {@link RollupTable}.
      *
      * @param month the target month
      * @param type the entry type to calculate
      * @return the average intake calories per day
      */
     public double getAverageIntake(YearMonth month, EntryType type) {
-        double total = 0;
-        int daysInMonth = month.lengthOfMonth();
-
-        for (int day = 1; day <= daysInMonth; day++) {
-            LocalDate date = month.atDay(day);
-            DailyPlan plan = plans.get(date);
-            if (plan != null) {
-                total += plan.getIntakeCalories(type);
-            }
-        }
-
-        return total / daysInMonth;
+        return getRollups().get(Granularity.MONTH, month.atDay(1)).getIntake(type) / month.lengthOfMonth();
     }
 
     /**
      * Calculates the average calories burned for a given month and entry type.
      * If some days do not have plans, they count as zero.
+     * The total is read from the month's cell of the {@link RollupTable}.
      *
      * @param month the target month
      * @param type the entry type to calculate
      * @return the average burn calories per day
      */
     public double getAverageBurn(YearMonth month, EntryType type) {
-        double total = 0;
-        int daysInMonth = month.lengthOfMonth();
-
-        for (int day = 1; day <= daysInMonth; day++) {
-            LocalDate date = month.atDay(day);
-            DailyPlan plan = plans.get(date);
-            if (plan != null) {
-                total += plan.getBurnCalories(type);
-            }
-        }
-        return total / daysInMonth;
+        return getRollups().get(Granularity.MONTH, month.atDay(1)).getBurn(type) / month.lengthOfMonth();
     }
 
     /**
      * Calculates the average net calories for a given month and entry type.
      * If some days do not have plans, they count as zero.
+     * The total is read from the month's cell of the {@link RollupTable}.
      *
      * @param month the target month
      * @param type the entry type to calculate
      * @return the average net calories per day
      */
     public double getAverageNet(YearMonth month, EntryType type) {
-        double total = 0;
-        int daysInMonth = month.lengthOfMonth();
-
-        for (int day = 1; day <= daysInMonth; day++) {
-            LocalDate date = month.atDay(day);
-            DailyPlan plan = plans.get(date);
-            if (plan != null) {
-                total += plan.getNetCalories(type);
-            }
-        }
-        return total / daysInMonth;
+        return getRollups().get(Granularity.MONTH, month.atDay(1)).getNet(type) / month.lengthOfMonth();
+    }
+
+    /**
+     * Returns the distribution of a daily calorie value over a date range, for medians,
+     * percentiles and histograms. Unlike the averages, only days with entries of the given type are counted.
+     *
+     * @param metric the daily value: intake, burn or net calories
+     * @param type   the entry type to calculate
+     * @param from   the first date (inclusive)
+     * @param to     the last date (inclusive)
+     * @return the histogram of the daily values
+     * @throws IllegalArgumentException if {@code from} is after {@code to}
+     * @see RollupTable#getDistribution(CalorieHistogram.Metric, EntryType, LocalDate, LocalDate)
+     */
+    public CalorieHistogram getDistribution(CalorieHistogram.Metric metric, EntryType type, LocalDate from, LocalDate to) {
+    	return getRollups().getDistribution(metric, type, from, to);
     }
 
     /**
@@ -135,27 +481,138 @@ public class Schedule {
         }
         
         DailyPlan source = getDailyPlan(from);
-        DailyPlan target = getDailyPlan(to);
-       
-        switch(mode){
-        	case COMBINE:
-        			for(Entry e:source.duplicateEntries())
-        				target.addEntry(e);    		
-        		break;
-        	case REPLACE:
-        			target.clearPlannedEntries();
-    				for(Entry e:source.duplicateEntries())
-    					target.addEntry(e);  
-    			break;
-        	case IGNORE:
-        			if(!target.hasPlannedEntries()) {
-	    				for(Entry e:source.duplicateEntries())
-	    					target.addEntry(e);  	
-        			}       		
-        		break;
-        	default:
-        		break;
-        }   
+        batch(() -> duplicateTemplate(new Template(source.duplicateEntries()), getDailyPlan(to), mode));
+    }
+    
+    /**
+     * Duplicates a daily plan from one date to every date of a range.
+     * The entries are copied once into a template shared by all target days,
+     * and listeners are notified once for the whole range.
+     * The source date is skipped if it lies inside the range.
+     *
+     * @param from the source date
+     * @param start the first target date (inclusive)
+     * @param end the last target date (inclusive)
+     * @param mode how to handle existing planned entries in the targets
+     * @throws IllegalArgumentException if the range is empty
+     */
+    public void duplicatePlan(LocalDate from, LocalDate start, LocalDate end, ConflictAction mode) {
+        if (start.isAfter(end)) throw new IllegalArgumentException("Start date must not be after end date");
+        
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            dates.add(date);
+        }
+        duplicatePlan(from, dates, mode);
+    }
+    
+    /**
+     * Duplicates a daily plan from one date to each of the given dates.
+     * The entries are copied once into a template shared by all target days.
+     * Large sets of dates are processed in parallel, each plan under its own lock,
+     * and listeners are notified once with the dates that changed.
+     * The source date is skipped if it is one of the targets.
+     *
+     * @param from the source date
+     * @param dates the target dates
+     * @param mode how to handle existing planned entries in the targets
+     */
+    public void duplicatePlan(LocalDate from, Collection<LocalDate> dates, ConflictAction mode) {
+        Template template = new Template(getDailyPlan(from).duplicateEntries());
+        Set<LocalDate> targets = new HashSet<>(dates);
+        targets.remove(from);
+        duplicateTemplate(template, targets, mode);
+    }
+    
+    /**
+     * Applies a change to the plan of every date in a range as one batch,
+     * so listeners are notified once for the whole range.
+     *
+     * @param start the first date (inclusive)
+     * @param end the last date (inclusive)
+     * @param change the change to apply to each plan
+     */
+    public void applyToDateRange(LocalDate start, LocalDate end, Consumer<DailyPlan> change) {
+        batch(() -> {
+            for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+                change.accept(getDailyPlan(date));
+            }
+        });
+    }
+    
+    /**
+     * Adds shared template entries to the plans of many dates.
+     * <p>
+     * Plans are resolved on the calling thread, since that touches the plan map and may
+     * inflate compressed months. The per-day work then fans out over the common fork-join pool
+     * with change reporting switched off, and the changed dates are reported in one batch at the end.
+     * </p>
+     */
+    private void duplicateTemplate(Template template, Collection<LocalDate> dates, ConflictAction mode) {
+        List<DailyPlan> targets = new ArrayList<>(dates.size());
+        for (LocalDate date : dates) {
+            DailyPlan target = getDailyPlan(date);
+            target.setListener(null);
+            targets.add(target);
+        }
+        
+        List<DailyPlan> changed;
+        try {
+            if (targets.size() >= PARALLEL_THRESHOLD) {
+                changed = targets.parallelStream()
+                        .filter(target -> duplicateTemplate(template, target, mode))
+                        .collect(Collectors.toList());
+            } else {
+                changed = new ArrayList<>();
+                for (DailyPlan target : targets) {
+                    if (duplicateTemplate(template, target, mode)) {
+                        changed.add(target);
+                    }
+                }
+            }
+        } finally {
+            for (DailyPlan target : targets) {
+                target.setListener(planListener);
+            }
+        }
+        
+        batch(() -> {
+            for (DailyPlan target : changed) {
+                planChanged(target.getDate());
+            }
+        });
+    }
+    
+    /**
+     * Adds shared template entries to a target plan according to the conflict action.
+     * The target references the template until one of the shared entries is edited.
+     * The plan is locked for the whole operation, so targets can be processed in parallel.
+     *
+     * @return true if the target changed
+     */
+    private boolean duplicateTemplate(Template template, DailyPlan target, ConflictAction mode) {
+        if (template.isEmpty() && mode != ConflictAction.REPLACE) {
+            return false;
+        }
+        synchronized (target) {
+            switch(mode){
+            	case COMBINE:
+            			target.shareEntries(template);
+            		return true;
+            	case REPLACE:
+            			target.clearPlannedEntries();
+            			target.shareEntries(template);
+            		return true;
+            	case IGNORE:
+            			if(!target.hasPlannedEntries()) {
+            				target.shareEntries(template);
+            				return true;
+            			}       		
+            		return false;
+            	default:
+            		return false;
+            }   
+        }
     }
 
     /**
@@ -169,14 +626,400 @@ public class Schedule {
      * @param mode how to handle existing planned entries in the target
      */
     public void duplicatePlan(LocalDate from, YearMonth to, int weekDay, ConflictAction mode) {
-        LocalDate firstDay = to.atDay(1);
-        LocalDate lastDay = to.atEndOfMonth();
-        int diff = (weekDay - firstDay.getDayOfWeek().getValue() + 7) % 7; //get the diff between first day to desired weekday date
-        LocalDate firstMatch = firstDay.plusDays(diff);
+        addRecurringPlan(from, EnumSet.of(DayOfWeek.of(weekDay)), to.atDay(1), to.atEndOfMonth(), mode);
+    }
 
-        for (LocalDate date = firstMatch; !date.isAfter(lastDay); date = date.plusWeeks(1)) {
-            duplicatePlan(from, date, mode);
-        }	
+    /**
+     * Repeats the planned entries of a date on the given weekdays of a date range.
+     * <p>
+     * Target days that already hold entries (or an earlier pending occurrence) are
+     * duplicated immediately according to the conflict action. On the remaining days
+     * every action gives the same result, so they are only recorded in a {@link RecurringPlan}
+     * and filled when the day is accessed. The source date itself is never a target.
+     * </p>
+     *
+     * @param from the source date
+     * @param days the weekdays to repeat on
+     * @param start the first target date (inclusive)
+     * @param end the last target date (inclusive)
+     * @param mode how to handle existing planned entries in the targets
+     * @return the recurring plan holding the virtual occurrences
+     * @throws IllegalArgumentException if no weekday is given or the range is empty
+     */
+    public RecurringPlan addRecurringPlan(LocalDate from, Set<DayOfWeek> days, LocalDate start, LocalDate end, ConflictAction mode) {
+        Set<LocalDate> exceptions = new HashSet<>();
+        exceptions.add(from);
+        RecurringPlan recurring = new RecurringPlan(getDailyPlan(from).duplicateEntries(), days, start, end, exceptions);
+
+        List<LocalDate> occupied = new ArrayList<>();
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            if (recurring.isPending(date) && hasEntries(date)) {
+                occupied.add(date);
+                recurring.skip(date);
+            }
+        }
+        duplicateTemplate(recurring.getSharedTemplate(), occupied, mode);
+        if (recurring.getPendingCount() > 0) {
+            recurringPlans.computeIfAbsent(start, date -> new ArrayList<>()).add(recurring);
+            longestRecurringDays = Math.max(longestRecurringDays, end.toEpochDay() - start.toEpochDay());
+        }
+        
+        //the totals of the pending days changed even though no plan did
+        batch(() -> {
+            for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+                if (recurring.isPending(date)) {
+                    planChanged(date);
+                }
+            }
+        });
+        return recurring;
+    }
+
+    /**
+     * Returns the recurring plans of this schedule that still have pending occurrences,
+     * ordered by start date.
+     *
+     * @return an unmodifiable list of recurring plans
+     */
+    public List<RecurringPlan> getRecurringPlans() {
+        List<RecurringPlan> all = new ArrayList<>();
+        for (List<RecurringPlan> starting : recurringPlans.values()) {
+            all.addAll(starting);
+        }
+        return Collections.unmodifiableList(all);
+    }
+
+    /**
+     * Returns the recurring plans whose date range overlaps the given range.
+     * Only the plans starting at most {@link #longestRecurringDays} before the range are visited.
+     */
+    private List<RecurringPlan> getRecurringPlans(LocalDate from, LocalDate to) {
+        List<RecurringPlan> overlapping = new ArrayList<>();
+        if (recurringPlans.isEmpty()) {
+            return overlapping;
+        }
+        for (List<RecurringPlan> starting : recurringPlans.subMap(from.minusDays(longestRecurringDays), true, to, true).values()) {
+            for (RecurringPlan recurring : starting) {
+                if (!recurring.getEnd().isBefore(from)) {
+                    overlapping.add(recurring);
+                }
+            }
+        }
+        return overlapping;
+    }
+
+    /**
+     * Removes a recurring plan once all of its occurrences have been materialized or skipped.
+     */
+    private void dropIfDone(RecurringPlan recurring) {
+        if (recurring.getPendingCount() > 0) {
+            return;
+        }
+        List<RecurringPlan> starting = recurringPlans.get(recurring.getStart());
+        if (starting == null || !starting.remove(recurring)) {
+            return;
+        }
+        if (starting.isEmpty()) {
+            recurringPlans.remove(recurring.getStart());
+        }
+        longestRecurringDays = 0;
+        for (RecurringPlan remaining : getRecurringPlans()) {
+            longestRecurringDays = Math.max(longestRecurringDays, remaining.getEnd().toEpochDay() - remaining.getStart().toEpochDay());
+        }
+    }
+
+    /**
+     * Checks whether a date holds stored entries or a pending recurring occurrence,
+     * without creating its plan.
+     */
+    private boolean hasEntries(LocalDate date) {
+        for (RecurringPlan recurring : getRecurringPlans(date, date)) {
+            if (recurring.isPending(date)) {
+                return true;
+            }
+        }
+        DailyPlan plan = plans.get(date);
+        if (plan != null) {
+            return !plan.getEntries().isEmpty();
+        }
+        CompressedMonth block = compressedMonths.get(YearMonth.from(date));
+        return block != null && block.hasDay(date.getDayOfMonth());
+    }
+
+    /**
+     * Appends already validated entries to the plans of their dates, one bulk
+     * operation per day. Months that were compressed are inflated once and
+     * packed again after all of their days have been filled, so block totals
+     * are rebuilt once per month instead of once per entry.
+     *
+     * @param entriesByDate the validated entries grouped by date
+     */
+    void appendEntries(Map<LocalDate, List<Entry>> entriesByDate) {
+    	Set<YearMonth> recompress = new HashSet<>();
+    	for (LocalDate date : entriesByDate.keySet()) {
+    		YearMonth month = YearMonth.from(date);
+    		if (compressedMonths.containsKey(month)) {
+    			recompress.add(month);
+    		}
+    	}
+    	
+    	batch(() -> {
+    		for (Map.Entry<LocalDate, List<Entry>> day : entriesByDate.entrySet()) {
+    			getDailyPlan(day.getKey()).appendEntries(day.getValue());
+    		}
+    	});
+    	
+    	for (YearMonth month : recompress) {
+    		compressMonth(month);
+    	}
+    }
+    
+    /**
+     * Packs all daily plans of the given month into a {@link CompressedMonth} block
+     * and removes them from the resident plans.
+     * Months without any entries are simply dropped, as empty plans are recreated on demand.
+     *
+     * @param month the month to compress
+     */
+    public void compressMonth(YearMonth month) {
+    	if (compressedMonths.containsKey(month)) {
+    		return;
+    	}
+    	
+    	List<DailyPlan> monthPlans = new ArrayList<>();
+    	boolean hasEntries = false;
+    	for (DailyPlan plan : plans.values()) {
+    		if (YearMonth.from(plan.getDate()).equals(month)) {
+    			monthPlans.add(plan);
+    			hasEntries |= !plan.getEntries().isEmpty();
+    		}
+    	}
+    	
+    	for (DailyPlan plan : monthPlans) {
+    		plans.remove(plan.getDate());
+    	}
+    	if (hasEntries) {
+    		compressedMonths.put(month, new CompressedMonth(month, monthPlans));
+    	}
+    }
+    
+    /**
+     * Compresses every resident month that is not close to the active month or the current month.
+     * Months within {@value #RESIDENT_RANGE} month(s) of either are kept as objects,
+     * since they are the ones most likely to be viewed or edited.
+     *
+     * @param activeMonth the month currently being viewed
+     */
+    public void compressIdleMonths(YearMonth activeMonth) {
+    	YearMonth currentMonth = YearMonth.now();
+    	Set<YearMonth> idleMonths = new HashSet<>();
+    	for (LocalDate date : plans.keySet()) {
+    		YearMonth month = YearMonth.from(date);
+    		if (!isNear(month, activeMonth) && !isNear(month, currentMonth)) {
+    			idleMonths.add(month);
+    		}
+    	}
+    	
+    	for (YearMonth month : idleMonths) {
+    		compressMonth(month);
+    	}
+    }
+    
+    /**
+     * Downsamples every month with entries that is expired under the given policy, oldest first.
+     * At most {@code maxMonths} months are processed per call, so a background job can spread a
+     * large backlog over several calls.
+     *
+     * @param policy    the retention policy
+     * @param today     the current date
+     * @param maxMonths the maximum number of months to downsample
+     * @return the number of months downsampled
+     */
+    public int applyRetention(RetentionPolicy policy, LocalDate today, int maxMonths) {
+    	List<YearMonth> expired = new ArrayList<>();
+    	for (YearMonth month : getDetailedMonths()) {
+    		if (policy.isExpired(month, today)) {
+    			expired.add(month);
+    		}
+    	}
+    	Collections.sort(expired);
+    	int count = Math.min(maxMonths, expired.size());
+    	for (int i = 0; i < count; i++) {
+    		downsampleMonth(expired.get(i), policy.getTopItems());
+    	}
+    	return count;
+    }
+    
+    /**
+     * Replaces the entries of a month, including pending recurring occurrences, by a
+     * {@link DownsampledMonth}. If the month was downsampled before, the new summary is
+     * merged into the old one. Listeners are notified that the days changed, while the
+     * rollup totals stay the same.
+     *
+     * @param month    the month to downsample
+     * @param topItems the number of most used items to keep
+     */
+    public void downsampleMonth(YearMonth month, int topItems) {
+    	List<DailyPlan> monthPlans = getPlansInMonth(month);
+    	if (monthPlans.isEmpty()) {
+    		return;
+    	}
+    	
+    	DownsampledMonth summary = new DownsampledMonth(month, monthPlans, topItems);
+    	DownsampledMonth older = downsampledMonths.get(month);
+    	if (older != null) {
+    		summary.absorb(older);
+    	}
+    	compressedMonths.remove(month);
+    	List<RecurringPlan> overlapping = getRecurringPlans(month.atDay(1), month.atEndOfMonth());
+    	for (int day = 1; day <= month.lengthOfMonth(); day++) {
+    		LocalDate date = month.atDay(day);
+    		for (RecurringPlan recurring : overlapping) {
+    			recurring.skip(date);
+    		}
+    		DailyPlan plan = plans.remove(date);
+    		if (plan != null) {
+    			plan.setListener(null);
+    		}
+    	}
+    	for (RecurringPlan recurring : overlapping) {
+    		dropIfDone(recurring);
+    	}
+    	downsampledMonths.put(month, summary);
+    	
+    	batch(() -> {
+    		for (DailyPlan plan : monthPlans) {
+    			planChanged(plan.getDate());
+    		}
+    	});
+    }
+    
+    /**
+     * Returns the summary of a downsampled month.
+     *
+     * @param month the month to read
+     * @return the summary, or {@code null} if the month was never downsampled
+     */
+    public DownsampledMonth getDownsampledMonth(YearMonth month) {
+    	return downsampledMonths.get(month);
+    }
+    
+    /**
+     * Checks whether the given month is currently stored as a compressed block.
+     *
+     * @param month the month to check
+     * @return true if the month is compressed, false otherwise
+     */
+    public boolean isCompressed(YearMonth month) {
+    	return compressedMonths.containsKey(month);
     }
     
+    /**
+     * Returns the non-empty plans of the given month in date order without
+     * changing how the month is stored. Compressed months and pending recurring
+     * occurrences are decoded into temporary plans, so this is meant for
+     * read-only use such as exporting. Downsampled days have no plans.
+     *
+     * @param month the month to read
+     * @return the plans of the month that contain entries
+     */
+    public List<DailyPlan> getPlansInMonth(YearMonth month) {
+    	Map<LocalDate, DailyPlan> monthPlans = new TreeMap<>();
+    	CompressedMonth block = compressedMonths.get(month);
+    	if (block != null) {
+    		for (DailyPlan plan : block.inflate()) {
+    			monthPlans.put(plan.getDate(), plan);
+    		}
+    	} else {
+    		for (int day = 1; day <= month.lengthOfMonth(); day++) {
+    			DailyPlan plan = plans.get(month.atDay(day));
+    			if (plan != null && !plan.getEntries().isEmpty()) {
+    				monthPlans.put(plan.getDate(), plan);
+    			}
+    		}
+    	}
+    	
+    	for (RecurringPlan recurring : getRecurringPlans(month.atDay(1), month.atEndOfMonth())) {
+    		for (int day = 1; day <= month.lengthOfMonth(); day++) {
+    			LocalDate date = month.atDay(day);
+    			if (recurring.isPending(date)) {
+    				DailyPlan plan = new DailyPlan(date);
+    				plan.shareEntries(recurring.getSharedTemplate());
+    				monthPlans.put(date, plan);
+    			}
+    		}
+    	}
+    	return new ArrayList<>(monthPlans.values());
+    }
+    
+    /**
+     * Returns the earliest month that holds any plan, resident, compressed, recurring or downsampled.
+     *
+     * @return the first month, or {@code null} if the schedule is empty
+     */
+    public YearMonth getFirstMonth() {
+    	YearMonth first = null;
+    	for (YearMonth month : getStoredMonths()) {
+    		if (first == null || month.isBefore(first)) {
+    			first = month;
+    		}
+    	}
+    	return first;
+    }
+    
+    /**
+     * Returns the latest month that holds any plan, resident, compressed, recurring or downsampled.
+     *
+     * @return the last month, or {@code null} if the schedule is empty
+     */
+    public YearMonth getLastMonth() {
+    	YearMonth last = null;
+    	for (YearMonth month : getStoredMonths()) {
+    		if (last == null || month.isAfter(last)) {
+    			last = month;
+    		}
+    	}
+    	return last;
+    }
+    
+    private Set<YearMonth> getStoredMonths() {
+    	Set<YearMonth> months = getDetailedMonths();
+    	months.addAll(downsampledMonths.keySet());
+    	return months;
+    }
+    
+    private Set<YearMonth> getDetailedMonths() {
+    	Set<YearMonth> months = new HashSet<>(compressedMonths.keySet());
+    	for (RecurringPlan recurring : getRecurringPlans()) {
+    		for (LocalDate date : recurring.getPendingDates()) {
+    			months.add(YearMonth.from(date));
+    		}
+    	}
+    	for (DailyPlan plan : plans.values()) {
+    		if (!plan.getEntries().isEmpty()) {
+    			months.add(YearMonth.from(plan.getDate()));
+    		}
+    	}
+    	return months;
+    }
+    
+    /**
+     * Restores the plans of a compressed month back into resident objects.
+     * Does nothing if the month is not compressed.
+     *
+     * @param month the month to inflate
+     */
+    private void inflateMonth(YearMonth month) {
+    	CompressedMonth block = compressedMonths.remove(month);
+    	if (block != null) {
+    		for (DailyPlan plan : block.inflate()) {
+    			plan.setListener(planListener);
+    			plans.put(plan.getDate(), plan);
+    		}
+    	}
+    }
+    
+    private static boolean isNear(YearMonth month, YearMonth target) {
+    	return !month.isBefore(target.minusMonths(RESIDENT_RANGE)) && !month.isAfter(target.plusMonths(RESIDENT_RANGE));
+    }
 }
@@ -0,0 +1,247 @@
+package object;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Locale;
+
+import object.Entry.EntryType;
+
+/**
+ * Writes the entries of a {@link Schedule} to CSV or JSON Lines, one row per {@link Entry}.
+ * <p>
+ * The schedule is read one month at a time through {@link Schedule#getPlansInMonth(YearMonth)}
+ * and rows are written through a buffered channel writer, so memory use does not grow with
+ * the length of the exported history. Compressed months are decoded temporarily and stay compressed.
+ * </p>
+ * <p>
+ * Days of a {@link DownsampledMonth} no longer have entries, so each of them is written as one
+ * {@link #DAY_TOTAL} row per entry type, holding the net calories the day had when it was downsampled.
+ * </p>
+ * <p>
+ * Each row has the columns listed in {@link #COLUMNS}. Values that do not apply to an
+ * entry kind are left empty in CSV and omitted in JSON Lines. Calories are signed,
+ * so exercise rows have negative values as in the net calorie calculations.
+ * </p>
+ */
+public class ScheduleExporter {
+	public static final String[] COLUMNS = {
+		"date", "type", "kind", "item", "quantity", "grams", "duration", "sets", "reps",
+		"secPerRep", "weight", "calories", "note"
+	};
+
+	/** Entry kind written for {@link FoodEntry} rows. */
+	public static final String FOOD = "FOOD";
+
+	/** Entry kind written for {@link TimeBasedExerciseEntry} rows. */
+	public static final String TIME_BASED = "TIME_BASED";
+
+	/** Entry kind written for {@link RepBasedExerciseEntry} rows. */
+	public static final String REP_BASED = "REP_BASED";
+
+	/** Entry kind written for the totals of a downsampled day. */
+	public static final String DAY_TOTAL = "DAY_TOTAL";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private Schedule schedule;
+
+    /**
+     * Creates an exporter for the given schedule.
+     *
+     * @param schedule the schedule to export
+     */
+	public ScheduleExporter(Schedule schedule) {
+		this.schedule = schedule;
+	}
+
+    /**
+     * Exports entries to a file, replacing any existing content.
+     *
+     * @param file   the file to write
+     * @param format the output format
+     * @param from   the first date to include, or {@code null} for the start of the history
+     * @param to     the last date to include, or {@code null} for the end of the history
+     * @return the number of exported rows
+     * @throws IOException if the file cannot be written
+     */
+	public long export(Path file, FileFormat format, LocalDate from, LocalDate to) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			return export(channel, format, from, to);
+		}
+	}
+
+    /**
+     * Exports entries to a channel. The channel is not closed.
+     *
+     * @param channel the channel to write to
+     * @param format  the output format
+     * @param from    the first date to include, or {@code null} for the start of the history
+     * @param to      the last date to include, or {@code null} for the end of the history
+     * @return the number of exported rows
+     * @throws IOException if writing fails
+     * @throws IllegalArgumentException if {@code from} is after {@code to}
+     */
+	public long export(WritableByteChannel channel, FileFormat format, LocalDate from, LocalDate to) throws IOException {
+		if (from != null && to != null && from.isAfter(to))
+			throw new IllegalArgumentException("Start date must not be after end date");
+
+		Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+		if (format == FileFormat.CSV) {
+			writer.write(String.join(",", COLUMNS));
+			writer.write('\n');
+		}
+
+		long count = 0;
+		YearMonth first = from != null ? YearMonth.from(from) : schedule.getFirstMonth();
+		YearMonth last = to != null ? YearMonth.from(to) : schedule.getLastMonth();
+		if (first != null && last != null) {
+			for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+				DownsampledMonth summary = schedule.getDownsampledMonth(month);
+				List<LocalDate> totalDates = summary != null ? summary.getDates() : List.of();
+				int nextTotal = 0;
+				for (DailyPlan plan : schedule.getPlansInMonth(month)) {
+					while (nextTotal < totalDates.size() && !totalDates.get(nextTotal).isAfter(plan.getDate()))
+						count += writeTotals(writer, format, totalDates.get(nextTotal++), summary, from, to);
+					LocalDate date = plan.getDate();
+					if ((from != null && date.isBefore(from)) || (to != null && date.isAfter(to)))
+						continue;
+					for (Entry entry : plan.getEntries()) {
+						writeRow(writer, format, toRow(date, entry));
+						count++;
+					}
+				}
+				while (nextTotal < totalDates.size())
+					count += writeTotals(writer, format, totalDates.get(nextTotal++), summary, from, to);
+			}
+		}
+		writer.flush();
+		return count;
+	}
+
+    /**
+     * Returns the kind label written for the given entry.
+     *
+     * @param entry the entry
+     * @return {@link #FOOD}, {@link #TIME_BASED} or {@link #REP_BASED}
+     */
+	public static String kindOf(Entry entry) {
+		if (entry instanceof FoodEntry)
+			return FOOD;
+		if (entry instanceof RepBasedExerciseEntry)
+			return REP_BASED;
+		return TIME_BASED;
+	}
+
+	private static int writeTotals(Writer writer, FileFormat format, LocalDate date, DownsampledMonth summary,
+			LocalDate from, LocalDate to) throws IOException {
+		if ((from != null && date.isBefore(from)) || (to != null && date.isAfter(to)))
+			return 0;
+		RollupTable.Cell day = summary.getDay(date);
+		int count = 0;
+		for (EntryType type : EntryType.values()) {
+			if (day.getEntryCount(type) == 0)
+				continue;
+			String[] row = new String[COLUMNS.length];
+			row[0] = date.toString();
+			row[1] = type.name();
+			row[2] = DAY_TOTAL;
+			row[11] = String.format(Locale.ROOT, "%.2f", day.getNet(type));
+			writeRow(writer, format, row);
+			count++;
+		}
+		return count;
+	}
+
+	private static String[] toRow(LocalDate date, Entry entry) {
+		String[] row = new String[COLUMNS.length];
+		row[0] = date.toString();
+		row[1] = entry.getType().name();
+		row[2] = kindOf(entry);
+		if (entry instanceof FoodEntry food) {
+			row[3] = food.getFood().getName();
+			row[4] = String.valueOf(food.getQuantity());
+			row[5] = String.valueOf(food.getGram());
+		} else if (entry instanceof ExerciseEntry exercise) {
+			row[3] = exercise.getSport().getName();
+			row[10] = String.valueOf(exercise.getWeight());
+			if (exercise instanceof RepBasedExerciseEntry rep) {
+				row[7] = String.valueOf(rep.getSets());
+				row[8] = String.valueOf(rep.getReps());
+				row[9] = String.valueOf(rep.getSecPerRep());
+			} else if (exercise instanceof TimeBasedExerciseEntry time) {
+				row[6] = String.valueOf(time.getDuration());
+			}
+		}
+		row[11] = String.format(Locale.ROOT, "%.2f", entry.calculateCalories());
+		row[12] = entry.getNote();
+		return row;
+	}
+
+	private static void writeRow(Writer writer, FileFormat format, String[] row) throws IOException {
+		if (format == FileFormat.CSV) {
+			for (int i = 0; i < row.length; i++) {
+				if (i > 0)
+					writer.write(',');
+				if (row[i] != null)
+					writer.write(escapeCsv(row[i]));
+			}
+		} else {
+			writer.write('{');
+			boolean first = true;
+			for (int i = 0; i < row.length; i++) {
+				if (row[i] == null)
+					continue;
+				if (!first)
+					writer.write(',');
+				first = false;
+				writer.write('"');
+				writer.write(COLUMNS[i]);
+				writer.write("\":");
+				writer.write(isNumeric(i) ? row[i] : escapeJson(row[i]));
+			}
+			writer.write('}');
+		}
+		writer.write('\n');
+	}
+
+	private static boolean isNumeric(int column) {
+		return column >= 4 && column <= 11;
+	}
+
+	private static String escapeCsv(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+			return value;
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+	private static String escapeJson(String value) {
+		StringBuilder escaped = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"': escaped.append("\\\""); break;
+				case '\\': escaped.append("\\\\"); break;
+				case '\n': escaped.append("\\n"); break;
+				case '\r': escaped.append("\\r"); break;
+				case '\t': escaped.append("\\t"); break;
+				default:
+					if (c < 0x20)
+						escaped.append(String.format("\\u%04x", (int) c));
+					else
+						escaped.append(c);
+			}
+		}
+		return escaped.append('"').toString();
+	}
+}
@@ -0,0 +1,34 @@
+package object;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Receives notifications when the entries of a {@link Schedule} change.
+ * <p>
+ * Changes made inside {@link Schedule#batch(Runnable)} or by one of the bulk operations
+ * are reported once, with every affected date, after the whole operation has finished.
+ * Adding a {@link RecurringPlan} reports its pending dates as changed, since their totals change,
+ * although the occurrences are not stored in any plan until their day is accessed. When that
+ * happens, the date is passed to {@link #occurrencesMaterialized(Set)} instead.
+ * </p>
+ */
+@FunctionalInterface
+public interface ScheduleListener {
+
+    /**
+     * Called after the entries of one or more dates have changed.
+     *
+     * @param dates the dates whose plans changed
+     */
+	void plansChanged(Set<LocalDate> dates);
+
+    /**
+     * Called after pending recurring occurrences have been stored into the plans of the given dates.
+     * What the days contain is unchanged, so listeners that only display plans can ignore this.
+     *
+     * @param dates the dates whose occurrences were materialized
+     */
+	default void occurrencesMaterialized(Set<LocalDate> dates) {
+	}
+}
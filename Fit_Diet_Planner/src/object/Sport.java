@@ -135,6 +135,30 @@ public class Sport extends LibraryItem{
 	    }
 	}
 	
+    /**
+     * Updates the intensity values of this sport.
+     * <p>
+     * Entries referring to this sport recalculate their calories on next access.
+     * The seconds per rep are ignored for time-based sports.
+     * </p>
+     *
+     * @param met           the new metabolic equivalent value
+     * @param secondsPerRep the new average time required per repetition
+     * @throws IllegalArgumentException if a value is not greater than zero
+     */
+	public void updateIntensity(double met, double secondsPerRep) {
+        if (met <= 0) {
+            throw new IllegalArgumentException("MET value must be greater than 0.");
+        }
+        if (isRepBased && secondsPerRep <= 0) {
+            throw new IllegalArgumentException("Seconds per rep must be greater than 0 for rep-based exercises.");
+        }
+		this.met = met;
+		if (isRepBased)
+			this.secondsPerRep = secondsPerRep;
+		definitionChanged();
+	}
+	
 	public double getSecondsPerRep() {
     	return secondsPerRep;
     }
@@ -12,7 +12,7 @@ import application.Utils;
  * </p>
  */
 public class TimeBasedExerciseEntry extends ExerciseEntry {
-	public double duration;
+	private double duration;
 	
     /**
      * Creates a new {@code TimeBasedExerciseEntry}.
@@ -50,7 +50,7 @@ public class TimeBasedExerciseEntry extends ExerciseEntry {
      * @return the calculated calories burned as a negative number
      */
 	@Override
-	public double calculateCalories() {
+	protected double computeCalories() {
 		double durationHours = duration / 60;
 		return -1 * durationHours * getSport().getMet() * getWeight();
 	}
@@ -114,6 +114,7 @@ public class TimeBasedExerciseEntry extends ExerciseEntry {
 
 	public void setDuration(double duration) {
 		this.duration = duration;
+		invalidateCalories();
 	}
 
 }
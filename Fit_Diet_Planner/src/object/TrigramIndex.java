@@ -0,0 +1,241 @@
+package object;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * A trigram index over item names for typo-tolerant search.
+ * <p>
+ * Every name is split into lower-case words and each word, padded as {@code "  word "}, into its
+ * three-letter grams. For every distinct gram the index keeps the ascending ids of the names
+ * containing it. A query first counts the grams it shares with every name, keeps the names with the
+ * highest trigram similarity as candidates, and then ranks the candidates by the edit distance between
+ * the query and the best matching part of the name, so "chiken" finds "Chicken Breast".
+ * </p>
+ * <p>
+ * Names are added with consecutive ids starting at 0. The index does not keep the names themselves;
+ * they are read back through a lookup function when candidates are verified.
+ * </p>
+ */
+class TrigramIndex {
+
+	/**
+	 * Number of candidates verified per requested result.
+	 */
+	private static final int CANDIDATES_PER_RESULT = 8;
+
+	/**
+	 * Minimum number of candidates verified, so short result lists still see enough names.
+	 */
+	private static final int MIN_CANDIDATES = 64;
+
+	private final Map<Integer, Postings> postings;
+	private short[] gramCounts;
+	private int size;
+
+    /**
+     * The ids of the names containing one gram, in ascending order.
+     */
+	private static class Postings {
+		private int[] ids = new int[4];
+		private int size;
+
+		private void add(int id) {
+			if(size == ids.length)
+				ids = Arrays.copyOf(ids, size * 2);
+			ids[size++] = id;
+		}
+	}
+
+    /**
+     * A name that shares grams with the query.
+     */
+	private static class Candidate {
+		private final int id;
+		private final double similarity;
+		private int distance;
+
+		private Candidate(int id, double similarity) {
+			this.id = id;
+			this.similarity = similarity;
+		}
+	}
+
+    /**
+     * Creates an empty index.
+     */
+	TrigramIndex() {
+		postings = new HashMap<>();
+		gramCounts = new short[16];
+	}
+
+    /**
+     * Adds a name under the next id.
+     *
+     * @param name the name to index
+     * @return the id of the name
+     */
+	int add(String name) {
+		int id = size++;
+		int[] grams = grams(name);
+		if(id == gramCounts.length)
+			gramCounts = Arrays.copyOf(gramCounts, id * 2);
+		gramCounts[id] = (short) Math.min(grams.length, Short.MAX_VALUE);
+		for(int gram : grams)
+			postings.computeIfAbsent(gram, g -> new Postings()).add(id);
+		return id;
+	}
+
+	int size() {
+		return size;
+	}
+
+    /**
+     * Finds the names closest to a query.
+     * <p>
+     * Results are ordered by edit distance, then by trigram similarity, then by id. A name is only
+     * returned if its distance is within the tolerance for the query length (one typo up to 4 letters,
+     * two up to 8, three beyond). The budget applies to collecting candidates: once it runs out,
+     * the most common of the remaining query grams are skipped and the candidates found so far are verified.
+     * </p>
+     *
+     * @param query       the text typed by the user
+     * @param accept      filters the ids that may be returned
+     * @param nameOf      returns the name of an id
+     * @param limit       the maximum number of results
+     * @param budgetNanos the time budget of the search in nanoseconds
+     * @return the ids of the best matches, best first
+     */
+	List<Integer> search(String query, IntPredicate accept, IntFunction<String> nameOf, int limit, long budgetNanos) {
+		long deadline = System.nanoTime() + budgetNanos;
+		List<Integer> results = new ArrayList<>();
+		String normalized = normalize(query);
+		int[] queryGrams = grams(normalized);
+		if(queryGrams.length == 0 || limit <= 0)
+			return results;
+
+		//count the grams each name shares with the query, rarest grams first,
+		//so that running out of time only skips the least selective grams
+		List<Postings> lists = new ArrayList<>();
+		for(int gram : queryGrams) {
+			Postings list = postings.get(gram);
+			if(list != null)
+				lists.add(list);
+		}
+		lists.sort(Comparator.comparingInt(list -> list.size));
+		int[] shared = new int[size];
+		int[] touched = new int[Math.min(size, 1024)];
+		int touchedCount = 0;
+		for(Postings list : lists) {
+			if(touchedCount > 0 && System.nanoTime() > deadline)
+				break;
+			for(int i = 0; i < list.size; i++) {
+				int id = list.ids[i];
+				if(shared[id]++ == 0) {
+					if(touchedCount == touched.length)
+						touched = Arrays.copyOf(touched, touchedCount * 2);
+					touched[touchedCount++] = id;
+				}
+			}
+		}
+
+		//keep the most similar names in a min-heap
+		int capacity = Math.max(MIN_CANDIDATES, limit * CANDIDATES_PER_RESULT);
+		Comparator<Candidate> weakestFirst = Comparator.comparingDouble((Candidate candidate) -> candidate.similarity)
+				.thenComparing(candidate -> -candidate.id);
+		PriorityQueue<Candidate> heap = new PriorityQueue<>(capacity + 1, weakestFirst);
+		for(int i = 0; i < touchedCount; i++) {
+			int id = touched[i];
+			int common = shared[id];
+			double similarity = (double) common / (queryGrams.length + gramCounts[id] - common);
+			if(heap.size() == capacity && similarity <= heap.peek().similarity)
+				continue;
+			if(!accept.test(id))
+				continue;
+			heap.add(new Candidate(id, similarity));
+			if(heap.size() > capacity)
+				heap.poll();
+		}
+
+		//verify the candidates by edit distance, most similar first
+		List<Candidate> candidates = new ArrayList<>(heap);
+		candidates.sort(weakestFirst.reversed());
+		int tolerance = normalized.length() <= 4 ? 1 : normalized.length() <= 8 ? 2 : 3;
+		List<Candidate> matches = new ArrayList<>();
+		for(Candidate candidate : candidates) {
+			candidate.distance = substringDistance(normalized, normalize(nameOf.apply(candidate.id)));
+			if(candidate.distance <= tolerance)
+				matches.add(candidate);
+		}
+		matches.sort(Comparator.comparingInt((Candidate candidate) -> candidate.distance)
+				.thenComparing(weakestFirst.reversed()));
+		for(int i = 0; i < matches.size() && i < limit; i++)
+			results.add(matches.get(i).id);
+		return results;
+	}
+
+    /**
+     * Returns the smallest edit distance between the query and any part of the text,
+     * so that a query matching the start of a long name is not penalized for the rest of it.
+     */
+	static int substringDistance(String query, String text) {
+		int[] previous = new int[text.length() + 1];
+		int[] current = new int[text.length() + 1];
+		//matching may start anywhere in the text, so the first row is all zero
+		for(int i = 1; i <= query.length(); i++) {
+			current[0] = i;
+			char q = query.charAt(i - 1);
+			for(int j = 1; j <= text.length(); j++) {
+				int cost = q == text.charAt(j - 1) ? 0 : 1;
+				current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		int best = query.length();
+		for(int distance : previous)
+			best = Math.min(best, distance);
+		return best;
+	}
+
+	private static String normalize(String text) {
+		return text == null ? "" : text.toLowerCase().trim();
+	}
+
+    /**
+     * Returns the distinct grams of a text, each packed into an int.
+     */
+	private static int[] grams(String text) {
+		String normalized = normalize(text);
+		int[] grams = new int[normalized.length() * 2 + 2];
+		int count = 0;
+		char first = ' ';
+		char second = ' ';
+		for(int i = 0; i <= normalized.length(); i++) {
+			char c = i < normalized.length() ? normalized.charAt(i) : ' ';
+			boolean wordEnd = !Character.isLetterOrDigit(c);
+			if(wordEnd) {
+				if(second == ' ')
+					continue;
+				c = ' '; //the last gram of a word ends with padding
+			}
+			int gram = first << 20 ^ second << 10 ^ c;
+			boolean seen = false;
+			for(int j = 0; j < count && !seen; j++)
+				seen = grams[j] == gram;
+			if(!seen)
+				grams[count++] = gram;
+			first = wordEnd ? ' ' : second;
+			second = c;
+		}
+		return Arrays.copyOf(grams, count);
+	}
+}
@@ -1,8 +1,12 @@
 package object;
 
+import java.time.LocalDate;
+
 /**
  * Represents a user with personal details and a schedule.
  * Provides methods to calculate and interpret BMI values.
+ * Every change of weight or height is kept in a {@link WeightHistory},
+ * so past entries and BMI trends can use the values valid on their date.
  */
 public class User {
 	private String name;
@@ -10,6 +14,9 @@ public class User {
 	private double weight;
 	private double height;
 	private Schedule schedule;
+	private WeightHistory history;
+	private WeightForecaster forecaster;
+	private EnergyBudget energyBudget;
 
     /**
      * Creates a new user with the given details.
@@ -26,6 +33,8 @@ public class User {
 		this.weight = weight;
 		this.height = height;
 		this.schedule = schedule;
+		this.history = new WeightHistory();
+		history.record(LocalDate.now(), weight, height);
 	}
 
     /**
@@ -83,6 +92,83 @@ public class User {
 	public String getBMIResult() {
 		return getBMIResult(weight,height);
 	}
+
+    /**
+     * Calculates the BMI score using the weight and height valid on the given date.
+     *
+     * @param date the date to read
+     * @return the BMI score
+     */
+	public double calculateBMIScore(LocalDate date) {
+		WeightHistory.Measurement measurement = history.getOn(date);
+		return calculateBMIScore(measurement.getWeight(), measurement.getHeight());
+	}
+
+    /**
+     * Returns the weight valid on the given date, the last one recorded on or before it.
+     *
+     * @param date the date to read
+     * @return the weight in kilograms
+     */
+	public double getWeightOn(LocalDate date) {
+		return history.getOn(date).getWeight();
+	}
+
+    /**
+     * Returns the height valid on the given date, the last one recorded on or before it.
+     *
+     * @param date the date to read
+     * @return the height in centimeters
+     */
+	public double getHeightOn(LocalDate date) {
+		return history.getOn(date).getHeight();
+	}
+
+    /**
+     * Records a weight and height measured on a past date.
+     * The current weight and height change only if no later measurement exists.
+     *
+     * @param date   the date of the measurement
+     * @param weight the weight in kilograms
+     * @param height the height in centimeters
+     * @throws IllegalArgumentException if weight or height are non-positive
+     */
+	public void recordMeasurement(LocalDate date, double weight, double height) {
+		history.record(date, weight, height);
+		WeightHistory.Measurement latest = history.getLatest();
+		this.weight = latest.getWeight();
+		this.height = latest.getHeight();
+	}
+
+	public WeightHistory getWeightHistory() {
+		return history;
+	}
+
+    /**
+     * Returns the weight forecaster of this user.
+     * The forecaster is built on first use and kept up to date afterwards.
+     *
+     * @return the weight forecaster
+     */
+	public WeightForecaster getForecaster() {
+		if (forecaster == null) {
+			forecaster = new WeightForecaster(this);
+		}
+		return forecaster;
+	}
+
+    /**
+     * Returns the daily energy budget of this user.
+     * The budget is built on first use and caches the days it has computed.
+     *
+     * @return the energy budget
+     */
+	public EnergyBudget getEnergyBudget() {
+		if (energyBudget == null) {
+			energyBudget = new EnergyBudget(this);
+		}
+		return energyBudget;
+	}
 	
 	public String getName() {
 		return name;
@@ -109,6 +195,7 @@ public class User {
 	public void setWeight(double weight) {
 		if (weight <= 0) throw new IllegalArgumentException("Weight must be greater than 0");
 		this.weight = weight;
+		history.record(LocalDate.now(), weight, height);
 	}
 	
 	public double getHeight() {
@@ -119,6 +206,7 @@ public class User {
 	public void setHeight(double height) {
 		if (height <= 0) throw new IllegalArgumentException("Height must be greater than 0");
 		this.height = height;
+		history.record(LocalDate.now(), weight, height);
 	}
 	
 	public Schedule getSchedule() {
@@ -0,0 +1,294 @@
+package object;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import object.Entry.EntryType;
+
+/**
+ * Forecasts the weight of a {@link User} from the net calories recorded in their {@link Schedule}.
+ * <p>
+ * Every pair of consecutive measurements in the user's {@link WeightHistory} is one observation:
+ * the weight change over the days between them is fitted by least squares against the number of
+ * days and the recorded net calories of those days,
+ * {@code change = days * dailyChange + netCalories * kgPerKcal}. The daily change is the weight
+ * lost at zero net calories, as net calories do not include the energy burnt at rest. Days without
+ * recorded entries are assumed to match the average of the logged days of the same observation.
+ * The rate per kcal is pulled towards {@value #KCAL_PER_KG} kcal per kg as if one more observation
+ * of {@value #PRIOR_DAYS} days at {@value #PRIOR_NET} kcal per day had been made, so that the fit is
+ * usable from the second measurement on.
+ * </p>
+ * <p>
+ * The fit only keeps the sums of the least squares normal equations, and the recorded net calories
+ * of every logged day. When a day changes, its old value is taken out of the sums of its observation
+ * and the new one put in, so entries can be added while the forecast is shown. A new measurement
+ * regroups the kept daily values without reading the schedule.
+ * </p>
+ */
+public class WeightForecaster implements ScheduleListener {
+
+	/**
+	 * The forecast lengths in days shown in reports.
+	 */
+	public static final int[] HORIZONS = {30, 90};
+
+	/**
+	 * Energy content of a kilogram of body weight assumed before there are enough measurements.
+	 */
+	public static final double KCAL_PER_KG = 7700;
+
+	/**
+	 * Number of recent days whose planned net calories stand in for future days without a plan.
+	 */
+	public static final int PLAN_WINDOW = 28;
+
+	private static final int PRIOR_DAYS = 30;
+	private static final double PRIOR_NET = 500;
+
+	private final Schedule schedule;
+	private final WeightHistory history;
+	private final TreeMap<Long, Double> loggedNet;
+	private final TreeMap<Long, Observation> observations;
+	private double sumTT;
+	private double sumTS;
+	private double sumSS;
+	private double sumTY;
+	private double sumSY;
+	private int count;
+	private int definitions;
+	private int historyRevision;
+
+	//the days between two measurements, keyed by the day of the first
+	private static class Observation {
+		private final long start;
+		private final long end;
+		private final double change;
+		private double net;
+		private int loggedDays;
+
+		private Observation(long start, long end, double change) {
+			this.start = start;
+			this.end = end;
+			this.change = change;
+		}
+
+		private boolean isUsable() {
+			return loggedDays > 0;
+		}
+
+		private double days() {
+			return end - start;
+		}
+
+		private double scaledNet() {
+			return net * days() / loggedDays;
+		}
+	}
+
+    /**
+     * Builds the fit from the history of a user and registers it as a listener of their schedule.
+     *
+     * @param user the user to forecast
+     */
+	public WeightForecaster(User user) {
+		this.schedule = user.getSchedule();
+		this.history = user.getWeightHistory();
+		this.loggedNet = new TreeMap<>();
+		this.observations = new TreeMap<>();
+		rebuild();
+		schedule.addListener(this);
+	}
+
+    /**
+     * Updates the observations containing the changed dates.
+     *
+     * @param dates the dates whose plans changed
+     */
+	@Override
+	public synchronized void plansChanged(Set<LocalDate> dates) {
+		if (definitions != LibraryItem.getDefinitionChanges()) {
+			rebuild();
+			return;
+		}
+		for (LocalDate date : dates)
+			update(date.toEpochDay(), schedule.getRollups().get(Granularity.DAY, date));
+	}
+
+    /**
+     * Checks whether at least one observation has recorded entries, so that a forecast can be made.
+     *
+     * @return true if the fit has data
+     */
+	public synchronized boolean isReady() {
+		refresh();
+		return count > 0;
+	}
+
+	public synchronized int getObservationCount() {
+		refresh();
+		return count;
+	}
+
+    /**
+     * Returns the fitted weight change per day at zero net calories.
+     *
+     * @return the change in kg per day, or {@code NaN} if the fit has no data
+     */
+	public synchronized double getDailyChange() {
+		refresh();
+		return solve()[0];
+	}
+
+    /**
+     * Returns the fitted weight change per net kcal.
+     *
+     * @return the change in kg per kcal, or {@code NaN} if the fit has no data
+     */
+	public synchronized double getKgPerKcal() {
+		refresh();
+		return solve()[1];
+	}
+
+    /**
+     * Projects the weight a number of days after today under the current plan.
+     * Each future day counts with its planned net calories, or, if it has no planned entries,
+     * with the average planned net calories of the last {@value #PLAN_WINDOW} planned days.
+     *
+     * @param today the day to project from, using the weight valid on it
+     * @param days  the number of days to project
+     * @return the projected weight in kg, or {@code NaN} if the fit has no data or nothing was planned
+     * @throws IllegalArgumentException if the number of days is not positive
+     */
+	public synchronized double project(LocalDate today, int days) {
+		if (days <= 0) throw new IllegalArgumentException("Days must be at least one");
+		refresh();
+		double[] fit = solve();
+		if (Double.isNaN(fit[0]))
+			return Double.NaN;
+
+		RollupTable rollups = schedule.getRollups();
+		double planned = 0;
+		int plannedDays = 0;
+		for (RollupTable.Cell day : rollups.getRange(Granularity.DAY, today.plusDays(1), today.plusDays(days)).values()) {
+			if (isPlanned(day)) {
+				planned += day.getNet(EntryType.PLANNED);
+				plannedDays++;
+			}
+		}
+		if (plannedDays < days) {
+			double recent = 0;
+			int recentDays = 0;
+			for (RollupTable.Cell day : rollups.getRange(Granularity.DAY, today.minusDays(PLAN_WINDOW - 1), today).values()) {
+				if (isPlanned(day)) {
+					recent += day.getNet(EntryType.PLANNED);
+					recentDays++;
+				}
+			}
+			if (recentDays == 0 && plannedDays == 0)
+				return Double.NaN;
+			double average = recentDays > 0 ? recent / recentDays : planned / plannedDays;
+			planned += average * (days - plannedDays);
+		}
+		return history.getOn(today).getWeight() + fit[0] * days + fit[1] * planned;
+	}
+
+	private static boolean isPlanned(RollupTable.Cell day) {
+		return day.getEntryCount(EntryType.PLANNED) + day.getEntryCount(EntryType.PLANNED_COMPLETE) > 0;
+	}
+
+	//solves the normal equations with the prior observation added, {dailyChange, kgPerKcal}
+	private double[] solve() {
+		if (count == 0)
+			return new double[] {Double.NaN, Double.NaN};
+		double priorNet = PRIOR_DAYS * PRIOR_NET;
+		double ss = sumSS + priorNet * priorNet;
+		double sy = sumSY + priorNet * priorNet / KCAL_PER_KG;
+		double det = sumTT * ss - sumTS * sumTS;
+		if (det == 0)
+			return new double[] {Double.NaN, Double.NaN};
+		return new double[] {(sumTY * ss - sumTS * sy) / det, (sumTT * sy - sumTS * sumTY) / det};
+	}
+
+	private void refresh() {
+		if (definitions != LibraryItem.getDefinitionChanges())
+			rebuild();
+		else if (historyRevision != history.getRevision())
+			regroup();
+	}
+
+	private void rebuild() {
+		definitions = LibraryItem.getDefinitionChanges();
+		loggedNet.clear();
+		if (schedule.getFirstMonth() != null) {
+			LocalDate first = schedule.getFirstMonth().atDay(1);
+			LocalDate last = schedule.getLastMonth().atEndOfMonth();
+			for (Map.Entry<LocalDate, RollupTable.Cell> day : schedule.getRollups().getRange(Granularity.DAY, first, last).entrySet()) {
+				if (day.getValue().getEntryCount(EntryType.RECORDED) > 0)
+					loggedNet.put(day.getKey().toEpochDay(), day.getValue().getNet(EntryType.RECORDED));
+			}
+		}
+		regroup();
+	}
+
+	private void regroup() {
+		historyRevision = history.getRevision();
+		observations.clear();
+		sumTT = sumTS = sumSS = sumTY = sumSY = 0;
+		count = 0;
+		List<WeightHistory.Measurement> measurements = history.getRange(LocalDate.MIN, LocalDate.MAX);
+		for (int i = 1; i < measurements.size(); i++) {
+			WeightHistory.Measurement from = measurements.get(i - 1);
+			WeightHistory.Measurement to = measurements.get(i);
+			Observation observation = new Observation(from.getDate().toEpochDay(), to.getDate().toEpochDay(),
+					to.getWeight() - from.getWeight());
+			for (double net : loggedNet.subMap(observation.start, true, observation.end, false).values()) {
+				observation.net += net;
+				observation.loggedDays++;
+			}
+			observations.put(observation.start, observation);
+			count(observation, 1);
+		}
+	}
+
+	private void update(long day, RollupTable.Cell cell) {
+		Double old = cell.getEntryCount(EntryType.RECORDED) > 0
+				? loggedNet.put(day, cell.getNet(EntryType.RECORDED))
+				: loggedNet.remove(day);
+		if (historyRevision != history.getRevision()) {
+			regroup();
+			return;
+		}
+		Map.Entry<Long, Observation> entry = observations.floorEntry(day);
+		if (entry == null || day >= entry.getValue().end)
+			return;
+		Observation observation = entry.getValue();
+		count(observation, -1);
+		if (old != null) {
+			observation.net -= old;
+			observation.loggedDays--;
+		}
+		Double net = loggedNet.get(day);
+		if (net != null) {
+			observation.net += net;
+			observation.loggedDays++;
+		}
+		count(observation, 1);
+	}
+
+	private void count(Observation observation, int sign) {
+		if (!observation.isUsable())
+			return;
+		double t = observation.days();
+		double s = observation.scaledNet();
+		double y = observation.change;
+		sumTT += sign * t * t;
+		sumTS += sign * t * s;
+		sumSS += sign * s * s;
+		sumTY += sign * t * y;
+		sumSY += sign * s * y;
+		count += sign;
+	}
+}
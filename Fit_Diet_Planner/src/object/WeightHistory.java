@@ -0,0 +1,400 @@
+package object;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A dated history of body weight and height, stored as a compressed time series.
+ * <p>
+ * Measurements are kept in blocks of up to {@value #BLOCK_SIZE} days, indexed by the first day of
+ * each block. Inside a block, days are written as the difference between consecutive gaps
+ * (delta-of-delta), which is a single bit when measurements are taken at a regular interval, and
+ * weight and height are written as the XOR of their bits with the previous value, which is a
+ * single bit when a value did not change and only the changed middle bits otherwise. The last
+ * measurement of every block is also kept decoded, so the value valid on a date after the end
+ * of a block, such as today, is read without decoding anything.
+ * </p>
+ * <p>
+ * There is at most one measurement per day, a later one replaces the earlier. The history is
+ * read by importers on background threads, so all methods are synchronized.
+ * </p>
+ */
+public class WeightHistory {
+
+	/**
+	 * Maximum number of measurements in a block.
+	 */
+	public static final int BLOCK_SIZE = 64;
+
+    /**
+     * The weight and height measured on a day.
+     */
+	public static class Measurement {
+		private final LocalDate date;
+		private final double weight;
+		private final double height;
+
+		private Measurement(long day, double weight, double height) {
+			this.date = LocalDate.ofEpochDay(day);
+			this.weight = weight;
+			this.height = height;
+		}
+
+		public LocalDate getDate() {
+			return date;
+		}
+
+		public double getWeight() {
+			return weight;
+		}
+
+		public double getHeight() {
+			return height;
+		}
+	}
+
+	private final TreeMap<Long, Block> blocks;
+	private int size;
+	private int revision;
+
+    /**
+     * Creates an empty history.
+     */
+	public WeightHistory() {
+		blocks = new TreeMap<>();
+	}
+
+    /**
+     * Records the weight and height measured on a date, replacing any measurement of that date.
+     *
+     * @param date   the date of the measurement
+     * @param weight the weight in kilograms
+     * @param height the height in centimeters
+     * @throws IllegalArgumentException if weight or height are non-positive
+     */
+	public synchronized void record(LocalDate date, double weight, double height) {
+		if (weight <= 0) throw new IllegalArgumentException("Weight must be greater than 0");
+		if (height <= 0) throw new IllegalArgumentException("Height must be greater than 0");
+		long day = date.toEpochDay();
+		revision++;
+		Map.Entry<Long, Block> floor = blocks.floorEntry(day);
+		Block block = floor != null ? floor.getValue() : blocks.isEmpty() ? null : blocks.firstEntry().getValue();
+		if (block == null) {
+			blocks.put(day, Block.encode(new long[] {day}, new double[] {weight}, new double[] {height}, 1));
+			size++;
+			return;
+		}
+
+		Points points = block.decode();
+		int index = Arrays.binarySearch(points.days, 0, points.count, day);
+		if (index >= 0) {
+			points.weights[index] = weight;
+			points.heights[index] = height;
+		} else {
+			points.insert(-index - 1, day, weight, height);
+			size++;
+		}
+		blocks.remove(block.firstDay);
+		if (points.count <= BLOCK_SIZE) {
+			blocks.put(points.days[0], Block.encode(points.days, points.weights, points.heights, points.count));
+		} else {
+			//split in two, except when appending, where the new block starts with the new day only
+			int split = index < 0 && -index - 1 == points.count - 1 ? points.count - 1 : points.count / 2;
+			blocks.put(points.days[0], Block.encode(points.days, points.weights, points.heights, split));
+			Block upper = Block.encode(Arrays.copyOfRange(points.days, split, points.count),
+					Arrays.copyOfRange(points.weights, split, points.count),
+					Arrays.copyOfRange(points.heights, split, points.count), points.count - split);
+			blocks.put(upper.firstDay, upper);
+		}
+	}
+
+    /**
+     * Returns the measurement valid on a date: the last one taken on or before it, or the first
+     * one if the date is before any measurement.
+     *
+     * @param date the date to read
+     * @return the measurement, or {@code null} if the history is empty
+     */
+	public synchronized Measurement getOn(LocalDate date) {
+		if (blocks.isEmpty())
+			return null;
+		long day = date.toEpochDay();
+		Map.Entry<Long, Block> floor = blocks.floorEntry(day);
+		if (floor == null) {
+			Block first = blocks.firstEntry().getValue();
+			return first.decode().get(0);
+		}
+		Block block = floor.getValue();
+		if (day >= block.lastDay)
+			return new Measurement(block.lastDay, block.lastWeight, block.lastHeight);
+		Points points = block.decode();
+		int index = Arrays.binarySearch(points.days, 0, points.count, day);
+		return points.get(index >= 0 ? index : -index - 2);
+	}
+
+    /**
+     * Returns the measurements taken between two dates, in order.
+     * Only the blocks overlapping the range are decoded.
+     *
+     * @param from the first date, inclusive
+     * @param to   the last date, inclusive
+     * @return the measurements in the range
+     */
+	public synchronized List<Measurement> getRange(LocalDate from, LocalDate to) {
+		long first = from.toEpochDay();
+		long last = to.toEpochDay();
+		List<Measurement> range = new ArrayList<>();
+		Long start = blocks.floorKey(first);
+		for (Block block : blocks.subMap(start == null ? first : start, true, last, true).values()) {
+			if (block.lastDay < first)
+				continue;
+			Points points = block.decode();
+			for (int i = 0; i < points.count; i++) {
+				if (points.days[i] >= first && points.days[i] <= last)
+					range.add(points.get(i));
+			}
+		}
+		return range;
+	}
+
+    /**
+     * Returns the latest measurement.
+     *
+     * @return the last measurement, or {@code null} if the history is empty
+     */
+	public synchronized Measurement getLatest() {
+		if (blocks.isEmpty())
+			return null;
+		Block block = blocks.lastEntry().getValue();
+		return new Measurement(block.lastDay, block.lastWeight, block.lastHeight);
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+    /**
+     * Returns a counter increased by every recorded measurement,
+     * so that values derived from the history can tell when to recompute.
+     *
+     * @return the revision of the history
+     */
+	public synchronized int getRevision() {
+		return revision;
+	}
+
+    /**
+     * Returns the number of bytes used by the encoded blocks, without the index.
+     *
+     * @return the encoded size in bytes
+     */
+	public synchronized int getEncodedSize() {
+		int bytes = 0;
+		for (Block block : blocks.values())
+			bytes += block.data.length;
+		return bytes;
+	}
+
+	private static class Points {
+		private long[] days;
+		private double[] weights;
+		private double[] heights;
+		private int count;
+
+		private Points(int capacity) {
+			days = new long[capacity];
+			weights = new double[capacity];
+			heights = new double[capacity];
+		}
+
+		private void insert(int index, long day, double weight, double height) {
+			if (count == days.length) {
+				days = Arrays.copyOf(days, count + 1);
+				weights = Arrays.copyOf(weights, count + 1);
+				heights = Arrays.copyOf(heights, count + 1);
+			}
+			System.arraycopy(days, index, days, index + 1, count - index);
+			System.arraycopy(weights, index, weights, index + 1, count - index);
+			System.arraycopy(heights, index, heights, index + 1, count - index);
+			days[index] = day;
+			weights[index] = weight;
+			heights[index] = height;
+			count++;
+		}
+
+		private Measurement get(int index) {
+			return new Measurement(days[index], weights[index], heights[index]);
+		}
+	}
+
+	private static class Block {
+		private long firstDay;
+		private long lastDay;
+		private double lastWeight;
+		private double lastHeight;
+		private int count;
+		private byte[] data;
+
+		private static Block encode(long[] days, double[] weights, double[] heights, int count) {
+			Block block = new Block();
+			block.firstDay = days[0];
+			block.lastDay = days[count - 1];
+			block.lastWeight = weights[count - 1];
+			block.lastHeight = heights[count - 1];
+			block.count = count;
+
+			BitWriter out = new BitWriter();
+			XorState weight = new XorState();
+			XorState height = new XorState();
+			weight.previous = Double.doubleToRawLongBits(weights[0]);
+			height.previous = Double.doubleToRawLongBits(heights[0]);
+			out.write(weight.previous, 64);
+			out.write(height.previous, 64);
+			long prevDelta = 0;
+			for (int i = 1; i < count; i++) {
+				long delta = days[i] - days[i - 1];
+				writeDeltaOfDelta(out, delta - prevDelta);
+				prevDelta = delta;
+				weight.write(out, Double.doubleToRawLongBits(weights[i]));
+				height.write(out, Double.doubleToRawLongBits(heights[i]));
+			}
+			block.data = out.toByteArray();
+			return block;
+		}
+
+		private Points decode() {
+			Points points = new Points(count);
+			BitReader in = new BitReader(data);
+			XorState weight = new XorState();
+			XorState height = new XorState();
+			weight.previous = in.read(64);
+			height.previous = in.read(64);
+			points.days[0] = firstDay;
+			points.weights[0] = Double.longBitsToDouble(weight.previous);
+			points.heights[0] = Double.longBitsToDouble(height.previous);
+			long delta = 0;
+			for (int i = 1; i < count; i++) {
+				delta += readDeltaOfDelta(in);
+				points.days[i] = points.days[i - 1] + delta;
+				points.weights[i] = Double.longBitsToDouble(weight.read(in));
+				points.heights[i] = Double.longBitsToDouble(height.read(in));
+			}
+			points.count = count;
+			return points;
+		}
+
+		//'0' for an unchanged gap, otherwise a prefix selecting 7, 9, 12 or 32 bits
+		private static void writeDeltaOfDelta(BitWriter out, long value) {
+			if (value == 0) {
+				out.write(0, 1);
+			} else if (value >= -63 && value <= 64) {
+				out.write(0b10, 2);
+				out.write(value + 63, 7);
+			} else if (value >= -255 && value <= 256) {
+				out.write(0b110, 3);
+				out.write(value + 255, 9);
+			} else if (value >= -2047 && value <= 2048) {
+				out.write(0b1110, 4);
+				out.write(value + 2047, 12);
+			} else {
+				out.write(0b1111, 4);
+				out.write(value, 32);
+			}
+		}
+
+		private static long readDeltaOfDelta(BitReader in) {
+			if (in.read(1) == 0)
+				return 0;
+			if (in.read(1) == 0)
+				return in.read(7) - 63;
+			if (in.read(1) == 0)
+				return in.read(9) - 255;
+			if (in.read(1) == 0)
+				return in.read(12) - 2047;
+			return (int) in.read(32);
+		}
+	}
+
+	//the previous value and meaningful bit window of one XOR-encoded series
+	private static class XorState {
+		private long previous;
+		private int leading = -1;
+		private int trailing;
+
+		private void write(BitWriter out, long value) {
+			long xor = value ^ previous;
+			previous = value;
+			if (xor == 0) {
+				out.write(0, 1);
+				return;
+			}
+			out.write(1, 1);
+			int lead = Math.min(Long.numberOfLeadingZeros(xor), 31);
+			int trail = Long.numberOfTrailingZeros(xor);
+			if (leading >= 0 && lead >= leading && trail >= trailing) {
+				out.write(0, 1);
+				out.write(xor >>> trailing, 64 - leading - trailing);
+				return;
+			}
+			leading = lead;
+			trailing = trail;
+			int length = 64 - lead - trail;
+			out.write(1, 1);
+			out.write(lead, 5);
+			out.write(length - 1, 6);
+			out.write(xor >>> trail, length);
+		}
+
+		private long read(BitReader in) {
+			if (in.read(1) == 0)
+				return previous;
+			if (in.read(1) == 1) {
+				leading = (int) in.read(5);
+				trailing = 64 - leading - ((int) in.read(6) + 1);
+			}
+			previous ^= in.read(64 - leading - trailing) << trailing;
+			return previous;
+		}
+	}
+
+	private static class BitWriter {
+		private byte[] bytes = new byte[32];
+		private int bits;
+
+		private void write(long value, int length) {
+			for (int i = length - 1; i >= 0; i--) {
+				if (bits / 8 == bytes.length)
+					bytes = Arrays.copyOf(bytes, bytes.length * 2);
+				if (((value >>> i) & 1) != 0)
+					bytes[bits / 8] |= (byte) (0x80 >>> (bits % 8));
+				bits++;
+			}
+		}
+
+		private byte[] toByteArray() {
+			return Arrays.copyOf(bytes, (bits + 7) / 8);
+		}
+	}
+
+	private static class BitReader {
+		private final byte[] bytes;
+		private int bits;
+
+		private BitReader(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		private long read(int length) {
+			long value = 0;
+			for (int i = 0; i < length; i++) {
+				value = (value << 1) | ((bytes[bits / 8] >>> (7 - bits % 8)) & 1);
+				bits++;
+			}
+			return value;
+		}
+	}
+}
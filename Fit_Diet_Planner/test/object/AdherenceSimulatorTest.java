@@ -0,0 +1,113 @@
+package object;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import object.Entry.EntryType;
+import object.Food.FoodCategory;
+import object.LibraryItem.LibraryType;
+
+/**
+ * Tests that an {@link AdherenceSimulator} seed always gives the same trials, however they are split into tasks.
+ */
+class AdherenceSimulatorTest {
+
+	private static final LocalDate TODAY = LocalDate.now();
+
+	private final Food rice = new Food("rice", LibraryType.CUSTOM, FoodCategory.GRAIN, 1.0, 100);
+
+	//a history where about 70% of the planned entries were completed, with unplanned snacks on half the days
+	private User createUser() {
+		Random random = new Random(50);
+		Schedule schedule = new Schedule();
+		User user = new User("test", 30, 80, 180, schedule);
+		for (int day = 1; day <= AdherenceSimulator.HISTORY_DAYS; day++) {
+			DailyPlan plan = schedule.getDailyPlan(TODAY.minusDays(day));
+			for (int i = 0; i < 4; i++)
+				plan.addEntry(new FoodEntry(EntryType.PLANNED, null, rice, 1, 500));
+			for (Entry entry : new ArrayList<>(plan.getEntries())) {
+				if (random.nextInt(10) < 7)
+					plan.completeEntry(entry);
+			}
+			if (random.nextBoolean())
+				plan.addEntry(new FoodEntry(EntryType.RECORDED, null, rice, 1, 300));
+		}
+		for (int day = 1; day <= 30; day++) {
+			for (int i = 0; i < 4; i++)
+				schedule.getDailyPlan(TODAY.plusDays(day)).addEntry(new FoodEntry(EntryType.PLANNED, null, rice, 1, 500));
+		}
+		return user;
+	}
+
+	private static void assertSameResult(AdherenceSimulator.Result expected, AdherenceSimulator.Result actual) {
+		assertEquals(expected.getTrials(), actual.getTrials());
+		assertEquals(expected.getCompletionShare(), actual.getCompletionShare());
+		assertEquals(expected.getMeanNet(), actual.getMeanNet());
+		assertEquals(expected.getMeanWeight(), actual.getMeanWeight());
+		for (int percentile = 0; percentile <= 100; percentile++) {
+			assertEquals(expected.getNetPercentile(percentile), actual.getNetPercentile(percentile), "p" + percentile);
+			assertEquals(expected.getWeightPercentile(percentile), actual.getWeightPercentile(percentile), "p" + percentile);
+		}
+	}
+
+	@Test
+	void sameSeedGivesSameResult() {
+		User user = createUser();
+		AdherenceSimulator simulator = new AdherenceSimulator(user);
+
+		AdherenceSimulator.Result first = simulator.simulate(TODAY, 30, 10_000, 42);
+		AdherenceSimulator.Result second = simulator.simulate(TODAY, 30, 10_000, 42);
+		AdherenceSimulator.Result fresh = new AdherenceSimulator(user).simulate(TODAY, 30, 10_000, 42);
+
+		assertEquals(10_000, first.getTrials());
+		assertEquals(30, first.getDays());
+		assertSameResult(first, second);
+		assertSameResult(first, fresh);
+	}
+
+	@Test
+	void otherSeedGivesOtherTrials() {
+		AdherenceSimulator simulator = new AdherenceSimulator(createUser());
+
+		AdherenceSimulator.Result first = simulator.simulate(TODAY, 30, 10_000, 1);
+		AdherenceSimulator.Result second = simulator.simulate(TODAY, 30, 10_000, 2);
+
+		assertNotEquals(first.getMeanNet(), second.getMeanNet());
+		assertEquals(first.getMeanNet(), second.getMeanNet(), first.getMeanNet() * 0.01);
+	}
+
+	@Test
+	void fullyFollowedPlanHasNoSpread() {
+		Schedule schedule = new Schedule();
+		User user = new User("test", 30, 80, 180, schedule);
+		for (int day = 1; day <= 10; day++) {
+			DailyPlan past = schedule.getDailyPlan(TODAY.minusDays(day));
+			Entry planned = new FoodEntry(EntryType.PLANNED, null, rice, 1, 400);
+			past.addEntry(planned);
+			past.completeEntry(planned);
+			schedule.getDailyPlan(TODAY.plusDays(day)).addEntry(new FoodEntry(EntryType.PLANNED, null, rice, 1, 250));
+		}
+
+		AdherenceSimulator.Result result = new AdherenceSimulator(user).simulate(TODAY, 10, 3000, 7);
+		assertEquals(1, result.getCompletionShare());
+		assertEquals(2500, result.getNetPercentile(0), 1e-9);
+		assertEquals(2500, result.getNetPercentile(100), 1e-9);
+		assertEquals(result.getWeightPercentile(0), result.getWeightPercentile(100));
+	}
+
+	@Test
+	void rejectsInvalidArguments() {
+		AdherenceSimulator simulator = new AdherenceSimulator(new User("test", 30, 80, 180, new Schedule()));
+
+		assertThrows(IllegalArgumentException.class, () -> simulator.simulate(TODAY, 0, 100, 1));
+		assertThrows(IllegalArgumentException.class, () -> simulator.simulate(TODAY, 30, 0, 1));
+		assertThrows(IllegalArgumentException.class, () -> simulator.simulate(TODAY, 30, 100, 1).getNetPercentile(101));
+	}
+}
@@ -0,0 +1,135 @@
+package object;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import object.Food.FoodCategory;
+import object.LibraryItem.LibraryType;
+
+/**
+ * Tests that a {@link BinaryCatalog} written to a file reads back the same items and finds them by id and name.
+ */
+class BinaryCatalogTest {
+
+	private static BinaryCatalog roundTrip(List<Food> foods, List<Sport> sports) throws IOException {
+		Path file = Files.createTempFile("catalog", ".bin");
+		file.toFile().deleteOnExit(); //the mapping stays open while the catalog is used
+		BinaryCatalog.write(foods, sports, file);
+		return BinaryCatalog.load(file);
+	}
+
+	@Test
+	void readsBackEveryField() throws IOException {
+		List<Food> foods = List.of(
+				new Food("FOOD_002", "Brown Rice", LibraryType.DEFAULT, FoodCategory.GRAIN, 1.11, 195),
+				new Food("FOOD_001", "Crème brûlée", LibraryType.DEFAULT, FoodCategory.PROTEIN, 3.05, 120.5));
+		List<Sport> sports = List.of(
+				new Sport("SPORT_001", "Running", LibraryType.DEFAULT, 9.8),
+				new Sport("SPORT_002", "Push-up", LibraryType.DEFAULT, 8.0, 2.5));
+		BinaryCatalog catalog = roundTrip(foods, sports);
+
+		assertEquals(2, catalog.foods().size());
+		assertEquals(2, catalog.sports().size());
+		for (Food expected : foods) {
+			Food food = catalog.readFood(catalog.foods().findById(expected.getId()));
+			assertEquals(expected.getId(), food.getId());
+			assertEquals(expected.getName(), food.getName());
+			assertEquals(expected.getCategory(), food.getCategory());
+			assertEquals(expected.getCaloriePerG(), food.getCaloriePerG());
+			assertEquals(expected.getGramPerServing(), food.getGramPerServing());
+		}
+		Sport running = catalog.readSport(catalog.sports().findById("SPORT_001"));
+		assertFalse(running.isRepBased());
+		assertEquals(9.8, running.getMet());
+		Sport pushUp = catalog.readSport(catalog.sports().findById("SPORT_002"));
+		assertTrue(pushUp.isRepBased());
+		assertEquals(8.0, pushUp.getMet());
+		assertEquals(2.5, pushUp.getSecondsPerRep());
+	}
+
+	@Test
+	void storesRecordsInIdOrder() throws IOException {
+		List<Food> foods = new ArrayList<>();
+		for (int i = 99; i >= 0; i--)
+			foods.add(new Food(String.format("FOOD_%03d", i), "Food " + i, LibraryType.DEFAULT, FoodCategory.PRODUCE, i, 100));
+		BinaryCatalog catalog = roundTrip(foods, List.of());
+
+		for (int record = 0; record < 100; record++)
+			assertEquals(String.format("FOOD_%03d", record), catalog.foods().getId(record));
+		for (int i = 0; i < 100; i++)
+			assertEquals(i, catalog.foods().findById(String.format("FOOD_%03d", i)));
+	}
+
+	@Test
+	void findByIdReturnsMinusOneForMissingIds() throws IOException {
+		BinaryCatalog catalog = roundTrip(List.of(
+				new Food("FOOD_002", "b", LibraryType.DEFAULT, FoodCategory.GRAIN, 1, 1),
+				new Food("FOOD_004", "d", LibraryType.DEFAULT, FoodCategory.GRAIN, 1, 1)), List.of());
+
+		assertEquals(-1, catalog.foods().findById("FOOD_001"));
+		assertEquals(-1, catalog.foods().findById("FOOD_003"));
+		assertEquals(-1, catalog.foods().findById("FOOD_005"));
+		assertEquals(-1, catalog.sports().findById("FOOD_002"));
+	}
+
+	@Test
+	void findByNameIgnoresCase() throws IOException {
+		List<Food> foods = new ArrayList<>();
+		String[] names = {"Zucchini", "apple", "Banana", "cherry tomato", "Égg"};
+		for (int i = 0; i < names.length; i++)
+			foods.add(new Food("FOOD_" + i, names[i], LibraryType.DEFAULT, FoodCategory.PRODUCE, 1, 1));
+		BinaryCatalog catalog = roundTrip(foods, List.of());
+
+		for (int i = 0; i < names.length; i++) {
+			assertEquals("FOOD_" + i, catalog.foods().getId(catalog.foods().findByName(names[i].toUpperCase())));
+			assertEquals("FOOD_" + i, catalog.foods().getId(catalog.foods().findByName(names[i].toLowerCase())));
+		}
+		assertEquals(-1, catalog.foods().findByName("apples"));
+		assertEquals(-1, catalog.foods().findByName(""));
+	}
+
+	@Test
+	void nameIndexIsSortedByLowerCaseName() throws IOException {
+		List<Sport> sports = List.of(
+				new Sport("SPORT_1", "cycling", LibraryType.DEFAULT, 7),
+				new Sport("SPORT_2", "Aerobics", LibraryType.DEFAULT, 6),
+				new Sport("SPORT_3", "Boxing", LibraryType.DEFAULT, 9));
+		BinaryCatalog catalog = roundTrip(List.of(), sports);
+
+		BinaryCatalog.Section section = catalog.sports();
+		assertEquals("Aerobics", section.getName(section.getRecordByNameRank(0)));
+		assertEquals("Boxing", section.getName(section.getRecordByNameRank(1)));
+		assertEquals("cycling", section.getName(section.getRecordByNameRank(2)));
+	}
+
+	@Test
+	void emptyCatalogFindsNothing() {
+		BinaryCatalog catalog = BinaryCatalog.empty();
+
+		assertEquals(0, catalog.foods().size());
+		assertEquals(0, catalog.sports().size());
+		assertEquals(-1, catalog.foods().findById("FOOD_001"));
+		assertEquals(-1, catalog.sports().findByName("Running"));
+	}
+
+	@Test
+	void rejectsOtherFiles() throws IOException {
+		Path file = Files.createTempFile("catalog", ".bin");
+		try {
+			Files.write(file, new byte[64]);
+			assertThrows(IllegalArgumentException.class, () -> BinaryCatalog.load(file));
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package object;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the percentiles, merging and removal of a {@link CalorieHistogram} against sorted values.
+ */
+class CalorieHistogramTest {
+
+	private static final double HALF_BUCKET = CalorieHistogram.BUCKET_KCAL / 2.0;
+
+	private static double nearestRank(double[] sorted, double percentile) {
+		int rank = (int) Math.max(1, Math.ceil(percentile / 100 * sorted.length));
+		return sorted[rank - 1];
+	}
+
+	@Test
+	void percentilesMatchSortedValuesWithinHalfABucket() {
+		Random random = new Random(46);
+		double[] values = new double[1001];
+		CalorieHistogram histogram = new CalorieHistogram();
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextGaussian() * 600 - 200;
+			histogram.add(values[i]);
+		}
+		Arrays.sort(values);
+
+		assertEquals(values.length, histogram.getCount());
+		for (double percentile = 0; percentile <= 100; percentile += 2.5)
+			assertEquals(nearestRank(values, percentile), histogram.getPercentile(percentile), HALF_BUCKET, "p" + percentile);
+		assertEquals(nearestRank(values, 50), histogram.getMedian(), HALF_BUCKET);
+	}
+
+	@Test
+	void returnsTheMiddleOfTheBucket() {
+		CalorieHistogram histogram = new CalorieHistogram();
+		histogram.add(0);
+		histogram.add(9.99);
+		histogram.add(-0.01);
+		histogram.add(1234);
+
+		assertEquals(-5, histogram.getPercentile(0));
+		assertEquals(-5, histogram.getPercentile(25));
+		assertEquals(5, histogram.getPercentile(50));
+		assertEquals(5, histogram.getPercentile(75));
+		assertEquals(1235, histogram.getPercentile(100));
+	}
+
+	@Test
+	void mergedHistogramEqualsOneWithAllValues() {
+		Random random = new Random(7);
+		CalorieHistogram all = new CalorieHistogram();
+		CalorieHistogram merged = new CalorieHistogram();
+		for (int month = 0; month < 12; month++) {
+			CalorieHistogram part = new CalorieHistogram();
+			for (int day = 0; day < 30; day++) {
+				double value = 1800 + random.nextInt(1000);
+				part.add(value);
+				all.add(value);
+			}
+			merged.merge(part);
+		}
+
+		assertEquals(all.getCount(), merged.getCount());
+		assertEquals(all.getBuckets(CalorieHistogram.BUCKET_KCAL), merged.getBuckets(CalorieHistogram.BUCKET_KCAL));
+		for (double percentile = 0; percentile <= 100; percentile += 5)
+			assertEquals(all.getPercentile(percentile), merged.getPercentile(percentile));
+	}
+
+	@Test
+	void removeUndoesAdd() {
+		CalorieHistogram histogram = new CalorieHistogram();
+		histogram.add(100);
+		histogram.add(2000);
+		histogram.add(2005);
+		histogram.add(2500);
+		histogram.remove(2005);
+		histogram.remove(2500);
+
+		assertEquals(2, histogram.getCount());
+		assertEquals(105, histogram.getPercentile(50));
+		assertEquals(2005, histogram.getPercentile(100));
+		assertEquals(Map.of(100, 1, 2000, 1), histogram.getBuckets(CalorieHistogram.BUCKET_KCAL));
+
+		histogram.remove(100);
+		histogram.remove(2000);
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getBuckets(CalorieHistogram.BUCKET_KCAL).size());
+	}
+
+	@Test
+	void emptyHistogramHasZeroPercentiles() {
+		CalorieHistogram histogram = new CalorieHistogram();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMedian());
+		assertEquals(0, histogram.getPercentile(100));
+	}
+
+	@Test
+	void groupsBucketsByWidth() {
+		CalorieHistogram histogram = new CalorieHistogram();
+		for (double value : new double[] {-120, -95, -1, 0, 49, 50, 99, 100, 250})
+			histogram.add(value);
+
+		NavigableMap<Integer, Integer> buckets = histogram.getBuckets(50);
+		assertEquals(Map.of(-150, 1, -100, 1, -50, 1, 0, 2, 50, 2, 100, 1, 250, 1), buckets);
+		assertEquals(-150, buckets.firstKey());
+		assertEquals(Map.of(-200, 1, -100, 2, 0, 4, 100, 1, 200, 1), histogram.getBuckets(100));
+	}
+
+	@Test
+	void rejectsInvalidArguments() {
+		CalorieHistogram histogram = new CalorieHistogram();
+
+		assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(-0.1));
+		assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(100.1));
+		assertThrows(IllegalArgumentException.class, () -> histogram.getBuckets(0));
+		assertThrows(IllegalArgumentException.class, () -> histogram.getBuckets(15));
+	}
+}
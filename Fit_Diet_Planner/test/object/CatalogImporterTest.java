@@ -0,0 +1,126 @@
+package object;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import object.CatalogImporter.ImportResult;
+
+/**
+ * Tests the CSV record splitting and flat JSON object parsing of {@link CatalogImporter}.
+ */
+class CatalogImporterTest {
+
+	@Test
+	void splitsPlainFields() {
+		assertEquals(List.of("Apple", "PRODUCE", "0.52", "182"), CatalogImporter.splitCsv("Apple,PRODUCE,0.52,182"));
+	}
+
+	@Test
+	void keepsEmptyFields() {
+		assertEquals(List.of("", "a", "", ""), CatalogImporter.splitCsv(",a,,"));
+		assertEquals(List.of(""), CatalogImporter.splitCsv(""));
+	}
+
+	@Test
+	void keepsCommasInsideQuotes() {
+		assertEquals(List.of("Rice, white", "1.3"), CatalogImporter.splitCsv("\"Rice, white\",1.3"));
+	}
+
+	@Test
+	void unescapesDoubledQuotes() {
+		assertEquals(List.of("say \"hi\"", "x"), CatalogImporter.splitCsv("\"say \"\"hi\"\"\",x"));
+		assertEquals(List.of("\""), CatalogImporter.splitCsv("\"\"\"\""));
+	}
+
+	@Test
+	void keepsLineBreaksInsideQuotes() {
+		assertEquals(List.of("first\nsecond", "2"), CatalogImporter.splitCsv("\"first\nsecond\",2"));
+	}
+
+	@Test
+	void parsesStringsNumbersAndBooleans() {
+		Map<String, String> row = CatalogImporter.parseJsonObject(
+				"{\"name\": \"Apple\", \"caloriePerG\": 0.52, \"gramPerServing\":-1e2, \"repBased\": true}");
+		assertEquals(Map.of("name", "Apple", "caloriePerG", "0.52", "gramPerServing", "-1e2", "repBased", "true"), row);
+	}
+
+	@Test
+	void omitsNullValues() {
+		Map<String, String> row = CatalogImporter.parseJsonObject("{\"name\":\"Apple\",\"note\":null}");
+		assertEquals(Map.of("name", "Apple"), row);
+		assertFalse(row.containsKey("note"));
+	}
+
+	@Test
+	void unescapesStrings() {
+		Map<String, String> row = CatalogImporter.parseJsonObject(
+				"{\"note\":\"a\\\"b\\\\c\\nd\\te\\u00e9\\/\"}");
+		assertEquals("a\"b\\c\nd\teé/", row.get("note"));
+	}
+
+	@Test
+	void parsesEmptyObjectAndSurroundingSpaces() {
+		assertTrue(CatalogImporter.parseJsonObject("  { }  ").isEmpty());
+		assertEquals(Map.of("a", "1"), CatalogImporter.parseJsonObject(" {\t\"a\" :\t1 } "));
+	}
+
+	@Test
+	void keepsCommasAndBracesInsideStrings() {
+		assertEquals(Map.of("name", "Rice, {white}"), CatalogImporter.parseJsonObject("{\"name\":\"Rice, {white}\"}"));
+	}
+
+	@Test
+	void rejectsNestedValues() {
+		assertThrows(IllegalArgumentException.class, () -> CatalogImporter.parseJsonObject("{\"a\":{\"b\":1}}"));
+		assertThrows(IllegalArgumentException.class, () -> CatalogImporter.parseJsonObject("{\"a\":[1,2]}"));
+	}
+
+	@Test
+	void rejectsMalformedObjects() {
+		assertThrows(IllegalArgumentException.class, () -> CatalogImporter.parseJsonObject("[]"));
+		assertThrows(IllegalArgumentException.class, () -> CatalogImporter.parseJsonObject("{\"a\":1"));
+		assertThrows(IllegalArgumentException.class, () -> CatalogImporter.parseJsonObject("{\"a\" 1}"));
+		assertThrows(IllegalArgumentException.class, () -> CatalogImporter.parseJsonObject("{\"a\":\"x\";\"b\":2}"));
+		assertThrows(IllegalArgumentException.class, () -> CatalogImporter.parseJsonObject("{\"a\":}"));
+		assertThrows(IllegalArgumentException.class, () -> CatalogImporter.parseJsonObject(""));
+	}
+
+	@Test
+	void importsQuotedFieldsSpanningLines() throws IOException {
+		Path file = Files.createTempFile("foods", ".csv");
+		try {
+			Files.writeString(file, "id,name,category,caloriePerG,gramPerServing\n"
+					+ "F1,\"Rice,\nwhite\",GRAIN,1.3,150\n"
+					+ "F2,\"Bad\nrow\",GRAIN,x,150\n"
+					+ "F3,Apple,PRODUCE,0.52,182\n");
+			Library library = new Library(BinaryCatalog.empty());
+			ImportResult result = new CatalogImporter(library).importFoods(file, FileFormat.CSV, null);
+
+			assertEquals(3, result.getRows());
+			assertEquals(2, result.getImported());
+			assertEquals(List.of("Line 4: Invalid number for caloriePerG: x"), result.getErrors());
+			assertEquals("Rice,\nwhite", library.getFood("F1").getName());
+			assertEquals("Apple", library.getFood("F3").getName());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void guessesFormatFromFileName() {
+		assertEquals(FileFormat.CSV, FileFormat.fromFileName("foods.csv"));
+		assertEquals(FileFormat.JSON_LINES, FileFormat.fromFileName("foods.JSONL"));
+		assertEquals(FileFormat.JSON_LINES, FileFormat.fromFileName("foods.ndjson"));
+		assertThrows(IllegalArgumentException.class, () -> FileFormat.fromFileName("foods.json"));
+	}
+}
@@ -0,0 +1,157 @@
+package object;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import controller.EntryDuplicatePopUpController.ConflictAction;
+import object.Entry.EntryType;
+import object.Food.FoodCategory;
+import object.LibraryItem.LibraryType;
+
+/**
+ * Tests the shared templates of duplicated {@link DailyPlan}s, the change events of their bulk operations
+ * and the buckets entries move between when their type changes.
+ */
+class DailyPlanTest {
+
+	private static final LocalDate SOURCE = LocalDate.of(2024, 5, 1);
+
+	private final Food rice = new Food("Rice", LibraryType.CUSTOM, FoodCategory.GRAIN, 1.3, 150);
+	private final Sport running = new Sport("Running", LibraryType.CUSTOM, 9.8);
+
+	private Schedule createDuplicatedDays(int days) {
+		Schedule schedule = new Schedule();
+		DailyPlan source = schedule.getDailyPlan(SOURCE);
+		source.addEntry(new FoodEntry(EntryType.PLANNED, "lunch", rice, 2, 100));
+		source.addEntry(new TimeBasedExerciseEntry(EntryType.PLANNED, "run", running, 30, 60));
+		schedule.duplicatePlan(SOURCE, SOURCE.plusDays(1), SOURCE.plusDays(days), ConflictAction.COMBINE);
+		return schedule;
+	}
+
+	private static Set<String> ids(DailyPlan plan) {
+		Set<String> ids = new HashSet<>();
+		for (Entry entry : plan.getEntries())
+			ids.add(entry.getId());
+		return ids;
+	}
+
+	@Test
+	void editingADuplicatedDayLeavesTheOthersUnchanged() {
+		Schedule schedule = createDuplicatedDays(3);
+		DailyPlan edited = schedule.getDailyPlan(SOURCE.plusDays(2));
+		DailyPlan other = schedule.getDailyPlan(SOURCE.plusDays(1));
+		assertTrue(edited.isShared());
+		double net = other.getNetCalories(EntryType.PLANNED);
+		Set<String> sharedIds = ids(other);
+		assertEquals(sharedIds, ids(edited));
+
+		Entry lunch = edited.getFoodEntries(EntryType.PLANNED).get(0);
+		edited.updateEntry(lunch, new FoodEntry(EntryType.PLANNED, "big lunch", rice, 3, 100));
+		edited.deleteEntry(edited.getExerciseEntries(EntryType.PLANNED).get(0));
+
+		assertFalse(edited.isShared());
+		assertEquals("big lunch", edited.getEntries().get(0).getNote());
+		assertEquals(1, edited.size());
+		for (LocalDate date : List.of(SOURCE, SOURCE.plusDays(1), SOURCE.plusDays(3))) {
+			DailyPlan plan = schedule.getDailyPlan(date);
+			assertEquals(2, plan.size(), date.toString());
+			assertEquals("lunch", plan.getFoodEntries(EntryType.PLANNED).get(0).getNote(), date.toString());
+			assertEquals(2, ((FoodEntry) plan.getFoodEntries(EntryType.PLANNED).get(0)).getQuantity(), date.toString());
+			assertEquals(net, plan.getNetCalories(EntryType.PLANNED), 1e-9, date.toString());
+		}
+		assertEquals(sharedIds, ids(schedule.getDailyPlan(SOURCE.plusDays(3))));
+		for (String id : ids(edited))
+			assertFalse(sharedIds.contains(id), id);
+	}
+
+	@Test
+	void completingASharedEntryLinksTheDaysOwnCopy() {
+		Schedule schedule = createDuplicatedDays(2);
+		DailyPlan plan = schedule.getDailyPlan(SOURCE.plusDays(1));
+		Set<String> sharedIds = ids(schedule.getDailyPlan(SOURCE.plusDays(2)));
+
+		plan.completeEntry(plan.getFoodEntries(EntryType.PLANNED).get(0));
+
+		Entry completed = plan.getFoodEntries(EntryType.PLANNED_COMPLETE).get(0);
+		Entry recorded = plan.getFoodEntries(EntryType.RECORDED).get(0);
+		assertEquals(completed.getId(), recorded.getSourceEntryId());
+		assertNotEquals(completed.getId(), recorded.getId());
+		assertFalse(sharedIds.contains(completed.getId()));
+		assertEquals(EntryType.PLANNED, schedule.getDailyPlan(SOURCE.plusDays(2)).getFoodEntries(EntryType.PLANNED).get(0).getType());
+	}
+
+	@Test
+	void bulkOperationsReportOneChangeEach() {
+		Schedule schedule = new Schedule();
+		DailyPlan plan = schedule.getDailyPlan(SOURCE);
+		List<Set<LocalDate>> events = new ArrayList<>();
+		schedule.addListener(events::add);
+
+		plan.addEntries(List.of(
+				new FoodEntry(EntryType.RECORDED, null, rice, 1, 100),
+				new FoodEntry(EntryType.RECORDED, null, rice, 2, 100),
+				new FoodEntry(EntryType.PLANNED, null, rice, 1, 150),
+				new TimeBasedExerciseEntry(EntryType.PLANNED, null, running, 30, 60)));
+		assertEquals(List.of(Set.of(SOURCE)), events);
+		assertEquals(4, plan.size());
+
+		assertThrows(IllegalArgumentException.class, () -> plan.addEntries(List.of(
+				new FoodEntry(EntryType.RECORDED, null, rice, 1, 100),
+				new FoodEntry(EntryType.RECORDED, null, rice, 0, 100))));
+		assertEquals(1, events.size());
+		assertEquals(4, plan.size());
+
+		plan.replacePlannedEntries(List.of(new FoodEntry(EntryType.PLANNED, "new plan", rice, 3, 100)));
+		assertEquals(2, events.size());
+		assertEquals(3, plan.size());
+		assertEquals("new plan", plan.getFoodEntries(EntryType.PLANNED).get(0).getNote());
+		assertTrue(plan.getExerciseEntries(EntryType.PLANNED).isEmpty());
+
+		assertEquals(2, plan.removeEntries(EnumSet.of(EntryType.RECORDED)));
+		assertEquals(3, events.size());
+		assertEquals(0, plan.removeEntries(EnumSet.of(EntryType.RECORDED)));
+		assertEquals(3, events.size());
+		assertEquals(1, plan.size());
+	}
+
+	@Test
+	void completingAndUpdatingMoveEntriesBetweenBuckets() {
+		DailyPlan plan = new DailyPlan(SOURCE);
+		FoodEntry lunch = new FoodEntry(EntryType.PLANNED, "lunch", rice, 1, 100);
+		TimeBasedExerciseEntry run = new TimeBasedExerciseEntry(EntryType.PLANNED, "run", running, 30, 60);
+		plan.addEntries(List.of(lunch, run));
+		double plannedIntake = plan.getIntakeCalories(EntryType.PLANNED);
+
+		plan.completeEntry(lunch);
+		assertEquals(List.of(), plan.getFoodEntries(EntryType.PLANNED));
+		assertEquals(List.of(lunch), plan.getFoodEntries(EntryType.PLANNED_COMPLETE));
+		assertEquals(1, plan.getFoodEntries(EntryType.RECORDED).size());
+		assertEquals(List.of(run), plan.getExerciseEntries(EntryType.PLANNED));
+		assertEquals(plannedIntake, plan.getIntakeCalories(EntryType.PLANNED), 1e-9);
+		assertEquals(plannedIntake, plan.getIntakeCalories(EntryType.RECORDED), 1e-9);
+
+		plan.updateEntry(run, new TimeBasedExerciseEntry(EntryType.RECORDED, "run", running, 30, 60));
+		assertEquals(List.of(), plan.getExerciseEntries(EntryType.PLANNED));
+		assertEquals(List.of(run), plan.getExerciseEntries(EntryType.RECORDED));
+		assertEquals(0, plan.getBurnCalories(EntryType.PLANNED), 1e-9);
+		assertEquals(run.calculateCalories(), -plan.getBurnCalories(EntryType.RECORDED), 1e-9);
+
+		plan.updateEntry(lunch, new FoodEntry(EntryType.PLANNED, "lunch", rice, 2, 100));
+		assertEquals(List.of(lunch), plan.getFoodEntries(EntryType.PLANNED));
+		assertEquals(List.of(), plan.getFoodEntries(EntryType.PLANNED_COMPLETE));
+		assertEquals(2 * plannedIntake, plan.getIntakeCalories(EntryType.PLANNED), 1e-9);
+		assertEquals(List.of(lunch, plan.getFoodEntries(EntryType.RECORDED).get(0), run), plan.getEntries());
+	}
+}
@@ -0,0 +1,88 @@
+package object;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+
+import org.junit.jupiter.api.Test;
+
+import object.Entry.EntryType;
+import object.Food.FoodCategory;
+import object.LibraryItem.LibraryType;
+
+/**
+ * Tests that the runs of met days of a {@link GoalTracker} are split and joined again when a day in the middle changes.
+ */
+class GoalTrackerTest {
+
+	private static final LocalDate START = LocalDate.of(2024, 3, 1);
+	private static final int DAYS = 10;
+	private static final LocalDate LAST = START.plusDays(DAYS - 1);
+
+	private final Food rice = new Food("Rice", LibraryType.CUSTOM, FoodCategory.GRAIN, 1.3, 150);
+
+	private Schedule createMetDays() {
+		Schedule schedule = new Schedule();
+		for (int day = 0; day < DAYS; day++) {
+			DailyPlan plan = schedule.getDailyPlan(START.plusDays(day));
+			plan.addEntry(new FoodEntry(EntryType.PLANNED, null, rice, 1, 100));
+			plan.addEntry(new FoodEntry(EntryType.RECORDED, null, rice, 1, 100));
+		}
+		return schedule;
+	}
+
+	private static void assertStreaks(GoalTracker tracker, int longest, int current, double attainment) {
+		assertEquals(longest, tracker.getLongestStreak());
+		assertEquals(current, tracker.getCurrentStreak(LAST));
+		assertEquals(attainment, tracker.getAttainment(DAYS, LAST), 1e-9);
+	}
+
+	private static void assertSameAsRebuilt(Schedule schedule, GoalTracker tracker) {
+		GoalTracker rebuilt = new GoalTracker(schedule);
+		assertStreaks(tracker, rebuilt.getLongestStreak(), rebuilt.getCurrentStreak(LAST), rebuilt.getAttainment(DAYS, LAST));
+	}
+
+	@Test
+	void missingAMiddleDaySplitsTheRunAndRecordingItJoinsIt() {
+		Schedule schedule = createMetDays();
+		GoalTracker tracker = schedule.getGoalTracker();
+		assertStreaks(tracker, 10, 10, 1);
+
+		DailyPlan middle = schedule.getDailyPlan(START.plusDays(4));
+		middle.removeEntries(EnumSet.of(EntryType.RECORDED));
+		assertStreaks(tracker, 5, 5, 0.9);
+		assertSameAsRebuilt(schedule, tracker);
+
+		middle.addEntry(new FoodEntry(EntryType.RECORDED, null, rice, 1, 100));
+		assertStreaks(tracker, 10, 10, 1);
+		assertSameAsRebuilt(schedule, tracker);
+	}
+
+	@Test
+	void dayWithoutGoalBreaksTheRun() {
+		Schedule schedule = createMetDays();
+		GoalTracker tracker = schedule.getGoalTracker();
+
+		schedule.getDailyPlan(START.plusDays(6)).removeEntries(EnumSet.of(EntryType.PLANNED));
+		assertStreaks(tracker, 6, 3, 1);
+		schedule.getDailyPlan(START.plusDays(2)).removeEntries(EnumSet.of(EntryType.RECORDED));
+		assertStreaks(tracker, 3, 3, 8.0 / 9);
+		assertSameAsRebuilt(schedule, tracker);
+
+		schedule.getDailyPlan(START.plusDays(6)).addEntry(new FoodEntry(EntryType.PLANNED, null, rice, 1, 100));
+		assertStreaks(tracker, 7, 7, 0.9);
+		assertSameAsRebuilt(schedule, tracker);
+	}
+
+	@Test
+	void editingTheFirstAndLastDaysShortensTheRunAtItsEnds() {
+		Schedule schedule = createMetDays();
+		GoalTracker tracker = schedule.getGoalTracker();
+
+		schedule.getDailyPlan(START).removeEntries(EnumSet.of(EntryType.RECORDED));
+		schedule.getDailyPlan(LAST).removeEntries(EnumSet.of(EntryType.RECORDED));
+		assertStreaks(tracker, 8, 8, 0.8);
+		assertSameAsRebuilt(schedule, tracker);
+	}
+}
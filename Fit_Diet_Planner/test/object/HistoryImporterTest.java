@@ -0,0 +1,181 @@
+package object;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+import object.CatalogImporter.ImportResult;
+import object.Entry.EntryType;
+import object.Food.FoodCategory;
+import object.LibraryItem.LibraryType;
+
+/**
+ * Tests that history written by {@link ScheduleExporter} is read back unchanged by {@link HistoryImporter}.
+ */
+class HistoryImporterTest {
+
+	private static final LocalDate START = LocalDate.of(2024, 1, 20);
+	private static final int DAYS = 45;
+
+	private final Library library;
+	private final Food rice;
+	private final Sport running;
+	private final Sport pushUp;
+
+	HistoryImporterTest() {
+		library = new Library(BinaryCatalog.empty());
+		rice = new Food("Rice, white", LibraryType.CUSTOM, FoodCategory.GRAIN, 1.3, 150);
+		running = new Sport("Running", LibraryType.CUSTOM, 9.8);
+		pushUp = new Sport("Push-up", LibraryType.CUSTOM, 8.0, 2.5);
+		library.addNewFood(rice);
+		library.addNewSport(running);
+		library.addNewSport(pushUp);
+	}
+
+	private Schedule createHistory() {
+		Schedule schedule = new Schedule();
+		String[] notes = {null, "plain", "with, comma", "say \"hi\"", "two\nlines", "tab\tand é", "back\\slash"};
+		for (int day = 0; day < DAYS; day++) {
+			DailyPlan plan = schedule.getDailyPlan(START.plusDays(day));
+			String note = notes[day % notes.length];
+			FoodEntry planned = new FoodEntry(EntryType.PLANNED, note, rice, 1 + day % 3, 100 + day);
+			plan.addEntry(planned);
+			if (day % 2 == 0)
+				plan.completeEntry(planned);
+			plan.addEntry(new TimeBasedExerciseEntry(EntryType.RECORDED, note, running, 60 + day * 0.5, 20 + day));
+			if (day % 5 == 0)
+				plan.addEntry(new RepBasedExerciseEntry(EntryType.PLANNED, note, pushUp, 70, 3, 10 + day, 2.25));
+		}
+		schedule.compressMonth(YearMonth.from(START));
+		return schedule;
+	}
+
+	private void assertSameHistory(Schedule expected, Schedule actual) {
+		for (int day = 0; day < DAYS; day++) {
+			LocalDate date = START.plusDays(day);
+			List<Entry> expectedEntries = expected.getDailyPlan(date).getEntries();
+			List<Entry> actualEntries = actual.getDailyPlan(date).getEntries();
+			assertEquals(expectedEntries.size(), actualEntries.size(), date.toString());
+			for (int i = 0; i < expectedEntries.size(); i++) {
+				Entry want = expectedEntries.get(i);
+				Entry got = actualEntries.get(i);
+				assertEquals(want.getClass(), got.getClass(), date.toString());
+				assertEquals(want.getType(), got.getType(), date.toString());
+				assertEquals(want.getNote(), got.getNote(), date.toString());
+				assertEquals(want.getDisplayName(), got.getDisplayName(), date.toString());
+				assertEquals(want.getDisplayInfo(), got.getDisplayInfo(), date.toString());
+				assertEquals(want.calculateCalories(), got.calculateCalories(), 1e-9, date.toString());
+			}
+		}
+		for (EntryType type : EntryType.values()) {
+			for (YearMonth month = YearMonth.from(START); !month.isAfter(YearMonth.from(START.plusDays(DAYS))); month = month.plusMonths(1))
+				assertEquals(expected.getAverageNet(month, type), actual.getAverageNet(month, type), 1e-6);
+		}
+	}
+
+	private void roundTrip(FileFormat format) throws IOException {
+		Schedule history = createHistory();
+		Path file = Files.createTempFile("history", format == FileFormat.CSV ? ".csv" : ".jsonl");
+		try {
+			long exported = new ScheduleExporter(history).export(file, format, null, null);
+			Schedule imported = new Schedule();
+			ImportResult result = new HistoryImporter(imported, library, 16).importHistory(file, format, date -> 55, null);
+
+			assertTrue(result.getErrors().isEmpty(), result.getErrors().toString());
+			assertEquals(exported, result.getRows());
+			assertEquals(exported, result.getImported());
+			assertSameHistory(history, imported);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void csvRoundTripKeepsEveryEntry() throws IOException {
+		roundTrip(FileFormat.CSV);
+	}
+
+	@Test
+	void jsonLinesRoundTripKeepsEveryEntry() throws IOException {
+		roundTrip(FileFormat.JSON_LINES);
+	}
+
+	@Test
+	void rejectsFractionalCounts() throws IOException {
+		Path file = Files.createTempFile("history", ".csv");
+		try {
+			Files.writeString(file, "date,item,quantity,sets,reps\n"
+					+ "2024-01-01,\"rice, white\",1.5,,\n"
+					+ "2024-01-01,\"Rice, white\",2.0,,\n"
+					+ "2024-01-02,push-up,,3,10.5\n"
+					+ "2024-01-02,push-up,,2.5,10\n"
+					+ "2024-01-02,push-up,,3,10\n");
+			Schedule imported = new Schedule();
+			ImportResult result = new HistoryImporter(imported, library).importHistory(file, FileFormat.CSV, date -> 55, null);
+
+			assertEquals(2, result.getImported());
+			assertEquals(3, result.getRejected());
+			assertEquals(2, ((FoodEntry) imported.getDailyPlan(LocalDate.of(2024, 1, 1)).getEntries().get(0)).getQuantity());
+			assertEquals(10, ((RepBasedExerciseEntry) imported.getDailyPlan(LocalDate.of(2024, 1, 2)).getEntries().get(0)).getReps());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void exportsTotalsOfDownsampledDays() throws IOException {
+		Schedule history = createHistory();
+		YearMonth january = YearMonth.from(START);
+		double januaryNet = history.getAverageNet(january, EntryType.RECORDED);
+		history.downsampleMonth(january, 3);
+		Path file = Files.createTempFile("history", ".csv");
+		try {
+			long exported = new ScheduleExporter(history).export(file, FileFormat.CSV, null, null);
+			List<String> lines = Files.readAllLines(file);
+			long totals = lines.stream().filter(line -> line.contains("," + ScheduleExporter.DAY_TOTAL + ",")).count();
+			double net = history.getDownsampledMonth(january).getDay(START).getNet(EntryType.RECORDED);
+			assertTrue(lines.contains(String.format(Locale.ROOT, "2024-01-20,RECORDED,DAY_TOTAL,,,,,,,,,%.2f,", net)), lines.toString());
+
+			Schedule imported = new Schedule();
+			ImportResult result = new HistoryImporter(imported, library).importHistory(file, FileFormat.CSV, date -> 55, null);
+			assertEquals(exported, result.getRows());
+			assertEquals(totals, result.getRejected());
+			assertEquals(exported - totals, result.getImported());
+			assertTrue(result.getErrors().get(0).endsWith("Day totals of downsampled months cannot be imported"), result.getErrors().get(0));
+			assertEquals(januaryNet, history.getAverageNet(january, EntryType.RECORDED), 1e-6);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void exportedRangeIsImportedAlone() throws IOException {
+		Schedule history = createHistory();
+		LocalDate from = START.plusDays(10);
+		LocalDate to = START.plusDays(19);
+		Path file = Files.createTempFile("history", ".csv");
+		try {
+			new ScheduleExporter(history).export(file, FileFormat.CSV, from, to);
+			Schedule imported = new Schedule();
+			new HistoryImporter(imported, library).importHistory(file, FileFormat.CSV, date -> 55, null);
+
+			assertEquals(from.withDayOfMonth(1), imported.getFirstMonth().atDay(1));
+			for (int day = 0; day < DAYS; day++) {
+				LocalDate date = START.plusDays(day);
+				int expected = date.isBefore(from) || date.isAfter(to) ? 0 : history.getDailyPlan(date).getEntries().size();
+				assertEquals(expected, imported.getDailyPlan(date).getEntries().size(), date.toString());
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
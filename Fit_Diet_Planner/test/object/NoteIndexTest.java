@@ -0,0 +1,149 @@
+package object;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import object.Entry.EntryType;
+import object.Food.FoodCategory;
+import object.LibraryItem.LibraryType;
+
+/**
+ * Tests that the delta and count varints of the {@link NoteIndex} posting lists decode to the indexed notes,
+ * also after documents are deleted and the lists are compacted.
+ */
+class NoteIndexTest {
+
+	private static final LocalDate START = LocalDate.of(2023, 1, 1);
+
+	private final Food rice = new Food("rice", LibraryType.CUSTOM, FoodCategory.GRAIN, 1.3, 150);
+
+	private Entry addNote(Schedule schedule, LocalDate date, String note) {
+		Entry entry = new FoodEntry(EntryType.RECORDED, note, rice, 1, 100);
+		schedule.getDailyPlan(date).addEntry(entry);
+		return entry;
+	}
+
+	private static Set<String> entryIds(NoteIndex.Page page) {
+		Set<String> ids = new HashSet<>();
+		for (NoteIndex.Match match : page.getMatches())
+			ids.add(match.getEntryId());
+		return ids;
+	}
+
+	@Test
+	void decodesDeltasOfEveryLength() {
+		Schedule schedule = new Schedule();
+		int[] marked = {0, 1, 2, 129, 130, 16_500, 16_515, 19_999};
+		Set<String> expected = new HashSet<>();
+		int next = 0;
+		for (int i = 0; i < 20_000; i++) {
+			boolean marker = next < marked.length && marked[next] == i;
+			Entry entry = addNote(schedule, START.plusDays(i / 50), (marker ? "marker " : "") + "note " + i);
+			if (marker) {
+				expected.add(entry.getId());
+				next++;
+			}
+		}
+		NoteIndex index = new NoteIndex(schedule);
+
+		assertEquals(20_000, index.size());
+		NoteIndex.Page page = index.search("marker", 0, 100);
+		assertEquals(marked.length, page.getTotal());
+		assertEquals(expected, entryIds(page));
+		assertEquals(1, index.search("note 16515", 0, 10).getTotal());
+		assertEquals(20_000, index.search("note", 0, 0).getTotal());
+	}
+
+	@Test
+	void decodesWordCountsAboveOneByte() {
+		Schedule schedule = new Schedule();
+		Entry often = addNote(schedule, START, "tofu ".repeat(300).trim());
+		addNote(schedule, START.plusDays(1), "tofu and rice");
+		addNote(schedule, START.plusDays(2), "rice only");
+		NoteIndex index = new NoteIndex(schedule);
+
+		NoteIndex.Page page = index.search("tofu", 0, 10);
+		assertEquals(2, page.getTotal());
+		double idf = Math.log(1 + 3.0 / 2);
+		for (NoteIndex.Match match : page.getMatches()) {
+			if (match.getEntryId().equals(often.getId()))
+				assertEquals((1 + Math.log(300)) * idf / Math.sqrt(300), match.getScore(), 1e-12);
+			else
+				assertEquals(idf / Math.sqrt(3), match.getScore(), 1e-12);
+		}
+	}
+
+	@Test
+	void lastWordMatchesAsPrefix() {
+		Schedule schedule = new Schedule();
+		addNote(schedule, START, "Chicken soup");
+		Entry chickpeas = addNote(schedule, START.plusDays(1), "chickpeas, soup!");
+		Entry chick = addNote(schedule, START.plusDays(2), "soup of chick");
+		NoteIndex index = new NoteIndex(schedule);
+
+		assertEquals(3, index.search("chick", 0, 10).getTotal());
+		assertEquals(Set.of(chickpeas.getId()), entryIds(index.search("soup chickp", 0, 10)));
+		assertEquals(Set.of(chick.getId()), entryIds(index.search("chick soup", 0, 10)));
+		assertEquals(0, index.search("chick soupy", 0, 10).getTotal());
+	}
+
+	@Test
+	void pagesThroughMatchesInRankOrder() {
+		Schedule schedule = new Schedule();
+		for (int i = 0; i < 25; i++)
+			addNote(schedule, START.plusDays(i), "walk");
+		NoteIndex index = new NoteIndex(schedule);
+
+		List<LocalDate> dates = new ArrayList<>();
+		for (int offset = 0; offset < 30; offset += 10) {
+			NoteIndex.Page page = index.search("walk", offset, 10);
+			assertEquals(25, page.getTotal());
+			for (NoteIndex.Match match : page.getMatches())
+				dates.add(match.getDate());
+		}
+		assertEquals(25, dates.size());
+		for (int i = 0; i < dates.size(); i++)
+			assertEquals(START.plusDays(24 - i), dates.get(i));
+	}
+
+	@Test
+	void followsChangesAndCompactsDeletedDocuments() {
+		Schedule schedule = new Schedule();
+		List<Entry> old = new ArrayList<>();
+		List<Entry> kept = new ArrayList<>();
+		for (int day = 0; day < 1500; day++) {
+			Entry entry = addNote(schedule, START.plusDays(day), day < 1200 ? "old " + day : "kept " + day);
+			(day < 1200 ? old : kept).add(entry);
+		}
+		NoteIndex index = new NoteIndex(schedule);
+		assertEquals(1500, index.size());
+
+		schedule.batch(() -> {
+			for (int day = 0; day < 1200; day++)
+				schedule.getDailyPlan(START.plusDays(day)).deleteEntry(old.get(day));
+		});
+		assertEquals(300, index.size());
+		assertEquals(0, index.search("old", 0, 10).getTotal());
+
+		NoteIndex.Page page = index.search("kept", 0, 300);
+		assertEquals(300, page.getTotal());
+		for (NoteIndex.Match match : page.getMatches())
+			assertTrue(!match.getDate().isBefore(START.plusDays(1200)), match.getDate().toString());
+
+		//the renumbered documents of a day are still replaced when that day changes
+		LocalDate last = START.plusDays(1499);
+		schedule.getDailyPlan(last).deleteEntry(kept.get(299));
+		Entry added = addNote(schedule, last, "new note");
+		assertEquals(299, index.search("kept", 0, 0).getTotal());
+		assertEquals(Set.of(added.getId()), entryIds(index.search("new", 0, 10)));
+		assertEquals(300, index.size());
+	}
+}
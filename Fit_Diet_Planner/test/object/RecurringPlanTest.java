@@ -0,0 +1,88 @@
+package object;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import controller.EntryDuplicatePopUpController.ConflictAction;
+import object.Entry.EntryType;
+import object.Food.FoodCategory;
+import object.LibraryItem.LibraryType;
+
+/**
+ * Tests that a {@link Schedule} counts the pending occurrences of its {@link RecurringPlan}s
+ * and drops the plans once no occurrence is left.
+ */
+class RecurringPlanTest {
+
+	private static final LocalDate SOURCE = LocalDate.of(2024, 4, 30);
+	private static final YearMonth MAY = YearMonth.of(2024, 5);
+
+	private final Food rice = new Food("Rice", LibraryType.CUSTOM, FoodCategory.GRAIN, 1.3, 150);
+
+	private Schedule createSchedule() {
+		Schedule schedule = new Schedule();
+		schedule.getDailyPlan(SOURCE).addEntry(new FoodEntry(EntryType.PLANNED, null, rice, 1, 100));
+		return schedule;
+	}
+
+	private static List<LocalDate> mondays(YearMonth month) {
+		return month.atDay(1).datesUntil(month.atEndOfMonth().plusDays(1))
+				.filter(date -> date.getDayOfWeek() == DayOfWeek.MONDAY).toList();
+	}
+
+	@Test
+	void countsPendingOccurrences() {
+		Schedule schedule = createSchedule();
+		LocalDate busy = mondays(MAY).get(1);
+		schedule.getDailyPlan(busy).addEntry(new FoodEntry(EntryType.RECORDED, null, rice, 1, 50));
+		RecurringPlan recurring = schedule.addRecurringPlan(SOURCE, EnumSet.of(DayOfWeek.MONDAY), MAY.atDay(1), MAY.atEndOfMonth(), ConflictAction.COMBINE);
+
+		List<LocalDate> pending = mondays(MAY).stream().filter(date -> !date.equals(busy)).toList();
+		assertEquals(pending, recurring.getPendingDates());
+		assertEquals(pending.size(), recurring.getPendingCount());
+		//every Monday plus the source entry and the recorded entry of the busy day
+		assertEquals(mondays(MAY).size() + 2, schedule.getUsageIndex().getUseCount(rice));
+		assertEquals(schedule.getIntakeCalories(SOURCE, EntryType.PLANNED) * mondays(MAY).size(), sumPlannedIntake(schedule, MAY), 1e-9);
+
+		schedule.getDailyPlan(pending.get(0));
+		assertEquals(pending.size() - 1, recurring.getPendingCount());
+		assertEquals(pending.subList(1, pending.size()), recurring.getPendingDates());
+	}
+
+	@Test
+	void dropsPlansWithoutPendingOccurrences() {
+		Schedule schedule = createSchedule();
+		schedule.addRecurringPlan(SOURCE, EnumSet.of(DayOfWeek.MONDAY), MAY.atDay(1), MAY.atEndOfMonth(), ConflictAction.COMBINE);
+		RecurringPlan june = schedule.addRecurringPlan(SOURCE, EnumSet.of(DayOfWeek.MONDAY), YearMonth.of(2024, 6).atDay(1),
+				YearMonth.of(2024, 6).atEndOfMonth(), ConflictAction.COMBINE);
+		assertEquals(2, schedule.getRecurringPlans().size());
+		double intake = sumPlannedIntake(schedule, MAY);
+
+		for (LocalDate date : mondays(MAY))
+			schedule.getDailyPlan(date);
+
+		assertEquals(List.of(june), schedule.getRecurringPlans());
+		assertEquals(intake, sumPlannedIntake(schedule, MAY), 1e-9);
+		for (LocalDate date : mondays(MAY))
+			assertTrue(schedule.getDailyPlan(date).isShared(), date.toString());
+
+		schedule.downsampleMonth(YearMonth.of(2024, 6), 3);
+		assertEquals(List.of(), schedule.getRecurringPlans());
+		assertEquals(mondays(MAY).size() + 1, schedule.getUsageIndex().getUseCount(rice));
+	}
+
+	private static double sumPlannedIntake(Schedule schedule, YearMonth month) {
+		double total = 0;
+		for (LocalDate date = month.atDay(1); !date.isAfter(month.atEndOfMonth()); date = date.plusDays(1))
+			total += schedule.getIntakeCalories(date, EntryType.PLANNED);
+		return total;
+	}
+}
@@ -0,0 +1,115 @@
+package object;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import controller.EntryDuplicatePopUpController.ConflictAction;
+import object.Entry.EntryType;
+import object.Food.FoodCategory;
+import object.LibraryItem.LibraryType;
+
+/**
+ * Tests that the cells of a {@link RollupTable}, updated by deltas on every change, equal totals recomputed from the plans.
+ */
+class RollupTableTest {
+
+	private static final LocalDate START = LocalDate.of(2023, 12, 20);
+	private static final int DAYS = 60;
+
+	private final Food rice = new Food("Rice", LibraryType.CUSTOM, FoodCategory.GRAIN, 1.3, 150);
+	private final Sport running = new Sport("Running", LibraryType.CUSTOM, 9.8);
+
+	private Entry randomEntry(Random random, boolean food, EntryType type) {
+		if (food)
+			return new FoodEntry(type, null, rice, 1 + random.nextInt(3), 50 + random.nextInt(200));
+		return new TimeBasedExerciseEntry(type, null, running, 50 + random.nextInt(40), 10 + random.nextInt(60));
+	}
+
+	private void editRandomly(Schedule schedule, Random random, int steps) {
+		for (int step = 0; step < steps; step++) {
+			DailyPlan plan = schedule.getDailyPlan(START.plusDays(random.nextInt(DAYS)));
+			List<Entry> entries = plan.getEntries();
+			Entry entry = entries.isEmpty() ? null : entries.get(random.nextInt(entries.size()));
+			EntryType type = random.nextBoolean() ? EntryType.PLANNED : EntryType.RECORDED;
+			switch (entry == null ? 0 : random.nextInt(4)) {
+				case 0:
+					plan.addEntry(randomEntry(random, random.nextBoolean(), type));
+					break;
+				case 1:
+					plan.deleteEntry(entry);
+					break;
+				case 2:
+					plan.updateEntry(entry, randomEntry(random, entry instanceof FoodEntry, type));
+					break;
+				default:
+					if (entry.getType() == EntryType.PLANNED)
+						plan.completeEntry(entry);
+					else
+						plan.removeEntries(EnumSet.of(entry.getType()));
+			}
+		}
+	}
+
+	private void assertMatchesPlans(Schedule schedule, LocalDate first, LocalDate last) {
+		RollupTable rollups = schedule.getRollups();
+		for (Granularity period : Granularity.values()) {
+			for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+				if (!period.startOf(date).equals(date) && !date.equals(first))
+					continue;
+				RollupTable.Cell cell = rollups.get(period, date);
+				for (EntryType type : EntryType.values()) {
+					double intake = 0;
+					double burn = 0;
+					int entries = 0;
+					int foods = 0;
+					for (LocalDate day = period.startOf(date); period.startOf(day).equals(period.startOf(date)); day = day.plusDays(1)) {
+						if (day.isBefore(first) || day.isAfter(last))
+							continue;
+						DailyPlan plan = schedule.getDailyPlan(day);
+						intake += plan.getIntakeCalories(type);
+						burn += plan.getBurnCalories(type);
+						for (Entry entry : plan.getEntries()) {
+							if (entry.getType() == type) {
+								entries++;
+								if (entry instanceof FoodEntry)
+									foods++;
+							}
+						}
+					}
+					String label = period + " " + date + " " + type;
+					assertEquals(intake, cell.getIntake(type), 1e-6, label);
+					assertEquals(burn, cell.getBurn(type), 1e-6, label);
+					assertEquals(entries, cell.getEntryCount(type), label);
+					assertEquals(foods, cell.getFoodCount(type), label);
+				}
+			}
+		}
+	}
+
+	@Test
+	void cellsEqualARecomputationAfterEdits() {
+		Schedule schedule = new Schedule();
+		editRandomly(schedule, new Random(42), 3000);
+
+		assertMatchesPlans(schedule, START, START.plusDays(DAYS - 1));
+	}
+
+	@Test
+	void cellsFollowDuplicationAndCompression() {
+		Schedule schedule = new Schedule();
+		Random random = new Random(7);
+		editRandomly(schedule, random, 500);
+		schedule.duplicatePlan(START.plusDays(3), START.plusDays(DAYS), START.plusDays(DAYS + 20), ConflictAction.COMBINE);
+		schedule.compressMonth(YearMonth.from(START.plusDays(DAYS + 20)));
+		editRandomly(schedule, random, 500);
+
+		assertMatchesPlans(schedule, START, START.plusDays(DAYS + 20));
+	}
+}
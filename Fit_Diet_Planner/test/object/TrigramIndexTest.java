@@ -0,0 +1,53 @@
+package object;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the edit distance between a query and the closest part of a name used by {@link TrigramIndex}.
+ */
+class TrigramIndexTest {
+
+	@Test
+	void exactSubstringHasNoDistance() {
+		assertEquals(0, TrigramIndex.substringDistance("rice", "rice"));
+		assertEquals(0, TrigramIndex.substringDistance("rice", "brown rice, cooked"));
+		assertEquals(0, TrigramIndex.substringDistance("brown", "brown rice, cooked"));
+		assertEquals(0, TrigramIndex.substringDistance("cooked", "brown rice, cooked"));
+	}
+
+	@Test
+	void emptyQueryMatchesAnything() {
+		assertEquals(0, TrigramIndex.substringDistance("", "rice"));
+		assertEquals(0, TrigramIndex.substringDistance("", ""));
+	}
+
+	@Test
+	void emptyTextCostsTheWholeQuery() {
+		assertEquals(4, TrigramIndex.substringDistance("rice", ""));
+	}
+
+	@Test
+	void countsSingleEdits() {
+		assertEquals(1, TrigramIndex.substringDistance("rica", "brown rice"));
+		assertEquals(1, TrigramIndex.substringDistance("rce", "brown rice"));
+		assertEquals(1, TrigramIndex.substringDistance("rixce", "brown rice"));
+	}
+
+	@Test
+	void countsTranspositionAsTwoEdits() {
+		assertEquals(2, TrigramIndex.substringDistance("rcie", "brown rice"));
+	}
+
+	@Test
+	void queryLongerThanTextPaysForTheRest() {
+		assertEquals(2, TrigramIndex.substringDistance("rice pudding", "rice puddi"));
+		assertEquals(6, TrigramIndex.substringDistance("spaghetti", "spa"));
+	}
+
+	@Test
+	void neverExceedsQueryLength() {
+		assertEquals(3, TrigramIndex.substringDistance("xyz", "apple"));
+	}
+}
@@ -0,0 +1,172 @@
+package object;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the delta-of-delta day and XOR value encoding of {@link WeightHistory} decodes to the recorded
+ * measurements, compared with a plain sorted map.
+ */
+class WeightHistoryTest {
+
+	private static final LocalDate START = LocalDate.of(2020, 1, 1);
+
+	private static void assertMeasurement(LocalDate date, double[] values, WeightHistory.Measurement measurement) {
+		assertEquals(date, measurement.getDate());
+		assertEquals(values[0], measurement.getWeight(), date.toString());
+		assertEquals(values[1], measurement.getHeight(), date.toString());
+	}
+
+	private static void assertSameHistory(TreeMap<LocalDate, double[]> expected, WeightHistory history) {
+		assertEquals(expected.size(), history.size());
+		List<WeightHistory.Measurement> all = history.getRange(LocalDate.MIN, LocalDate.MAX);
+		assertEquals(expected.size(), all.size());
+		int i = 0;
+		for (Map.Entry<LocalDate, double[]> entry : expected.entrySet())
+			assertMeasurement(entry.getKey(), entry.getValue(), all.get(i++));
+		assertMeasurement(expected.lastKey(), expected.lastEntry().getValue(), history.getLatest());
+	}
+
+	@Test
+	void emptyHistoryHasNoMeasurement() {
+		WeightHistory history = new WeightHistory();
+
+		assertEquals(0, history.size());
+		assertNull(history.getLatest());
+		assertNull(history.getOn(START));
+		assertTrue(history.getRange(LocalDate.MIN, LocalDate.MAX).isEmpty());
+	}
+
+	@Test
+	void decodesRegularAndIrregularGaps() {
+		int[] gaps = {1, 1, 1, 7, 7, 1, 2, 64, 65, 1, 300, 256, 257, 2048, 2049, 1, 3000, 9000, 1, 1};
+		WeightHistory history = new WeightHistory();
+		TreeMap<LocalDate, double[]> expected = new TreeMap<>();
+		LocalDate date = START;
+		for (int gap : gaps) {
+			date = date.plusDays(gap);
+			double[] values = {70 + gap % 5 * 0.1, 175};
+			history.record(date, values[0], values[1]);
+			expected.put(date, values);
+		}
+
+		assertSameHistory(expected, history);
+	}
+
+	@Test
+	void decodesValuesThatChangeAnyBits() {
+		Random random = new Random(47);
+		WeightHistory history = new WeightHistory();
+		TreeMap<LocalDate, double[]> expected = new TreeMap<>();
+		double[][] series = {
+			{70, 170}, {70, 170}, {70.1, 170}, {69.9, 170.5}, {1e-300, 170.5}, {1e300, 170.5},
+			{Double.MIN_VALUE, Double.MAX_VALUE}, {70, 170}, {70.000000001, 170}, {70, 170}
+		};
+		for (int i = 0; i < 200; i++) {
+			double[] values = i < series.length ? series[i]
+					: random.nextBoolean() ? new double[] {50 + random.nextDouble() * 50, 150 + random.nextDouble() * 50}
+					: new double[] {Math.round(random.nextDouble() * 1000) / 10.0, 175};
+			history.record(START.plusDays(i), values[0], values[1]);
+			expected.put(START.plusDays(i), values);
+		}
+
+		assertSameHistory(expected, history);
+	}
+
+	@Test
+	void matchesSortedMapUnderRandomRecording() {
+		Random random = new Random(64);
+		WeightHistory history = new WeightHistory();
+		TreeMap<LocalDate, double[]> expected = new TreeMap<>();
+		for (int i = 0; i < 3000; i++) {
+			//mostly appends, with corrections of past days and measurements inserted in between
+			int day = random.nextInt(10) < 7 ? i : random.nextInt(i + 1);
+			double[] values = {60 + random.nextInt(200) / 10.0, random.nextInt(20) == 0 ? 170 + random.nextInt(10) : 175};
+			history.record(START.plusDays(day), values[0], values[1]);
+			expected.put(START.plusDays(day), values);
+		}
+
+		assertSameHistory(expected, history);
+		for (int day = -5; day < 3010; day++) {
+			LocalDate date = START.plusDays(day);
+			Map.Entry<LocalDate, double[]> floor = expected.floorEntry(date);
+			if (floor == null)
+				floor = expected.firstEntry();
+			assertMeasurement(floor.getKey(), floor.getValue(), history.getOn(date));
+		}
+	}
+
+	@Test
+	void readsRangesAcrossBlocks() {
+		WeightHistory history = new WeightHistory();
+		List<LocalDate> dates = new ArrayList<>();
+		for (int i = 0; i < 5 * WeightHistory.BLOCK_SIZE; i++)
+			dates.add(START.plusDays(3L * i));
+		List<LocalDate> shuffled = new ArrayList<>(dates);
+		Collections.shuffle(shuffled, new Random(3));
+		for (LocalDate date : shuffled)
+			history.record(date, 70, 175);
+
+		Random random = new Random(5);
+		for (int i = 0; i < 200; i++) {
+			LocalDate from = START.plusDays(random.nextInt(1000) - 10);
+			LocalDate to = from.plusDays(random.nextInt(400));
+			List<LocalDate> expected = new ArrayList<>();
+			for (LocalDate date : dates) {
+				if (!date.isBefore(from) && !date.isAfter(to))
+					expected.add(date);
+			}
+			List<LocalDate> actual = new ArrayList<>();
+			for (WeightHistory.Measurement measurement : history.getRange(from, to))
+				actual.add(measurement.getDate());
+			assertEquals(expected, actual, from + ".." + to);
+		}
+	}
+
+	@Test
+	void replacesMeasurementOfTheSameDay() {
+		WeightHistory history = new WeightHistory();
+		history.record(START, 70, 175);
+		history.record(START.plusDays(1), 71, 175);
+		int revision = history.getRevision();
+		history.record(START, 72, 176);
+
+		assertEquals(2, history.size());
+		assertTrue(history.getRevision() > revision);
+		assertEquals(72, history.getOn(START).getWeight());
+		assertEquals(176, history.getOn(START).getHeight());
+		assertEquals(71, history.getOn(START.plusDays(1)).getWeight());
+	}
+
+	@Test
+	void regularUnchangedMeasurementsTakeFewBits() {
+		WeightHistory history = new WeightHistory();
+		for (int i = 0; i < WeightHistory.BLOCK_SIZE; i++)
+			history.record(START.plusDays(i), 70.5, 175);
+
+		//two raw doubles and the first gap in 9 bits, then one bit each for the gap, weight and height of every later day
+		int bits = 2 * 64 + 9 + 2 + 3 * (WeightHistory.BLOCK_SIZE - 2);
+		assertEquals((bits + 7) / 8, history.getEncodedSize());
+	}
+
+	@Test
+	void rejectsNonPositiveValues() {
+		WeightHistory history = new WeightHistory();
+
+		assertThrows(IllegalArgumentException.class, () -> history.record(START, 0, 175));
+		assertThrows(IllegalArgumentException.class, () -> history.record(START, 70, -1));
+		assertEquals(0, history.size());
+	}
+}